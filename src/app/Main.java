@@ -1,6 +1,7 @@
 package app;
 
 
+import model.QuizSummary;
 import model.User;
 import service.*;
 
@@ -15,6 +16,8 @@ public class Main {
         //User Credentials
         UserService userService = new UserService();
         AuthService authService = new AuthService(userService);
+        quizService.setUserService(userService);
+        challengeService.setUserService(userService);
 
         Scanner scanner = new Scanner(System.in);
         
@@ -75,18 +78,22 @@ public class Main {
                 // Switch Case Menu Input
                 switch (input) {
                     case 1:
-                        skillService.showSkills();
+                        skillService.showSkills(user);
                         break;
                     case 2:
                         skillService.unlockSkill(scanner, user);
                         break;
                     case 3:
+                        System.out.println("Available quizzes:");
+                        for (QuizSummary quiz : quizService.getQuizzes()) {
+                            System.out.println("- " + quiz.getSkillName() + " (" + quiz.getQuestionCount() + " questions)");
+                        }
                         System.out.println("Enter the skill name to take its Quiz: ");
                         String skillName = scanner.nextLine();
                         quizService.startQuiz(skillName, scanner, user, achievementService, challengeService);
                         break;
                     case 4:
-                        challengeService.showStatus();
+                        challengeService.showStatus(user);
                         break;
                     case 5:
                         achievementService.showAchievements();
@@ -96,6 +103,7 @@ public class Main {
                         break;
                     case 7:
                         System.out.println("👋 Goodbye, " + user.getUsername() + "!");
+                        authService.logout();
                         user = null;
                         break;
                     default:
@@ -0,0 +1,19 @@
+package exception;
+
+/**
+ * A request to the HTTP API failed with the given status code.
+ */
+public class ApiException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
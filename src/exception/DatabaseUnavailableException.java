@@ -0,0 +1,9 @@
+package exception;
+
+public class DatabaseUnavailableException extends DatabaseException {
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package exception;
+
+/**
+ * An attempt was refused because too many were made; it may be retried after the given delay.
+ */
+public class RateLimitException extends AuthenticationException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RateLimitException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,7 @@
 package gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -14,11 +15,12 @@ import javafx.scene.effect.DropShadow;
 
 import model.User;
 import model.Skill;
+import model.QuizSummary;
 import service.*;
-import exception.ValidationException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 public class CodeviaFXApp extends Application {
     private UserService userService;
@@ -49,9 +51,7 @@ public class CodeviaFXApp extends Application {
     private RadioButton[] answerOptions;
     private ToggleGroup answersGroup;
     private Button submitAnswerButton, finishQuizButton;
-    private int currentQuestionIndex = 0;
-    private int score = 0;
-    private List<model.Question> currentQuizQuestions;
+    private QuizSession quizSession;
     private String currentQuizTopic;
 
     @Override
@@ -70,8 +70,10 @@ public class CodeviaFXApp extends Application {
         try {
             userService = new UserService();
             authService = new AuthService(userService);
+            authService.setUseFirebaseAuth(false); // Accounts registered here are local ones
             skillService = new SkillService();
             quizService = new QuizService();
+            quizService.setUserService(userService);
             System.out.println("Services initialized successfully");
         } catch (Exception e) {
             System.err.println("Error initializing services: " + e.getMessage());
@@ -87,8 +89,10 @@ public class CodeviaFXApp extends Application {
             // Create basic services that work without Firebase
             userService = new UserService();
             authService = new AuthService(userService);
+            authService.setUseFirebaseAuth(false); // Accounts registered here are local ones
             skillService = new SkillService();
             quizService = new QuizService();
+            quizService.setUserService(userService);
             System.out.println("✅ Fallback services created successfully");
         } catch (Exception e) {
             System.err.println("❌ Failed to create fallback services: " + e.getMessage());
@@ -185,7 +189,7 @@ public class CodeviaFXApp extends Application {
         // Buttons
         Button loginButton = new Button("Login");
         loginButton.getStyleClass().addAll("button", "primary-button", "rounded-button");
-        loginButton.setOnAction(e -> performLogin());
+        loginButton.setOnAction(e -> performLogin(loginButton));
 
         Button registerButton = new Button("Create Account");
         registerButton.getStyleClass().addAll("button", "secondary-button", "rounded-button");
@@ -353,7 +357,9 @@ public class CodeviaFXApp extends Application {
         quizLabel.setFont(Font.font("Arial", FontWeight.SEMI_BOLD, 16));
 
         ComboBox<String> quizComboBox = new ComboBox<>();
-        quizComboBox.getItems().addAll("Java Basics", "OOP");
+        for (QuizSummary quiz : quizService.getQuizzes()) {
+            quizComboBox.getItems().add(quiz.getSkillName());
+        }
         quizComboBox.setPromptText("Choose a quiz topic...");
         quizComboBox.getStyleClass().add("combo-box");
         quizComboBox.setPrefWidth(200);
@@ -454,43 +460,39 @@ public class CodeviaFXApp extends Application {
         return button;
     }
 
-    private void performLogin() {
-        try {
-            String email = emailField.getText().trim();
-            String password = passwordField.getText();
-
-            if (email.isEmpty() || password.isEmpty()) {
-                statusLabel.setText("Please fill in all fields");
-                return;
-            }
-
-            // Mock authentication for demo
-            currentUser = userService.findUserByEmail(email);
-            if (currentUser == null) {
-                statusLabel.setText("User not found");
-                return;
-            }
-
-            if (!currentUser.getPassword().equals(password)) {
-                statusLabel.setText("Invalid password");
-                return;
-            }
-
-            // Initialize achievement service for logged in user
-            achievementService = new AchievementService(currentUser);
-
-            statusLabel.setText("Login successful!");
-            updateUserInfo();
-            primaryStage.setScene(mainMenuScene);
-
-            // Clear fields
-            emailField.clear();
-            passwordField.clear();
-            statusLabel.setText("");
+    private void performLogin(Button loginButton) {
+        String email = emailField.getText().trim();
+        String password = passwordField.getText();
 
-        } catch (Exception e) {
-            statusLabel.setText("Login failed: " + e.getMessage());
+        if (email.isEmpty() || password.isEmpty()) {
+            statusLabel.setText("Please fill in all fields");
+            return;
         }
+
+        // Password hashing runs off the FX thread, through the login rate limiter
+        loginButton.setDisable(true);
+        statusLabel.setText("Signing in...");
+        authService.verifyLoginAsync(email, password, "gui")
+                .whenComplete((user, error) -> Platform.runLater(() -> {
+                    loginButton.setDisable(false);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        statusLabel.setText(cause.getMessage());
+                        return;
+                    }
+
+                    currentUser = user;
+                    // Initialize achievement service for logged in user
+                    achievementService = new AchievementService(currentUser);
+
+                    updateUserInfo();
+                    primaryStage.setScene(mainMenuScene);
+
+                    // Clear fields
+                    emailField.clear();
+                    passwordField.clear();
+                    statusLabel.setText("");
+                }));
     }
 
     private void showRegisterDialog() {
@@ -521,16 +523,21 @@ public class CodeviaFXApp extends Application {
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == ButtonType.OK) {
-                try {
-                    String username = usernameField.getText().trim();
-                    String email = emailField.getText().trim();
-                    String password = passwordField.getText();
-
-                    currentUser = userService.createUser(username, email, password);
-                    showAlert("Success", "Registration successful! Welcome " + username + "!");
-                } catch (ValidationException ex) {
-                    showAlert("Error", "Registration failed: " + ex.getMessage());
-                }
+                String username = usernameField.getText().trim();
+                String email = emailField.getText().trim();
+                String password = passwordField.getText();
+
+                // Hashing and the database write run off the FX thread
+                userService.createUserAsync(username, email, password)
+                        .whenComplete((user, error) -> Platform.runLater(() -> {
+                            if (error == null) {
+                                currentUser = user;
+                                showAlert("Success", "Registration successful! Welcome " + username + "!");
+                            } else {
+                                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                                showAlert("Error", "Registration failed: " + cause.getMessage());
+                            }
+                        }));
             }
             return null;
         });
@@ -639,9 +646,7 @@ public class CodeviaFXApp extends Application {
             currentQuizTopic = quizTopic;
             model.Quiz quiz = quizService.getQuizBySkillName(quizTopic);
             if (quiz != null) {
-                currentQuizQuestions = quiz.getQuestions();
-                currentQuestionIndex = 0;
-                score = 0;
+                quizSession = quizService.startSession(quiz);
                 createActiveQuizScene();
                 primaryStage.setScene(activeQuizScene);
             } else {
@@ -735,10 +740,10 @@ public class CodeviaFXApp extends Application {
     }
     
     private void displayCurrentQuestion() {
-        if (currentQuestionIndex < currentQuizQuestions.size()) {
-            model.Question question = currentQuizQuestions.get(currentQuestionIndex);
+        if (quizSession.hasNextQuestion()) {
+            model.Question question = quizSession.getCurrentQuestion();
             questionLabel.setText(question.getQuestionText());
-            questionCountLabel.setText("Question " + (currentQuestionIndex + 1) + " of " + currentQuizQuestions.size());
+            questionCountLabel.setText("Question " + (quizSession.getQuestionIndex() + 1) + " of " + quizSession.getQuestionCount());
             
             List<String> options = question.getOptions();
             for (int i = 0; i < answerOptions.length; i++) {
@@ -754,7 +759,7 @@ public class CodeviaFXApp extends Application {
             answersGroup.selectToggle(null);
             
             // Show/hide buttons based on question index
-            if (currentQuestionIndex == currentQuizQuestions.size() - 1) {
+            if (quizSession.getQuestionIndex() == quizSession.getQuestionCount() - 1) {
                 submitAnswerButton.setText("Submit Answer");
                 finishQuizButton.setVisible(true);
             } else {
@@ -772,7 +777,10 @@ public class CodeviaFXApp extends Application {
         }
         
         // Check if answer is correct
-        model.Question question = currentQuizQuestions.get(currentQuestionIndex);
+        model.Question question = quizSession.getCurrentQuestion();
+        if (question == null) {
+            return;
+        }
         int selectedIndex = -1;
         for (int i = 0; i < answerOptions.length; i++) {
             if (answerOptions[i] == selectedAnswer) {
@@ -781,16 +789,13 @@ public class CodeviaFXApp extends Application {
             }
         }
         
-        if (selectedIndex == question.getCorrectAnswer()) {
-            score++;
+        if (quizSession.submit(selectedIndex)) {
             showAlert("Correct!", "Well done! You got the right answer.");
         } else {
             showAlert("Incorrect", "The correct answer was: " + question.getOptions().get(question.getCorrectAnswer()));
         }
         
-        currentQuestionIndex++;
-        
-        if (currentQuestionIndex < currentQuizQuestions.size()) {
+        if (quizSession.hasNextQuestion()) {
             displayCurrentQuestion();
         } else {
             finishQuiz();
@@ -798,15 +803,8 @@ public class CodeviaFXApp extends Application {
     }
     
     private void finishQuiz() {
-        // Calculate results
-        int totalQuestions = currentQuizQuestions.size();
-        double percentage = (double) score / totalQuestions * 100;
-        int earnedXP = score * 20;
-        
-        // Award XP to user
-        if (currentUser != null) {
-            currentUser.gainExperiencePoint(earnedXP);
-        }
+        // Award XP to user, unanswered questions count as wrong
+        int earnedXP = quizService.completeSession(quizSession, currentUser);
         
         // Show results
         String resultMessage = String.format(
@@ -815,7 +813,7 @@ public class CodeviaFXApp extends Application {
             "Score: %d/%d (%.1f%%)\n" +
             "XP Earned: %d\n\n" +
             "Great job! Keep learning!",
-            currentQuizTopic, score, totalQuestions, percentage, earnedXP
+            currentQuizTopic, quizSession.getScore(), quizSession.getQuestionCount(), quizSession.getPercentage(), earnedXP
         );
         
         showAlert("Quiz Results", resultMessage);
@@ -13,9 +13,11 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 public class CodeviaGUI extends JFrame {
     private UserService userService;
+    private AuthService authService;
     private SkillService skillService;
     private QuizService quizService;
     private AchievementService achievementService;
@@ -35,9 +37,7 @@ public class CodeviaGUI extends JFrame {
     private ButtonGroup answerGroup;
     private JButton nextButton;
     private JLabel scoreLabel;
-    private int currentQuestionIndex = 0;
-    private int score = 0;
-    private Quiz currentQuiz;
+    private QuizSession quizSession;
 
     // Simple white and blue color scheme
     private final Color PRIMARY_BLUE = new Color(0, 123, 255);
@@ -71,8 +71,11 @@ public class CodeviaGUI extends JFrame {
     private void initializeServices() {
         System.out.println("DEBUG: Initializing services...");
         userService = new UserService();
+        authService = new AuthService(userService);
+        authService.setUseFirebaseAuth(false); // Accounts registered here are local ones
         skillService = new SkillService();
         quizService = new QuizService();
+        quizService.setUserService(userService);
         
         // Initialize first skill as unlocked
         List<Skill> skills = skillService.getSkills();
@@ -198,7 +201,7 @@ public class CodeviaGUI extends JFrame {
         // Login button
         JButton loginButton = new JButton("Sign In");
         styleModernPrimaryButton(loginButton);
-        loginButton.addActionListener(e -> performLogin());
+        loginButton.addActionListener(e -> performLogin(loginButton));
         gbc.gridx = 0; gbc.gridy = 5;
         gbc.gridwidth = 2;
         gbc.insets = new Insets(10, 30, 15, 30);
@@ -462,19 +465,25 @@ public class CodeviaGUI extends JFrame {
         JButton registerButton = new JButton("Create Account");
         styleApplePrimaryButton(registerButton);
         registerButton.addActionListener(e -> {
-            try {
-                String username = usernameField.getText().trim();
-                String email = regEmailField.getText().trim();
-                String password = new String(regPasswordField.getPassword());
-
-                currentUser = userService.createUser(username, email, password);
-                JOptionPane.showMessageDialog(this, "Registration successful! Welcome " + username + "!");
-                cardLayout.show(mainPanel, "LOGIN");
+            String username = usernameField.getText().trim();
+            String email = regEmailField.getText().trim();
+            String password = new String(regPasswordField.getPassword());
 
-            } catch (ValidationException ex) {
-                JOptionPane.showMessageDialog(this, "Registration failed: " + ex.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Hashing and the database write run off the event thread
+            registerButton.setEnabled(false);
+            userService.createUserAsync(username, email, password)
+                    .whenComplete((user, error) -> SwingUtilities.invokeLater(() -> {
+                        registerButton.setEnabled(true);
+                        if (error == null) {
+                            currentUser = user;
+                            JOptionPane.showMessageDialog(this, "Registration successful! Welcome " + username + "!");
+                            cardLayout.show(mainPanel, "LOGIN");
+                        } else {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            JOptionPane.showMessageDialog(this, "Registration failed: " + cause.getMessage(),
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }));
         });
         gbc.gridx = 0; gbc.gridy = 7;
         gbc.gridwidth = 2;
@@ -1020,7 +1029,7 @@ public class CodeviaGUI extends JFrame {
         JButton startButton = new JButton("Start Quiz");
         styleApplePrimaryButton(startButton);
         startButton.setPreferredSize(new Dimension(120, 44));
-        startButton.addActionListener(e -> startQuiz(skill.getSkillName()));
+        startButton.addActionListener(e -> startQuiz(skill));
         
         content.add(leftSection, BorderLayout.CENTER);
         content.add(startButton, BorderLayout.EAST);
@@ -1305,33 +1314,25 @@ public class CodeviaGUI extends JFrame {
         }
     }
     
-    private void startQuiz(String skillName) {
-        System.out.println("DEBUG: Starting quiz for skill: " + skillName);
+    private void startQuiz(Skill skill) {
+        System.out.println("DEBUG: Starting quiz for skill: " + skill.getSkillName());
         
         // Find the quiz for the selected skill
-        if (skillName.equals("Java Basics")) {
-            currentQuiz = createJavaBasicsQuiz();
-        } else if (skillName.equals("OOP Concepts")) {
-            currentQuiz = createOOPQuiz();
-        } else {
-            // Create a default quiz for other skills
-            currentQuiz = createDefaultQuiz(skillName);
-        }
+        Quiz quiz = quizService.getQuizForSkill(skill.getSkillId());
         
-        if (currentQuiz == null) {
-            System.out.println("DEBUG: Quiz is null for skill: " + skillName);
+        if (quiz == null || quiz.getQuestions().isEmpty()) {
+            System.out.println("DEBUG: No quiz for skill: " + skill.getSkillName());
             JOptionPane.showMessageDialog(this, "Quiz not available for this skill yet.");
             return;
         }
         
-        System.out.println("DEBUG: Quiz created successfully with " + currentQuiz.getQuestions().size() + " questions");
+        System.out.println("DEBUG: Quiz loaded with " + quiz.getQuestions().size() + " questions");
         
-        currentQuestionIndex = 0;
-        score = 0;
+        quizSession = quizService.startSession(quiz);
         
         // Check if scoreLabel exists
         if (scoreLabel != null) {
-            scoreLabel.setText("Score: 0/" + currentQuiz.getQuestions().size());
+            scoreLabel.setText("Score: 0/" + quizSession.getQuestionCount());
         } else {
             System.out.println("DEBUG: scoreLabel is null!");
         }
@@ -1340,45 +1341,15 @@ public class CodeviaGUI extends JFrame {
         cardLayout.show(mainPanel, "QUIZ");
     }
     
-    private Quiz createDefaultQuiz(String skillName) {
-        // Create a simple quiz for any skill
-        List<Question> questions = List.of(
-            new Question("This is a sample question for " + skillName + ". What is the answer?", 
-                List.of("Option A", "Option B", "Option C", "Option D"), 1),
-            new Question("Another question about " + skillName + ". Choose the best answer.", 
-                List.of("First choice", "Second choice", "Third choice", "Fourth choice"), 2)
-        );
-        return new Quiz(skillName.toLowerCase().replace(" ", "-"), skillName, questions, 70);
-    }
-    
-    private Quiz createJavaBasicsQuiz() {
-        List<Question> questions = List.of(
-            new Question("What is the size of int in Java?", 
-                List.of("2 bytes", "4 bytes", "8 bytes", "16 bytes"), 2),
-            new Question("Which loop checks the condition after executing once?", 
-                List.of("for", "while", "do-while", "foreach"), 3)
-        );
-        return new Quiz("java-basics", "Java Basics", questions, 70);
-    }
-    
-    private Quiz createOOPQuiz() {
-        List<Question> questions = List.of(
-            new Question("What is inheritance?", 
-                List.of("Copying code", "A class deriving properties from another", "Unrelated classes", "None of the above"), 2),
-            new Question("Which keyword is used to inherit a class in Java?", 
-                List.of("inherits", "extends", "implements", "super"), 2)
-        );
-        return new Quiz("oop", "OOP", questions, 70);
-    }
-    
     private void showQuestion() {
-        System.out.println("DEBUG: Showing question " + (currentQuestionIndex + 1) + " of " + currentQuiz.getQuestions().size());
+        int questionNumber = quizSession.getQuestionIndex() + 1;
+        System.out.println("DEBUG: Showing question " + questionNumber + " of " + quizSession.getQuestionCount());
         
-        if (currentQuestionIndex < currentQuiz.getQuestions().size()) {
-            Question question = currentQuiz.getQuestions().get(currentQuestionIndex);
+        if (quizSession.hasNextQuestion()) {
+            Question question = quizSession.getCurrentQuestion();
             System.out.println("DEBUG: Question text: " + question.getQuestionText());
             
-            currentQuestionLabel.setText("Question " + (currentQuestionIndex + 1) + ": " + question.getQuestionText());
+            currentQuestionLabel.setText("Question " + questionNumber + ": " + question.getQuestionText());
             
             List<String> options = question.getOptions();
             System.out.println("DEBUG: Number of options: " + options.size());
@@ -1395,7 +1366,7 @@ public class CodeviaGUI extends JFrame {
             
             answerGroup.clearSelection();
             updateAnswerCardStyles();
-            nextButton.setText(currentQuestionIndex == currentQuiz.getQuestions().size() - 1 ? "Finish" : "Next");
+            nextButton.setText(questionNumber == quizSession.getQuestionCount() ? "Finish" : "Next");
         } else {
             System.out.println("DEBUG: No more questions to show");
         }
@@ -1408,8 +1379,8 @@ public class CodeviaGUI extends JFrame {
         int selectedAnswer = -1;
         for (int i = 0; i < answerOptions.length; i++) {
             if (answerOptions[i] != null && answerOptions[i].isSelected()) {
-                selectedAnswer = i + 1;
-                System.out.println("DEBUG: Selected answer: " + selectedAnswer);
+                selectedAnswer = i; // Options and correct answers are both 0-based
+                System.out.println("DEBUG: Selected answer: " + (selectedAnswer + 1));
                 break;
             }
         }
@@ -1420,32 +1391,24 @@ public class CodeviaGUI extends JFrame {
             return;
         }
         
-        // Check if answer is correct
-        Question currentQuestion = currentQuiz.getQuestions().get(currentQuestionIndex);
-        if (selectedAnswer == currentQuestion.getCorrectAnswer()) {
-            score++;
-        }
-        
-        currentQuestionIndex++;
-        scoreLabel.setText("Score: " + score + "/" + currentQuiz.getQuestions().size());
+        // The session grades the answer and moves to the next question
+        quizSession.submit(selectedAnswer);
+        scoreLabel.setText("Score: " + quizSession.getScore() + "/" + quizSession.getQuestionCount());
         
-        if (currentQuestionIndex < currentQuiz.getQuestions().size()) {
+        if (quizSession.hasNextQuestion()) {
             showQuestion();
         } else {
             // Quiz finished
-            int earnedXP = score * 20;
-            if (currentUser != null) {
-                currentUser.addExperience(earnedXP);
-            }
+            int earnedXP = quizService.completeSession(quizSession, currentUser);
             
             String message = String.format(
                 "🎉 Quiz Completed!\n\n" +
                 "Final Score: %d/%d (%.1f%%)\n" +
                 "XP Earned: +%d\n\n" +
                 "Great job on completing the %s quiz!",
-                score, currentQuiz.getQuestions().size(),
-                (score * 100.0 / currentQuiz.getQuestions().size()),
-                earnedXP, currentQuiz.getSkillName()
+                quizSession.getScore(), quizSession.getQuestionCount(),
+                quizSession.getPercentage(),
+                earnedXP, quizSession.getQuiz().getSkillName()
             );
             
             JOptionPane.showMessageDialog(this, message, "Quiz Complete", JOptionPane.INFORMATION_MESSAGE);
@@ -1466,53 +1429,46 @@ public class CodeviaGUI extends JFrame {
         return button;
     }
 
-    private void performLogin() {
-        try {
-            String email = emailField.getText().trim();
-            String password = new String(passwordField.getPassword());
-
-            System.out.println("DEBUG: Attempting login with email: " + email);
+    private void performLogin(JButton loginButton) {
+        String email = emailField.getText().trim();
+        String password = new String(passwordField.getPassword());
 
-            if (email.isEmpty() || password.isEmpty()) {
-                statusLabel.setText("Please fill in all fields");
-                return;
-            }
+        System.out.println("DEBUG: Attempting login with email: " + email);
 
-            // Mock authentication for demo
-            currentUser = userService.findUserByEmail(email);
-            if (currentUser == null) {
-                statusLabel.setText("User not found");
-                System.out.println("DEBUG: User not found for email: " + email);
-                return;
-            }
-
-            if (!currentUser.getPassword().equals(password)) {
-                statusLabel.setText("Invalid password");
-                System.out.println("DEBUG: Invalid password for user: " + email);
-                return;
-            }
+        if (email.isEmpty() || password.isEmpty()) {
+            statusLabel.setText("Please fill in all fields");
+            return;
+        }
 
-            System.out.println("DEBUG: Login successful for user: " + currentUser.getUsername());
-            System.out.println("DEBUG: User XP: " + currentUser.getExperiencePoint());
-            System.out.println("DEBUG: User Level: " + currentUser.getUserLevel());
+        // Password hashing runs off the event thread, through the login rate limiter
+        loginButton.setEnabled(false);
+        statusLabel.setText("Signing in...");
+        authService.verifyLoginAsync(email, password, "gui")
+                .whenComplete((user, error) -> SwingUtilities.invokeLater(() -> {
+                    loginButton.setEnabled(true);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        statusLabel.setText(cause.getMessage());
+                        System.out.println("DEBUG: Login failed for " + email + ": " + cause.getMessage());
+                        return;
+                    }
 
-            // Initialize achievement service for logged in user
-            achievementService = new AchievementService(currentUser);
+                    currentUser = user;
+                    System.out.println("DEBUG: Login successful for user: " + currentUser.getUsername());
+                    System.out.println("DEBUG: User XP: " + currentUser.getExperiencePoint());
+                    System.out.println("DEBUG: User Level: " + currentUser.getUserLevel());
 
-            statusLabel.setText("Login successful!");
-            updateUserInfo();
-            cardLayout.show(mainPanel, "MAIN_MENU");
+                    // Initialize achievement service for logged in user
+                    achievementService = new AchievementService(currentUser);
 
-            // Clear fields
-            emailField.setText("");
-            passwordField.setText("");
-            statusLabel.setText(" ");
+                    updateUserInfo();
+                    cardLayout.show(mainPanel, "MAIN_MENU");
 
-        } catch (Exception e) {
-            statusLabel.setText("Login failed: " + e.getMessage());
-            System.out.println("DEBUG: Login exception: " + e.getMessage());
-            e.printStackTrace();
-        }
+                    // Clear fields
+                    emailField.setText("");
+                    passwordField.setText("");
+                    statusLabel.setText(" ");
+                }));
     }
 
     private void updateUserInfo() {
@@ -0,0 +1,70 @@
+package interface_;
+
+import exception.DatabaseException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public interface AsyncDatabaseConnectable extends DatabaseConnectable {
+    CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data);
+    CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId);
+    CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection);
+    CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data);
+    CompletableFuture<Void> deleteAsync(String collection, String documentId);
+    // Merges each document's fields in as few commits as the backend allows
+    CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId);
+    // Existing documents are delivered as ADDED first, then every later change in the collection
+    default ChangeSubscription listen(String collection, DocumentChangeListener listener) throws Exception {
+        return listen(collection, 0, listener);
+    }
+    // Same, but only for documents written at or after changedSinceMillis (0 for all), e.g. since a full load
+    // started; documents not written since then are neither delivered nor reported when removed
+    ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener) throws Exception;
+
+    // The blocking operations wait for the non-blocking ones, unless a backend has cheaper blocking calls
+
+    @Override
+    default void save(String collection, String documentId, Map<String, Object> data) throws Exception {
+        await(saveAsync(collection, documentId, data));
+    }
+
+    @Override
+    default Map<String, Object> get(String collection, String documentId) throws Exception {
+        return await(getAsync(collection, documentId));
+    }
+
+    @Override
+    default List<Map<String, Object>> getAll(String collection) throws Exception {
+        return await(getAllAsync(collection));
+    }
+
+    @Override
+    default void update(String collection, String documentId, Map<String, Object> data) throws Exception {
+        await(updateAsync(collection, documentId, data));
+    }
+
+    @Override
+    default void delete(String collection, String documentId) throws Exception {
+        await(deleteAsync(collection, documentId));
+    }
+
+    /**
+     * Wait for an async operation and rethrow its failure as a DatabaseException.
+     */
+    static <T> T await(CompletableFuture<T> future) throws DatabaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseException) {
+                throw (DatabaseException) cause;
+            }
+            throw new DatabaseException(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package interface_;
+
+public interface ChangeSubscription {
+    void cancel();
+}
@@ -0,0 +1,34 @@
+package interface_;
+
+import service.BinaryReader;
+import service.BinaryWriter;
+
+import java.util.Map;
+
+/**
+ * Converts one model class to and from its Firestore document fields and a compact binary form.
+ */
+public interface Codec<T> {
+    Class<T> getType();
+
+    /**
+     * Version of the binary layout; bump it when write()/read() change so stale snapshots are ignored.
+     */
+    default int getBinaryVersion() {
+        return 1;
+    }
+
+    /**
+     * Document fields, without the document id.
+     */
+    Map<String, Object> encode(T value);
+
+    /**
+     * Build the object from a document, or return null if required fields are missing.
+     */
+    T decode(String documentId, Map<String, Object> data);
+
+    void write(T value, BinaryWriter out);
+
+    T read(BinaryReader in);
+}
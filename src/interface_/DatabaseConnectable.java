@@ -2,12 +2,15 @@ package interface_;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface DatabaseConnectable {
     void connect() throws Exception;
     void save(String collection, String documentId, Map<String, Object> data) throws Exception;
     Map<String, Object> get(String collection, String documentId) throws Exception;
     List<Map<String, Object>> getAll(String collection) throws Exception;
+    // Lazily pages through the collection (ordered by document id), each element includes its "id"
+    Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception;
     void update(String collection, String documentId, Map<String, Object> data) throws Exception;
     void delete(String collection, String documentId) throws Exception;
 }
\ No newline at end of file
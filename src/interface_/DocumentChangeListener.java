@@ -0,0 +1,11 @@
+package interface_;
+
+import java.util.Map;
+
+public interface DocumentChangeListener {
+    enum ChangeType { ADDED, MODIFIED, REMOVED }
+
+    // data is null for REMOVED
+    void onChange(ChangeType type, String documentId, Map<String, Object> data);
+    void onError(Exception e);
+}
@@ -21,6 +21,7 @@ public class Achievement implements Achievable {
     public String getAchievementId() { return achievementId; }
     public String getName() { return name; }
     public boolean isUnlocked() { return isUnlocked; }
+    public void setUnlocked(boolean unlocked) { isUnlocked = unlocked; }
 
     // Interface implementation
     @Override
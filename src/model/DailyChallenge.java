@@ -3,6 +3,8 @@ package model;
 import java.time.LocalDate;
 
 public class DailyChallenge {
+    public static final int QUESTIONS_REQUIRED = 3;
+
     private LocalDate date;
     private int questionsAnswered;
     private boolean completed;
@@ -16,7 +18,7 @@ public class DailyChallenge {
     public void incrementProgress() {
         if (!completed) {
             questionsAnswered++;
-            if (questionsAnswered >= 3) {
+            if (questionsAnswered >= QUESTIONS_REQUIRED) {
                 completed = true;
             }
         }
@@ -5,7 +5,7 @@ import java.util.List;
 public class Question {
     private String questionText;
     private List<String> options;
-    private int correctAnswer;
+    private int correctAnswer; // 0-based index into options
 
     public Question(String questionText, List<String> options, int correctAnswer) {
         this.questionText = questionText;
@@ -26,6 +26,9 @@ public class Question {
         }
     }
     
+    /**
+     * Check a 0-based option index (display() numbers the options from 1).
+     */
     public boolean checkAnswer(int answer) {
         return answer == correctAnswer;
     }
@@ -4,12 +4,18 @@ import java.util.List;
 
 public class Quiz {
     private String quizId;
+    private String skillId;
     private String skillName;
     private List<Question> questions;
     private int passingScore;
 
     public Quiz(String quizId, String skillName, List<Question> questions, int passingScore) {
+        this(quizId, null, skillName, questions, passingScore);
+    }
+
+    public Quiz(String quizId, String skillId, String skillName, List<Question> questions, int passingScore) {
         this.quizId = quizId;
+        this.skillId = skillId;
         this.skillName = skillName;
         this.questions = questions;
         this.passingScore = passingScore;
@@ -17,6 +23,7 @@ public class Quiz {
 
     // Encapsulation
     public String getQuizId() { return quizId; }
+    public String getSkillId() { return skillId; }
     public String getSkillName() { return skillName; }
     public List<Question> getQuestions() { return questions; }
     public int getPassingScore() { return passingScore; }
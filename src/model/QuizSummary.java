@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * Catalog entry for a quiz: what is needed to list and look it up, without the question bodies.
+ */
+public class QuizSummary {
+    private String quizId;
+    private String skillId;
+    private String skillName;
+    private int passingScore;
+    private int questionCount;
+
+    public QuizSummary(String quizId, String skillId, String skillName, int passingScore, int questionCount) {
+        this.quizId = quizId;
+        this.skillId = skillId;
+        this.skillName = skillName;
+        this.passingScore = passingScore;
+        this.questionCount = questionCount;
+    }
+
+    // Encapsulation
+    public String getQuizId() { return quizId; }
+    public String getSkillId() { return skillId; }
+    public String getSkillName() { return skillName; }
+    public int getPassingScore() { return passingScore; }
+    public int getQuestionCount() { return questionCount; }
+}
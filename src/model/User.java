@@ -1,9 +1,21 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class User {
+    // Document field names, shared with the persistence layer
+    public static final String FIELD_USERNAME = "username";
+    public static final String FIELD_EMAIL = "email";
+    public static final String FIELD_PASSWORD = "password";
+    public static final String FIELD_EXPERIENCE_POINT = "experiencePoint";
+    public static final String FIELD_USER_LEVEL = "userLevel";
+    public static final String FIELD_UNLOCKED_SKILLS = "unlockedSkills";
+    public static final String FIELD_ACHIEVEMENTS = "achievements";
+
     private String userId;
     private String username;
     private String email;
@@ -13,6 +25,12 @@ public class User {
     private List<String> unlockedSkills;
     private List<String> achievements;
 
+    // Dirty tracking since the last persist
+    private final Set<String> dirtyFields = new LinkedHashSet<>(); // Fields that must be written as absolute values
+    private int experienceDelta;                                   // XP gained, written as an increment
+    private final List<String> addedSkills = new ArrayList<>();    // Written as an array union
+    private final List<String> addedAchievements = new ArrayList<>();
+
     // Constructor
     public User() {
         this.unlockedSkills = new ArrayList<>();
@@ -34,17 +52,29 @@ public class User {
     public void setUserId(String userId) { this.userId = userId; }
 
     public String getUsername() { return username; }
-    public void setUsername(String username) { this.username = username; }
+    public void setUsername(String username) {
+        this.username = username;
+        dirtyFields.add(FIELD_USERNAME);
+    }
 
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) {
+        this.email = email;
+        dirtyFields.add(FIELD_EMAIL);
+    }
 
     public String getPassword() { return password; }
-    public void setPassword(String password) { this.password = password; }
+    public void setPassword(String password) {
+        this.password = password;
+        dirtyFields.add(FIELD_PASSWORD);
+    }
 
     public int getExperiencePoint() { return experiencePoint; }
     public void setExperiencePoint(int experiencePoint) {
         this.experiencePoint = experiencePoint;
+        // An absolute value replaces any pending increment
+        dirtyFields.add(FIELD_EXPERIENCE_POINT);
+        experienceDelta = 0;
         updateLevel();
     }
 
@@ -52,17 +82,29 @@ public class User {
     public void setUserLevel(int userLevel) { this.userLevel = userLevel; }
 
     public List<String> getUnlockedSkills() { return unlockedSkills; }
-    public void setUnlockedSkills(List<String> unlockedSkills) { this.unlockedSkills = unlockedSkills; }
+    public void setUnlockedSkills(List<String> unlockedSkills) {
+        this.unlockedSkills = unlockedSkills;
+        dirtyFields.add(FIELD_UNLOCKED_SKILLS);
+        addedSkills.clear();
+    }
 
     public List<String> getAchievements() { return achievements; }
-    public void setAchievements(List<String> achievements) { this.achievements = achievements; }
+    public void setAchievements(List<String> achievements) {
+        this.achievements = achievements;
+        dirtyFields.add(FIELD_ACHIEVEMENTS);
+        addedAchievements.clear();
+    }
 
     // Methods
     public void addExperience(int xp) {
         this.experiencePoint += xp;
+        if (!dirtyFields.contains(FIELD_EXPERIENCE_POINT)) {
+            experienceDelta += xp;
+        }
         updateLevel();
     }
 
+    // The level follows from XP, so it is never written on its own and never tracked as dirty
     private void updateLevel() {
         this.userLevel = (experiencePoint / 100) + 1;
     }
@@ -70,15 +112,43 @@ public class User {
     public void unlockSkill(String skillName) {
         if (!unlockedSkills.contains(skillName)) {
             unlockedSkills.add(skillName);
+            if (!dirtyFields.contains(FIELD_UNLOCKED_SKILLS)) {
+                addedSkills.add(skillName);
+            }
         }
     }
 
     public void addAchievement(String achievement) {
         if (!achievements.contains(achievement)) {
             achievements.add(achievement);
+            if (!dirtyFields.contains(FIELD_ACHIEVEMENTS)) {
+                addedAchievements.add(achievement);
+            }
         }
     }
 
+    // Dirty tracking - lets the persistence layer send only what changed
+
+    public boolean isDirty() {
+        return !dirtyFields.isEmpty() || experienceDelta != 0
+                || !addedSkills.isEmpty() || !addedAchievements.isEmpty();
+    }
+
+    public Set<String> getDirtyFields() { return Collections.unmodifiableSet(dirtyFields); }
+    public int getExperienceDelta() { return experienceDelta; }
+    public List<String> getAddedSkills() { return Collections.unmodifiableList(addedSkills); }
+    public List<String> getAddedAchievements() { return Collections.unmodifiableList(addedAchievements); }
+
+    /**
+     * Forget pending changes, called once the current state has been handed to the database.
+     */
+    public void markClean() {
+        dirtyFields.clear();
+        experienceDelta = 0;
+        addedSkills.clear();
+        addedAchievements.clear();
+    }
+
     // Method expected by service classes
     public void gainExperiencePoint(int xp) {
         addExperience(xp);
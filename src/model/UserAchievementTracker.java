@@ -4,7 +4,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 public class UserAchievementTracker {
-    private Map<String, Achievement> achievements = new HashMap<>();
+    private Map<String, Achievement> achievements = new LinkedHashMap<>();
     private int quizzesCompleted = 0;
     private int dailyStreak = 0;
     private LocalDate lastDailyDate = null;
@@ -15,7 +15,7 @@ public class UserAchievementTracker {
         achievements.put("Quiz Master", new Achievement("quiz-master", "📚 Quiz Master", "Complete 5 quizzes total", 0));
     }
 
-    public void recordQuizCompleted() {
+    public synchronized void recordQuizCompleted() {
         quizzesCompleted++;
 
         if (quizzesCompleted == 1) {
@@ -26,7 +26,7 @@ public class UserAchievementTracker {
         }
     }
 
-    public void recordDailyChallengeCompleted() {
+    public synchronized void recordDailyChallengeCompleted() {
         LocalDate today = LocalDate.now();
 
         if (lastDailyDate != null && lastDailyDate.plusDays(1).equals(today)) {
@@ -50,7 +50,19 @@ public class UserAchievementTracker {
         }
     }
 
-    public void showAchievements() {
+    public synchronized List<Achievement> getAchievements() {
+        return new ArrayList<>(achievements.values());
+    }
+
+    public synchronized int getQuizzesCompleted() {
+        return quizzesCompleted;
+    }
+
+    public synchronized int getDailyStreak() {
+        return dailyStreak;
+    }
+
+    public synchronized void showAchievements() {
         System.out.println("\n🏆 Your Achievements:");
         for (Achievement a : achievements.values()) {
             System.out.println((a.isUnlocked() ? "✅" : "❌") + " " + a.getName() + ": " + a.getDescription());
@@ -0,0 +1,43 @@
+package server;
+
+import model.Achievement;
+import service.AchievementService;
+import service.AuthService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/achievements: the signed-in user's achievements and progress towards them.
+ */
+class AchievementHandler extends ApiHandler {
+    AchievementHandler(AuthService authService) {
+        super("/api/achievements", authService);
+    }
+
+    @Override
+    protected Object handle(Request request) throws Exception {
+        if (!request.is("GET")) {
+            throw notFound();
+        }
+        AchievementService achievementService = new AchievementService(request.requireUser());
+
+        List<Map<String, Object>> achievements = new ArrayList<>();
+        for (Achievement achievement : achievementService.getAchievements()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("achievementId", achievement.getAchievementId());
+            json.put("name", achievement.getName());
+            json.put("description", achievement.getDescription());
+            json.put("unlocked", achievement.isUnlocked());
+            achievements.add(json);
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("quizzesCompleted", achievementService.getQuizzesCompleted());
+        json.put("dailyStreak", achievementService.getDailyStreak());
+        json.put("achievements", achievements);
+        return json;
+    }
+}
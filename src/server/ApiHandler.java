@@ -0,0 +1,260 @@
+package server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import exception.ApiException;
+import exception.AuthenticationException;
+import exception.RateLimitException;
+import exception.SkillNotFoundException;
+import exception.ValidationException;
+import model.User;
+import service.AsyncLogger;
+import service.AuthService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Base for the API's handlers. Parses the request, lets the subclass handle it, and sends the result
+ * as JSON; exceptions are mapped to status codes with an {"error": message} body.
+ */
+abstract class ApiHandler implements HttpHandler {
+    private static final AsyncLogger log = AsyncLogger.getLogger(ApiHandler.class);
+
+    static final ObjectMapper mapper = new ObjectMapper();
+    private static final int MAX_BODY_BYTES = Integer.getInteger("codevia.server.maxBodyBytes", 64 * 1024);
+
+    private final String basePath;
+    protected final AuthService authService;
+
+    ApiHandler(String basePath, AuthService authService) {
+        this.basePath = basePath;
+        this.authService = authService;
+    }
+
+    String getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * Handle one request. The result is sent as JSON, or as an empty 204 response if it is null.
+     */
+    protected abstract Object handle(Request request) throws Exception;
+
+    @Override
+    public final void handle(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        int status;
+        Object body;
+        try {
+            Request request = new Request(exchange, authService, segments(exchange.getRequestURI().getRawPath()));
+            body = handle(request);
+            status = body == null ? 204 : request.status;
+        } catch (Exception e) {
+            Throwable error = unwrap(e);
+            status = statusOf(error);
+            if (status == 500) {
+                log.error("Request failed", error, "method", exchange.getRequestMethod(),
+                        "path", exchange.getRequestURI().getPath());
+                body = errorBody("Internal server error");
+            } else {
+                body = errorBody(error instanceof JsonProcessingException ? "Malformed JSON body" : error.getMessage());
+            }
+            if (error instanceof RateLimitException) {
+                exchange.getResponseHeaders().set("Retry-After",
+                        String.valueOf(((RateLimitException) error).getRetryAfterSeconds()));
+            }
+        }
+
+        try {
+            send(exchange, status, body);
+        } finally {
+            exchange.close();
+        }
+        log.debug("HTTP request", "method", exchange.getRequestMethod(), "path", exchange.getRequestURI().getPath(),
+                "status", status, "durationMs", AsyncLogger.elapsedMillis(startNanos));
+    }
+
+    private static int statusOf(Throwable error) {
+        if (error instanceof ApiException) {
+            return ((ApiException) error).getStatus();
+        }
+        if (error instanceof RateLimitException) {
+            return 429;
+        }
+        if (error instanceof AuthenticationException) {
+            return 401;
+        }
+        if (error instanceof ValidationException || error instanceof JsonProcessingException) {
+            return 400;
+        }
+        if (error instanceof SkillNotFoundException) {
+            return 404;
+        }
+        return 500;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private List<String> segments(String rawPath) {
+        String rest = rawPath.length() > basePath.length() ? rawPath.substring(basePath.length()) : "";
+        List<String> segments = new ArrayList<>();
+        for (String segment : rest.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    static Map<String, Object> errorBody(String message) {
+        return Collections.singletonMap("error", message);
+    }
+
+    static ApiException notFound() {
+        return new ApiException(404, "Not found");
+    }
+
+    static Map<String, Object> userJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("userId", user.getUserId());
+        json.put("username", user.getUsername());
+        json.put("email", user.getEmail());
+        json.put("experiencePoint", user.getExperiencePoint());
+        json.put("userLevel", user.getUserLevel());
+        json.put("unlockedSkills", new ArrayList<>(user.getUnlockedSkills()));
+        return json;
+    }
+
+    /**
+     * One request, with its path split into segments after the handler's base path.
+     */
+    static final class Request {
+        private final HttpExchange exchange;
+        private final AuthService authService;
+        private final List<String> path;
+        private Map<String, Object> body;
+        private User user;
+        int status = 200;
+
+        Request(HttpExchange exchange, AuthService authService, List<String> path) {
+            this.exchange = exchange;
+            this.authService = authService;
+            this.path = path;
+        }
+
+        /**
+         * True if the method and path match; "*" matches any single segment.
+         */
+        boolean is(String method, String... segments) {
+            if (!method.equals(exchange.getRequestMethod()) || segments.length != path.size()) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (!segments[i].equals("*") && !segments[i].equals(path.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String segment(int index) {
+            return path.get(index);
+        }
+
+        void setStatus(int status) {
+            this.status = status;
+        }
+
+        /**
+         * Where the request came from, for rate limiting.
+         */
+        String getSource() {
+            return exchange.getRemoteAddress().getAddress().getHostAddress();
+        }
+
+        String getBearerToken() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                return null;
+            }
+            return header.substring(7).trim();
+        }
+
+        /**
+         * The signed-in user, from the request's bearer token.
+         */
+        User requireUser() throws AuthenticationException {
+            if (user == null) {
+                String token = getBearerToken();
+                user = token == null ? null : authService.findSessionUser(token);
+                if (user == null) {
+                    throw new AuthenticationException("Sign in required");
+                }
+            }
+            return user;
+        }
+
+        Map<String, Object> body() throws IOException, ValidationException {
+            if (body == null) {
+                byte[] bytes;
+                try (InputStream in = exchange.getRequestBody()) {
+                    bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                }
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new ValidationException("Request body too large");
+                }
+                body = bytes.length == 0 ? Collections.emptyMap()
+                        : mapper.readValue(bytes, new TypeReference<Map<String, Object>>() {});
+            }
+            return body;
+        }
+
+        String requireString(String field) throws IOException, ValidationException {
+            Object value = body().get(field);
+            if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+                throw new ValidationException("Missing field: " + field);
+            }
+            return (String) value;
+        }
+
+        int requireInt(String field) throws IOException, ValidationException {
+            Object value = body().get(field);
+            if (!(value instanceof Integer)) {
+                throw new ValidationException("Missing or invalid field: " + field);
+            }
+            return (Integer) value;
+        }
+    }
+}
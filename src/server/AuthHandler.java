@@ -0,0 +1,64 @@
+package server;
+
+import exception.AuthenticationException;
+import exception.ValidationException;
+import model.User;
+import service.AuthService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * /api/auth: register, log in and out, and the signed-in user's profile.
+ */
+class AuthHandler extends ApiHandler {
+    AuthHandler(AuthService authService) {
+        super("/api/auth", authService);
+    }
+
+    @Override
+    protected Object handle(Request request) throws Exception {
+        if (request.is("POST", "register")) {
+            User user;
+            try {
+                user = authService.registerAsync(request.requireString("username"), request.requireString("email"),
+                        request.requireString("password")).join();
+            } catch (CompletionException e) {
+                // A rejected registration (e.g. email taken) is a bad request, not a failed sign-in
+                if (e.getCause() instanceof AuthenticationException) {
+                    throw new ValidationException(e.getCause().getMessage());
+                }
+                throw e;
+            }
+            request.setStatus(201);
+            return session(user);
+        }
+        if (request.is("POST", "login")) {
+            User user = authService.verifyLogin(request.requireString("email"), request.requireString("password"),
+                    request.getSource());
+            return session(user);
+        }
+        if (request.is("POST", "logout")) {
+            request.requireUser();
+            authService.revokeSessionToken(request.getBearerToken());
+            return null;
+        }
+        if (request.is("GET", "me")) {
+            User user = request.requireUser();
+            synchronized (user) {
+                return userJson(user);
+            }
+        }
+        throw notFound();
+    }
+
+    private Map<String, Object> session(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("token", authService.issueSessionToken(user));
+        synchronized (user) {
+            json.put("user", userJson(user));
+        }
+        return json;
+    }
+}
@@ -0,0 +1,99 @@
+package server;
+
+import com.sun.net.httpserver.HttpServer;
+import service.AsyncLogger;
+import service.AuthService;
+import service.DailyChallengeService;
+import service.QuizService;
+import service.SkillService;
+import service.UserService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the service layer as an HTTP/JSON API, for many users at once.
+ *
+ * Every request runs on its own virtual thread, so a request blocked on Firestore or password hashing
+ * parks only itself instead of holding one of a fixed pool of platform threads. Callers sign in through
+ * /api/auth and send the returned token as "Authorization: Bearer <token>".
+ *
+ * Configured with -Dcodevia.server.* properties (see README).
+ */
+public class CodeviaServer {
+    private static final AsyncLogger log = AsyncLogger.getLogger(CodeviaServer.class);
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper;
+
+    public CodeviaServer(InetSocketAddress address, UserService userService) throws IOException {
+        AuthService authService = new AuthService(userService);
+        authService.setUseFirebaseAuth(Boolean.parseBoolean(System.getProperty("codevia.server.firebaseAuth", "true")));
+        SkillService skillService = new SkillService();
+        QuizService quizService = new QuizService();
+        quizService.setUserService(userService);
+        DailyChallengeService challengeService = new DailyChallengeService();
+        challengeService.setUserService(userService);
+
+        QuizSessionStore quizSessions = new QuizSessionStore(
+                Long.getLong("codevia.server.quizSessionTtlMillis", 30 * 60 * 1000L),
+                Integer.getInteger("codevia.server.maxQuizSessions", 100_000),
+                Integer.getInteger("codevia.server.maxQuizSessionsPerUser", 5));
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quiz-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(quizSessions::purgeExpired, 1, 1, TimeUnit.MINUTES);
+
+        httpServer = HttpServer.create(address, Integer.getInteger("codevia.server.backlog", 1024));
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+        httpServer.setExecutor(executor);
+
+        List<ApiHandler> handlers = List.of(
+                new AuthHandler(authService),
+                new SkillHandler(authService, skillService),
+                new QuizHandler(authService, quizService, quizSessions),
+                new QuizHandler.SessionHandler(authService, quizService, challengeService, quizSessions),
+                new DailyChallengeHandler(authService, challengeService),
+                new AchievementHandler(authService));
+        for (ApiHandler handler : handlers) {
+            httpServer.createContext(handler.getBasePath(), handler);
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("HTTP server started", "address", httpServer.getAddress());
+    }
+
+    /**
+     * Stop accepting requests, and wait up to {@code delaySeconds} for those in flight.
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        executor.shutdown();
+        sweeper.shutdownNow();
+        log.info("HTTP server stopped");
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = System.getProperty("codevia.server.host", "0.0.0.0");
+        int port = Integer.getInteger("codevia.server.port", 8080);
+
+        CodeviaServer server = new CodeviaServer(new InetSocketAddress(host, port), new UserService());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2), "http-server-shutdown"));
+        server.start();
+        System.out.println("🚀 Codevia server listening on http://" + host + ":" + server.getPort() + "/api");
+    }
+}
@@ -0,0 +1,40 @@
+package server;
+
+import model.DailyChallenge;
+import model.User;
+import service.AuthService;
+import service.DailyChallengeService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /api/daily-challenge: the signed-in user's progress on today's challenge.
+ */
+class DailyChallengeHandler extends ApiHandler {
+    private final DailyChallengeService challengeService;
+
+    DailyChallengeHandler(AuthService authService, DailyChallengeService challengeService) {
+        super("/api/daily-challenge", authService);
+        this.challengeService = challengeService;
+    }
+
+    @Override
+    protected Object handle(Request request) throws Exception {
+        if (!request.is("GET")) {
+            throw notFound();
+        }
+        User user = request.requireUser();
+        DailyChallenge challenge = challengeService.getChallenge(user);
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        synchronized (challenge) {
+            json.put("date", challenge.getDate().toString());
+            json.put("questionsAnswered", challenge.getQuestionsAnswered());
+            json.put("questionsRequired", DailyChallenge.QUESTIONS_REQUIRED);
+            json.put("completed", challenge.isCompleted());
+        }
+        json.put("rewardXp", DailyChallengeService.REWARD_XP);
+        return json;
+    }
+}
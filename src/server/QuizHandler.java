@@ -0,0 +1,209 @@
+package server;
+
+import exception.ApiException;
+import exception.ValidationException;
+import model.Question;
+import model.Quiz;
+import model.QuizSummary;
+import model.User;
+import service.AchievementService;
+import service.AuthService;
+import service.DailyChallengeService;
+import service.QuizService;
+import service.QuizSession;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/quizzes: the quiz catalog and starting a quiz, and /api/quiz-sessions: answering and finishing it.
+ * Questions are sent without their correct answers; a session only reveals one after it is answered.
+ */
+class QuizHandler extends ApiHandler {
+    private final QuizService quizService;
+    private final QuizSessionStore sessions;
+
+    QuizHandler(AuthService authService, QuizService quizService, QuizSessionStore sessions) {
+        super("/api/quizzes", authService);
+        this.quizService = quizService;
+        this.sessions = sessions;
+    }
+
+    @Override
+    protected Object handle(Request request) throws Exception {
+        if (request.is("GET")) {
+            request.requireUser();
+            List<Map<String, Object>> quizzes = new ArrayList<>();
+            for (QuizSummary summary : quizService.getQuizzes()) {
+                quizzes.add(summaryJson(summary));
+            }
+            return quizzes;
+        }
+        if (request.is("GET", "*")) {
+            request.requireUser();
+            Quiz quiz = requireQuiz(request.segment(0));
+            Map<String, Object> json = quizJson(quiz);
+            List<Map<String, Object>> questions = new ArrayList<>(quiz.getQuestions().size());
+            for (Question question : quiz.getQuestions()) {
+                questions.add(questionJson(question));
+            }
+            json.put("questions", questions);
+            return json;
+        }
+        if (request.is("POST", "*", "sessions")) {
+            User user = request.requireUser();
+            QuizSession session = quizService.startSession(requireQuiz(request.segment(0)));
+            String sessionId = sessions.add(user.getUserId(), session);
+            request.setStatus(201);
+            return sessionJson(sessionId, session);
+        }
+        throw notFound();
+    }
+
+    private Quiz requireQuiz(String quizId) throws ApiException {
+        Quiz quiz = quizService.getQuiz(quizId);
+        if (quiz == null) {
+            throw new ApiException(404, "Quiz not found: " + quizId);
+        }
+        return quiz;
+    }
+
+    private static Map<String, Object> summaryJson(QuizSummary summary) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("quizId", summary.getQuizId());
+        json.put("skillId", summary.getSkillId());
+        json.put("skillName", summary.getSkillName());
+        json.put("passingScore", summary.getPassingScore());
+        json.put("questionCount", summary.getQuestionCount());
+        return json;
+    }
+
+    private static Map<String, Object> quizJson(Quiz quiz) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("quizId", quiz.getQuizId());
+        json.put("skillId", quiz.getSkillId());
+        json.put("skillName", quiz.getSkillName());
+        json.put("passingScore", quiz.getPassingScore());
+        json.put("questionCount", quiz.getQuestions().size());
+        return json;
+    }
+
+    private static Map<String, Object> questionJson(Question question) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("questionText", question.getQuestionText());
+        json.put("options", question.getOptions());
+        return json;
+    }
+
+    /**
+     * Call with the session's lock held.
+     */
+    static Map<String, Object> sessionJson(String sessionId, QuizSession session) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("sessionId", sessionId);
+        json.put("quizId", session.getQuiz().getQuizId());
+        json.put("questionIndex", session.getQuestionIndex());
+        json.put("questionCount", session.getQuestionCount());
+        json.put("score", session.getScore());
+        json.put("finished", session.isFinished());
+        Question question = session.getCurrentQuestion();
+        json.put("question", question == null ? null : questionJson(question));
+        return json;
+    }
+
+    /**
+     * /api/quiz-sessions/{sessionId}: a quiz in progress, visible only to the user who started it.
+     */
+    static class SessionHandler extends ApiHandler {
+        private final QuizService quizService;
+        private final DailyChallengeService challengeService;
+        private final QuizSessionStore sessions;
+
+        SessionHandler(AuthService authService, QuizService quizService, DailyChallengeService challengeService,
+                       QuizSessionStore sessions) {
+            super("/api/quiz-sessions", authService);
+            this.quizService = quizService;
+            this.challengeService = challengeService;
+            this.sessions = sessions;
+        }
+
+        @Override
+        protected Object handle(Request request) throws Exception {
+            if (request.is("GET", "*")) {
+                String sessionId = request.segment(0);
+                QuizSession session = requireSession(sessionId, request.requireUser());
+                synchronized (session) {
+                    return sessionJson(sessionId, session);
+                }
+            }
+            if (request.is("POST", "*", "answers")) {
+                return answer(request);
+            }
+            if (request.is("POST", "*", "finish")) {
+                return finish(request);
+            }
+            throw notFound();
+        }
+
+        private Object answer(Request request) throws Exception {
+            String sessionId = request.segment(0);
+            User user = request.requireUser();
+            QuizSession session = requireSession(sessionId, user);
+            int option = request.requireInt("option");
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            synchronized (session) {
+                Question question = session.getCurrentQuestion();
+                if (question == null) {
+                    throw new ApiException(409, "Quiz session has no question left");
+                }
+                if (option < 0 || option >= question.getOptions().size()) {
+                    throw new ValidationException("Option must be between 0 and " + (question.getOptions().size() - 1));
+                }
+                json.put("correct", session.submit(option));
+                json.put("correctAnswer", question.getCorrectAnswer());
+                json.put("session", sessionJson(sessionId, session));
+            }
+
+            json.put("dailyChallengeCompleted",
+                    challengeService.recordQuestionAnswered(user, new AchievementService(user)));
+            return json;
+        }
+
+        private Object finish(Request request) throws Exception {
+            String sessionId = request.segment(0);
+            User user = request.requireUser();
+            QuizSession session = requireSession(sessionId, user);
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            synchronized (session) {
+                boolean firstFinish = !session.isFinished();
+                int earnedXp = quizService.completeSession(session, user);
+                if (firstFinish) {
+                    new AchievementService(user).quizCompleted();
+                }
+                json.put("quizId", session.getQuiz().getQuizId());
+                json.put("score", session.getScore());
+                json.put("questionCount", session.getQuestionCount());
+                json.put("percentage", session.getPercentage());
+                json.put("passed", session.isPassed());
+                json.put("earnedXp", earnedXp);
+            }
+            sessions.remove(sessionId);
+            synchronized (user) {
+                json.put("user", userJson(user));
+            }
+            return json;
+        }
+
+        private QuizSession requireSession(String sessionId, User user) throws ApiException {
+            QuizSession session = sessions.get(sessionId, user.getUserId());
+            if (session == null) {
+                throw new ApiException(404, "Quiz session not found");
+            }
+            return session;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package server;
+
+import exception.ApiException;
+import service.QuizSession;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quiz sessions in progress on the server, each owned by one user. Sessions left idle for longer
+ * than the TTL are dropped, the number of live sessions is capped, and a user starting more than
+ * their own cap replaces their oldest session.
+ *
+ * Lookups don't lock; adding and removing sessions lock this store, and never do any I/O while holding it.
+ */
+class QuizSessionStore {
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Deque<String>> sessionIdsByUser = new HashMap<>(); // Oldest first (guarded by this)
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final int maxSessions;
+    private final int maxSessionsPerUser;
+
+    QuizSessionStore(long ttlMillis, int maxSessions, int maxSessionsPerUser) {
+        this.ttlMillis = ttlMillis;
+        this.maxSessions = maxSessions;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
+    /**
+     * Store a new session for the user and return its id.
+     */
+    String add(String userId, QuizSession session) throws ApiException {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        synchronized (this) {
+            Deque<String> owned = sessionIdsByUser.computeIfAbsent(userId, id -> new ArrayDeque<>());
+            if (owned.size() >= maxSessionsPerUser) {
+                sessions.remove(owned.pollFirst());
+            } else if (sessions.size() >= maxSessions) {
+                purgeExpired();
+                if (sessions.size() >= maxSessions) {
+                    if (owned.isEmpty()) {
+                        sessionIdsByUser.remove(userId);
+                    }
+                    throw new ApiException(503, "Too many quiz sessions in progress, please try again later");
+                }
+            }
+            sessions.put(sessionId, new Entry(userId, session));
+            owned.addLast(sessionId);
+        }
+        return sessionId;
+    }
+
+    /**
+     * The user's session, or null if it doesn't exist, has expired or belongs to someone else.
+     */
+    QuizSession get(String sessionId, String userId) {
+        Entry entry = sessions.get(sessionId);
+        if (entry == null || !entry.userId.equals(userId)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - entry.lastAccessMillis > ttlMillis) {
+            remove(sessionId);
+            return null;
+        }
+        entry.lastAccessMillis = now;
+        return entry.session;
+    }
+
+    synchronized void remove(String sessionId) {
+        Entry entry = sessions.remove(sessionId);
+        if (entry != null) {
+            forget(entry.userId, sessionId);
+        }
+    }
+
+    synchronized void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        Iterator<Map.Entry<String, Entry>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> session = it.next();
+            if (session.getValue().lastAccessMillis < cutoff) {
+                it.remove();
+                forget(session.getValue().userId, session.getKey());
+            }
+        }
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private void forget(String userId, String sessionId) {
+        Deque<String> owned = sessionIdsByUser.get(userId);
+        if (owned != null) {
+            owned.remove(sessionId);
+            if (owned.isEmpty()) {
+                sessionIdsByUser.remove(userId);
+            }
+        }
+    }
+
+    private static class Entry {
+        final String userId;
+        final QuizSession session;
+        volatile long lastAccessMillis = System.currentTimeMillis();
+
+        Entry(String userId, QuizSession session) {
+            this.userId = userId;
+            this.session = session;
+        }
+    }
+}
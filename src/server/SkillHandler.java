@@ -0,0 +1,58 @@
+package server;
+
+import model.Skill;
+import model.User;
+import service.AuthService;
+import service.SkillService;
+import service.UserService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/skills: every skill with the signed-in user's unlock state, and unlocking one.
+ */
+class SkillHandler extends ApiHandler {
+    private final SkillService skillService;
+    private final UserService userService;
+
+    SkillHandler(AuthService authService, SkillService skillService) {
+        super("/api/skills", authService);
+        this.skillService = skillService;
+        this.userService = authService.getUserService();
+    }
+
+    @Override
+    protected Object handle(Request request) throws Exception {
+        if (request.is("GET")) {
+            User user = request.requireUser();
+            List<Map<String, Object>> skills = new ArrayList<>();
+            for (Skill skill : skillService.getSkills()) {
+                skills.add(skillJson(user, skill));
+            }
+            return skills;
+        }
+        if (request.is("POST", "*", "unlock")) {
+            User user = request.requireUser();
+            Skill skill = skillService.findSkillById(request.segment(0));
+            synchronized (user) {
+                skillService.unlockSkill(user, skill);
+                userService.updateUser(user);
+            }
+            return skillJson(user, skill);
+        }
+        throw notFound();
+    }
+
+    private Map<String, Object> skillJson(User user, Skill skill) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("skillId", skill.getSkillId());
+        json.put("skillName", skill.getSkillName());
+        json.put("description", skill.getDescription());
+        json.put("requiredXP", skill.getRequiredXP());
+        json.put("unlocked", skillService.isUnlockedFor(user, skill));
+        return json;
+    }
+}
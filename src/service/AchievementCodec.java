@@ -0,0 +1,60 @@
+package service;
+
+import interface_.Codec;
+import model.Achievement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Achievement documents in the "achievements" collection.
+ */
+public class AchievementCodec implements Codec<Achievement> {
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_DESCRIPTION = "description";
+    public static final String FIELD_REQUIRED_XP = "requiredXP";
+    public static final String FIELD_UNLOCKED = "unlocked";
+
+    @Override
+    public Class<Achievement> getType() {
+        return Achievement.class;
+    }
+
+    @Override
+    public Map<String, Object> encode(Achievement achievement) {
+        Map<String, Object> data = new HashMap<>(8);
+        data.put(FIELD_NAME, achievement.getName());
+        data.put(FIELD_DESCRIPTION, achievement.getDescription());
+        data.put(FIELD_REQUIRED_XP, achievement.getRequiredXP());
+        data.put(FIELD_UNLOCKED, achievement.isUnlocked());
+        return data;
+    }
+
+    @Override
+    public Achievement decode(String documentId, Map<String, Object> data) {
+        String name = DocumentFields.getString(data, FIELD_NAME);
+        if (documentId == null || name == null) {
+            return null;
+        }
+        Achievement achievement = new Achievement(documentId, name, DocumentFields.getString(data, FIELD_DESCRIPTION),
+                DocumentFields.getInt(data, FIELD_REQUIRED_XP, 0));
+        achievement.setUnlocked(DocumentFields.getBoolean(data, FIELD_UNLOCKED, false));
+        return achievement;
+    }
+
+    @Override
+    public void write(Achievement achievement, BinaryWriter out) {
+        out.writeString(achievement.getAchievementId());
+        out.writeString(achievement.getName());
+        out.writeString(achievement.getDescription());
+        out.writeInt(achievement.getRequiredXP());
+        out.writeBoolean(achievement.isUnlocked());
+    }
+
+    @Override
+    public Achievement read(BinaryReader in) {
+        Achievement achievement = new Achievement(in.readString(), in.readString(), in.readString(), in.readInt());
+        achievement.setUnlocked(in.readBoolean());
+        return achievement;
+    }
+}
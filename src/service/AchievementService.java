@@ -1,14 +1,23 @@
 package service;
 
+import model.Achievement;
 import model.User;
 import model.UserAchievementTracker;
 
+import java.util.List;
+
 public class AchievementService {
     private UserAchievementTracker tracker;
 
     public AchievementService(User user) {
-        this.tracker = new UserAchievementTracker();
-        user.setAchievementTracker(tracker);
+        // Reuse the user's tracker, so progress survives a new service for the same user
+        synchronized (user) {
+            this.tracker = user.getAchievementTracker();
+            if (tracker == null) {
+                tracker = new UserAchievementTracker();
+                user.setAchievementTracker(tracker);
+            }
+        }
     }
 
     public void quizCompleted() {
@@ -19,6 +28,18 @@ public class AchievementService {
         tracker.recordDailyChallengeCompleted();
     }
 
+    public List<Achievement> getAchievements() {
+        return tracker.getAchievements();
+    }
+
+    public int getQuizzesCompleted() {
+        return tracker.getQuizzesCompleted();
+    }
+
+    public int getDailyStreak() {
+        return tracker.getDailyStreak();
+    }
+
     public void showAchievements() {
         tracker.showAchievements();
     }
@@ -0,0 +1,243 @@
+package service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SLF4J logger that hands events to a background thread instead of writing them on the caller's.
+ *
+ * Fields are passed as key/value pairs and logged as SLF4J key-values, e.g.
+ * {@code log.debug("Document saved", "collection", "users", "documentId", id, "latencyMs", ms)}.
+ * The level check happens up front, and debug and info take up to four fields without a varargs array,
+ * so disabled levels cost (almost) nothing. When the queue is full, debug and info events are dropped
+ * (and counted) while warnings and errors are written directly. At exit the writer thread drains the queue
+ * before it stops; events logged after that are written on the caller's thread.
+ */
+public final class AsyncLogger {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+    private static final BlockingQueue<Runnable> QUEUE =
+            new ArrayBlockingQueue<>(Integer.getInteger("codevia.log.queueSize", DEFAULT_QUEUE_CAPACITY));
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    private static final Thread WRITER = new Thread(AsyncLogger::drain, "async-log-writer");
+    private static volatile boolean closing;
+
+    static {
+        WRITER.setDaemon(true);
+        WRITER.start();
+        // Don't lose the tail of the log on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLogger::close, "async-log-flush"));
+    }
+
+    private final Logger logger;
+
+    private AsyncLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static AsyncLogger getLogger(Class<?> type) {
+        return new AsyncLogger(LoggerFactory.getLogger(type));
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+
+    public void debug(String message) {
+        if (logger.isDebugEnabled()) {
+            enqueue(Level.DEBUG, message, null, NO_FIELDS);
+        }
+    }
+
+    public void debug(String message, String key1, Object value1) {
+        if (logger.isDebugEnabled()) {
+            enqueue(Level.DEBUG, message, null, new Object[] { key1, value1 });
+        }
+    }
+
+    public void debug(String message, String key1, Object value1, String key2, Object value2) {
+        if (logger.isDebugEnabled()) {
+            enqueue(Level.DEBUG, message, null, new Object[] { key1, value1, key2, value2 });
+        }
+    }
+
+    public void debug(String message, String key1, Object value1, String key2, Object value2,
+                      String key3, Object value3) {
+        if (logger.isDebugEnabled()) {
+            enqueue(Level.DEBUG, message, null, new Object[] { key1, value1, key2, value2, key3, value3 });
+        }
+    }
+
+    public void debug(String message, String key1, Object value1, String key2, Object value2,
+                      String key3, Object value3, String key4, Object value4) {
+        if (logger.isDebugEnabled()) {
+            enqueue(Level.DEBUG, message, null, new Object[] { key1, value1, key2, value2, key3, value3, key4, value4 });
+        }
+    }
+
+    public void debug(String message, Object... fields) {
+        log(Level.DEBUG, message, null, fields);
+    }
+
+    public void info(String message) {
+        if (logger.isInfoEnabled()) {
+            enqueue(Level.INFO, message, null, NO_FIELDS);
+        }
+    }
+
+    public void info(String message, String key1, Object value1) {
+        if (logger.isInfoEnabled()) {
+            enqueue(Level.INFO, message, null, new Object[] { key1, value1 });
+        }
+    }
+
+    public void info(String message, String key1, Object value1, String key2, Object value2) {
+        if (logger.isInfoEnabled()) {
+            enqueue(Level.INFO, message, null, new Object[] { key1, value1, key2, value2 });
+        }
+    }
+
+    public void info(String message, String key1, Object value1, String key2, Object value2,
+                     String key3, Object value3) {
+        if (logger.isInfoEnabled()) {
+            enqueue(Level.INFO, message, null, new Object[] { key1, value1, key2, value2, key3, value3 });
+        }
+    }
+
+    public void info(String message, String key1, Object value1, String key2, Object value2,
+                     String key3, Object value3, String key4, Object value4) {
+        if (logger.isInfoEnabled()) {
+            enqueue(Level.INFO, message, null, new Object[] { key1, value1, key2, value2, key3, value3, key4, value4 });
+        }
+    }
+
+    public void info(String message, Object... fields) {
+        log(Level.INFO, message, null, fields);
+    }
+
+    public void warn(String message, Object... fields) {
+        log(Level.WARN, message, null, fields);
+    }
+
+    public void warn(String message, Throwable cause, Object... fields) {
+        log(Level.WARN, message, cause, fields);
+    }
+
+    public void error(String message, Object... fields) {
+        log(Level.ERROR, message, null, fields);
+    }
+
+    public void error(String message, Throwable cause, Object... fields) {
+        log(Level.ERROR, message, cause, fields);
+    }
+
+    /**
+     * Milliseconds since a System.nanoTime() reading, for latency fields.
+     */
+    public static double elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+
+    /**
+     * Number of debug/info events dropped because the writer could not keep up.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    /**
+     * Write out everything queued so far on the calling thread.
+     */
+    public static void flush() {
+        Runnable event;
+        while ((event = QUEUE.poll()) != null) {
+            event.run();
+        }
+    }
+
+    /**
+     * Let the writer drain the queue and stop, waiting for it a bounded time.
+     */
+    private static void close() {
+        closing = true;
+        WRITER.interrupt();
+        try {
+            WRITER.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void log(Level level, String message, Throwable cause, Object[] fields) {
+        if (logger.isEnabledForLevel(level)) {
+            enqueue(level, message, cause, fields);
+        }
+    }
+
+    private void enqueue(Level level, String message, Throwable cause, Object[] fields) {
+        Runnable event = () -> write(level, message, cause, fields);
+        if (QUEUE.offer(event)) {
+            if (closing) {
+                flush(); // The writer may already have stopped
+            }
+            return;
+        }
+        if (level == Level.WARN || level == Level.ERROR) {
+            event.run();
+        } else {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    private void write(Level level, String message, Throwable cause, Object[] fields) {
+        LoggingEventBuilder event = logger.atLevel(level);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            event = event.addKeyValue(String.valueOf(fields[i]), fields[i + 1]);
+        }
+        if (cause != null) {
+            event = event.setCause(cause);
+        }
+        event.log(message);
+    }
+
+    private static void drain() {
+        long reported = 0;
+        while (!closing) {
+            try {
+                Runnable event = QUEUE.poll(1, TimeUnit.SECONDS);
+                if (event != null) {
+                    event.run();
+                }
+                long dropped = DROPPED.get();
+                if (dropped > reported) {
+                    LoggerFactory.getLogger(AsyncLogger.class).warn("Log queue full, dropped " + (dropped - reported) + " events");
+                    reported = dropped;
+                }
+            } catch (InterruptedException e) {
+                // Woken up by close(), the loop ends below
+            } catch (RuntimeException e) {
+                // A broken event must not stop the writer
+                System.err.println("Failed to write log event: " + e.getMessage());
+            }
+        }
+
+        Runnable event;
+        while ((event = QUEUE.poll()) != null) {
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                System.err.println("Failed to write log event: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -5,11 +5,21 @@ import exception.AuthenticationException;
 import exception.ValidationException;
 
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class AuthService extends BaseService {
+    // Runs logins for callers that must not block, like the GUIs' event threads
+    private static final Executor loginExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     private UserService userService;
     private FirebaseAuthService firebaseAuthService;
     private boolean useFirebaseAuth;
+    private final SessionManager sessionManager = SessionManager.getInstance();
+    private final LoginRateLimiter loginLimiter = new LoginRateLimiter();
+    private volatile String sessionToken; // Issued at the last successful login or registration
 
     public AuthService(UserService userService) {
         super();
@@ -52,6 +62,7 @@ public class AuthService extends BaseService {
                 System.out.println("✅ Local registration successful! Welcome, " + username + "!");
             }
             
+            startSession(user);
             return user;
 
         } catch (AuthenticationException | ValidationException e) {
@@ -71,15 +82,9 @@ public class AuthService extends BaseService {
             System.out.print("Enter password: ");
             String password = scanner.nextLine().trim();
 
-            User user;
-            if (useFirebaseAuth) {
-                user = firebaseAuthService.loginUser(email, password);
-                System.out.println("✅ Firebase login successful! Welcome back, " + user.getUsername() + "!");
-            } else {
-                user = authenticate(email, password);
-                System.out.println("✅ Local login successful! Welcome back, " + user.getUsername() + "!");
-            }
-            
+            User user = login(email, password, "console");
+            System.out.println("✅ " + (useFirebaseAuth ? "Firebase" : "Local") + " login successful! Welcome back, "
+                    + user.getUsername() + "!");
             return user;
 
         } catch (AuthenticationException e) {
@@ -91,20 +96,124 @@ public class AuthService extends BaseService {
         }
     }
 
+    /**
+     * Log in with email and password. {@code source} identifies where the attempt comes from
+     * (e.g. a client address) for rate limiting.
+     */
+    public User login(String email, String password, String source) throws AuthenticationException {
+        User user = verifyLogin(email, password, source);
+        startSession(user);
+        return user;
+    }
+
+    /**
+     * Check an email and password like {@link #login(String, String, String)}, without starting this
+     * service's own session. For callers serving many users, which keep a token per user instead.
+     */
+    public User verifyLogin(String email, String password, String source) throws AuthenticationException {
+        try (LoginRateLimiter.Permit permit = loginLimiter.acquire(email, source)) {
+            User user;
+            try {
+                user = useFirebaseAuth ? firebaseAuthService.loginUser(email, password) : authenticate(email, password);
+            } catch (AuthenticationException e) {
+                permit.failed();
+                throw e;
+            }
+            permit.succeeded();
+            return user;
+        }
+    }
+
+    /**
+     * {@link #verifyLogin(String, String, String)} on a virtual thread, for callers that must not block.
+     * Fails with a CompletionException wrapping the AuthenticationException.
+     */
+    public CompletableFuture<User> verifyLoginAsync(String email, String password, String source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return verifyLogin(email, password, source);
+            } catch (AuthenticationException e) {
+                throw new CompletionException(e);
+            }
+        }, loginExecutor);
+    }
+
+    /**
+     * Register a new user (through Firebase Authentication if enabled) without starting this
+     * service's own session.
+     */
+    public CompletableFuture<User> registerAsync(String username, String email, String password) {
+        return useFirebaseAuth ? firebaseAuthService.registerUserAsync(username, email, password)
+                : userService.createUserAsync(username, email, password);
+    }
+
     private User authenticate(String email, String password) throws AuthenticationException {
         User user = userService.findUserByEmail(email);
 
+        // Hash even for unknown emails, so response time doesn't reveal which accounts exist
+        boolean validPassword = userService.verifyPassword(user, password);
+
         if (user == null) {
             throw new AuthenticationException("User not found");
         }
 
-        if (!user.getPassword().equals(password)) {
+        if (!validPassword) {
             throw new AuthenticationException("Invalid password");
         }
 
         return user;
     }
 
+    /**
+     * Sign in again with a session token from an earlier login, without a password or Firebase round trip.
+     * Returns null if the token is invalid or expired, or the user no longer exists.
+     */
+    public User resumeSession(String token) {
+        User user = findSessionUser(token);
+        if (user != null) {
+            sessionToken = token;
+        }
+        return user;
+    }
+
+    /**
+     * Issue a session token for the user, independent of this service's own session.
+     */
+    public String issueSessionToken(User user) {
+        return sessionManager.issue(user.getUserId());
+    }
+
+    /**
+     * The user a session token belongs to, or null if the token is invalid, expired or revoked.
+     */
+    public User findSessionUser(String token) {
+        String userId = sessionManager.validate(token);
+        return userId == null ? null : userService.findUserById(userId);
+    }
+
+    public void revokeSessionToken(String token) {
+        sessionManager.revoke(token);
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * End the current session, so its token can't be used again.
+     */
+    public void logout() {
+        String token = sessionToken;
+        if (token != null) {
+            sessionManager.revoke(token);
+            sessionToken = null;
+        }
+    }
+
+    private void startSession(User user) {
+        sessionToken = issueSessionToken(user);
+    }
+
     // Additional Firebase Authentication methods
 
     /**
@@ -118,6 +227,7 @@ public class AuthService extends BaseService {
             
             User user = firebaseAuthService.verifyIdToken(idToken);
             System.out.println("✅ Token authentication successful! Welcome, " + user.getUsername() + "!");
+            startSession(user);
             return user;
             
         } catch (AuthenticationException e) {
@@ -177,7 +287,7 @@ public class AuthService extends BaseService {
             }
             
             // Verify current password
-            if (!user.getPassword().equals(currentPassword)) {
+            if (!userService.verifyPassword(user, currentPassword)) {
                 System.out.println("❌ Current password is incorrect");
                 return false;
             }
@@ -187,8 +297,7 @@ public class AuthService extends BaseService {
             }
             
             // Update local user password
-            user.setPassword(newPassword);
-            userService.updateUser(user);
+            userService.changePassword(user, newPassword);
             
             System.out.println("✅ Password changed successfully!");
             return true;
@@ -218,7 +327,7 @@ public class AuthService extends BaseService {
             System.out.print("Enter your password to confirm: ");
             String password = scanner.nextLine().trim();
             
-            if (!user.getPassword().equals(password)) {
+            if (!userService.verifyPassword(user, password)) {
                 System.out.println("❌ Incorrect password");
                 return false;
             }
@@ -249,6 +358,9 @@ public class AuthService extends BaseService {
         System.out.println("\n=== Authentication Status ===");
         System.out.println("Firebase Authentication: " + (useFirebaseAuth ? "✅ Enabled" : "❌ Disabled"));
         System.out.println("Local Authentication: ✅ Available");
+        System.out.println("Session: " + (sessionToken != null ? "✅ Active" : "None"));
+        firebaseAuthService.displayCacheStats();
+        loginLimiter.displayStats();
         System.out.println("===========================\n");
     }
 }
@@ -1,57 +1,60 @@
 package service;
 
 import exception.DatabaseException;
+import interface_.AsyncDatabaseConnectable;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public abstract class BaseService {
-    protected FirebaseService firebaseService;
-    private boolean isConnected = false;
+    private static final AsyncLogger log = AsyncLogger.getLogger(BaseService.class);
+
+    protected final DatabaseConnectionManager connectionManager;
 
     // Constructor
     public BaseService() {
-        try {
-            this.firebaseService = FirebaseService.getInstance();
-            initializeFirebaseAsync();
-        } catch (Exception e) {
-            System.out.println("Firebase not available, running in local mode");
-            this.firebaseService = null;
-            this.isConnected = false;
-        }
+        // Every service shares the one connection, it is only established once
+        this.connectionManager = DatabaseConnectionManager.getInstance();
     }
     
-    private void initializeFirebaseAsync() {
-        if (firebaseService != null) {
-            CompletableFuture.runAsync(() -> {
-                try {
-                    this.firebaseService.connect();
-                    isConnected = true;
-                } catch (Exception e) {
-                    System.err.println("Failed to connect to database: " + e.getMessage());
-                    isConnected = false;
-                }
-            });
-        }
+    protected boolean isDatabaseConnected() {
+        return connectionManager.isConnected();
     }
-    
-    protected boolean isFirebaseConnected() {
-        return isConnected;
+
+    /**
+     * Completes with the connected database once startup has finished connecting (or fallen back
+     * to the local store), or exceptionally if no database could be opened.
+     */
+    public CompletableFuture<AsyncDatabaseConnectable> whenDatabaseReady() {
+        return connectionManager.whenReady();
+    }
+
+    protected AsyncDatabaseConnectable getDatabase() {
+        return connectionManager.getDatabase();
     }
 
     // Abstract methods - must be implemented by subclasses
     public abstract void displayInfo();
 
-    // Template method pattern
-    public final void performDatabaseOperation(String operation, String collection,
-                                               String documentId, Map<String, Object> data) {
+    // Template method pattern - runs without blocking the caller, completion is reported on the returned future
+    public final CompletableFuture<Map<String, Object>> performDatabaseOperation(String operation, String collection,
+                                                                               String documentId, Map<String, Object> data) {
         try {
             validateOperation(operation);
-            executeOperation(operation, collection, documentId, data);
-            logOperation(operation, collection, documentId);
         } catch (Exception e) {
             handleError(e);
+            return CompletableFuture.failedFuture(e);
         }
+
+        long startNanos = System.nanoTime();
+        return executeOperation(operation, collection, documentId, data)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        handleError(unwrap(error));
+                    } else {
+                        logOperation(operation, collection, documentId, AsyncLogger.elapsedMillis(startNanos));
+                    }
+                });
     }
 
     protected void validateOperation(String operation) throws Exception {
@@ -60,37 +63,43 @@ public abstract class BaseService {
         }
     }
 
-    protected void executeOperation(String operation, String collection,
-                                    String documentId, Map<String, Object> data) throws Exception {
-        if (firebaseService == null) {
-            System.out.println("Firebase not available, skipping operation: " + operation);
-            return;
-        }
-        
-        switch (operation.toLowerCase()) {
-            case "save":
-                firebaseService.save(collection, documentId, data);
-                break;
-            case "get":
-                firebaseService.get(collection, documentId);
-                break;
-            case "update":
-                firebaseService.update(collection, documentId, data);
-                break;
-            case "delete":
-                firebaseService.delete(collection, documentId);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown operation: " + operation);
-        }
+    protected CompletableFuture<Map<String, Object>> executeOperation(String operation, String collection,
+                                                                      String documentId, Map<String, Object> data) {
+        // Operations issued during startup wait for the connection instead of failing
+        return whenDatabaseReady()
+                .handle((database, error) -> database)
+                .thenCompose(database -> {
+                    if (database == null) {
+                        log.warn("Database not available, skipping operation",
+                                "operation", operation, "collection", collection, "documentId", documentId);
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    switch (operation.toLowerCase()) {
+                        case "save":
+                            return database.saveAsync(collection, documentId, data).thenApply(v -> null);
+                        case "get":
+                            return database.getAsync(collection, documentId);
+                        case "update":
+                            return database.updateAsync(collection, documentId, data).thenApply(v -> null);
+                        case "delete":
+                            return database.deleteAsync(collection, documentId).thenApply(v -> null);
+                        default:
+                            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown operation: " + operation));
+                    }
+                });
+    }
+
+    protected void logOperation(String operation, String collection, String documentId, double latencyMs) {
+        log.debug("Operation completed",
+                "operation", operation, "collection", collection, "documentId", documentId, "latencyMs", latencyMs);
     }
 
-    protected void logOperation(String operation, String collection, String documentId) {
-        System.out.println("Operation completed: " + operation + " on " + collection + "/" + documentId);
+    protected void handleError(Throwable e) {
+        log.error("Operation failed: " + e.getMessage(), e);
     }
 
-    protected void handleError(Exception e) {
-        System.err.println("Error occurred: " + e.getMessage());
-        e.printStackTrace();
+    private static Throwable unwrap(Throwable error) {
+        return DatabaseConnectionManager.unwrap(error);
     }
 }
\ No newline at end of file
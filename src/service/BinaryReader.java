@@ -0,0 +1,93 @@
+package service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the binary form written by {@link BinaryWriter} from any ByteBuffer,
+ * including a memory-mapped file.
+ */
+public class BinaryReader {
+    private final ByteBuffer buffer;
+    private byte[] scratch = new byte[64]; // Reused for strings read from direct buffers
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public BinaryReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    public int readByte() {
+        return buffer.get();
+    }
+
+    public boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public int readInt() {
+        return (int) readLong();
+    }
+
+    public long readLong() {
+        long encoded = readUnsignedVarLong();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    public long readUnsignedVarLong() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalStateException("Malformed varint at " + buffer.position());
+            }
+        }
+    }
+
+    public String readString() {
+        int length = (int) readUnsignedVarLong() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public List<String> readStringList() {
+        int size = (int) readUnsignedVarLong() - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+}
@@ -0,0 +1,122 @@
+package service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable byte buffer for the compact binary form written by codecs.
+ *
+ * Integers are written as zig-zag varints, strings and lists as a varint length followed by
+ * the contents (UTF-8 for strings).
+ * The writer can be reset and reused, so encoding many records allocates only when it has to grow.
+ */
+public class BinaryWriter {
+    private byte[] buffer;
+    private int position = 0;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(int value) {
+        writeLong(value);
+    }
+
+    public void writeLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Lengths are stored plus one, so 0 can stand for null.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeUnsignedVarLong(0);
+            return;
+        }
+
+        int length = value.length();
+        // Most fields are ASCII: write them directly without an intermediate byte[]
+        ensureCapacity(5 + length);
+        int start = position;
+        writeUnsignedVarLong(length + 1L);
+        int i = 0;
+        while (i < length && value.charAt(i) < 0x80) {
+            buffer[position++] = (byte) value.charAt(i++);
+        }
+        if (i == length) {
+            return;
+        }
+
+        // Non-ASCII: start over with the exact UTF-8 length
+        position = start;
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsignedVarLong(utf8.length + 1L);
+        writeBytes(utf8);
+    }
+
+    public void writeStringList(List<String> values) {
+        if (values == null) {
+            writeUnsignedVarLong(0);
+            return;
+        }
+        writeUnsignedVarLong(values.size() + 1L);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public int size() {
+        return position;
+    }
+
+    /**
+     * The internal buffer; only the first {@link #size()} bytes are valid.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+}
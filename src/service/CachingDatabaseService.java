@@ -0,0 +1,243 @@
+package service;
+
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
+import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read-through document cache in front of another database.
+ *
+ * get() is served from memory while the entry is fresh. Entries expire after a
+ * per-collection TTL, the least recently used entry is evicted once the cache is
+ * full, and every write through this class invalidates the document it touches
+ * (both when it is issued and when it completes).
+ */
+public class CachingDatabaseService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = 30_000;
+
+    private final AsyncDatabaseConnectable delegate;
+    private final int maxEntries;
+    private final long defaultTtlMillis;
+    private final Map<String, Long> ttlByCollection = new HashMap<>();
+
+    // Filled and invalidated under this, together with the write generations below
+    private final ExpiringLruCache<String, Map<String, Object>> entries;
+
+    // Bumped on every write. A read only fills the cache if its document wasn't written while it was in
+    // flight: lastWrite holds the generation of each recently written key, and keys dropped from it count
+    // as written at writeFloor (both guarded by this)
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final Map<String, Long> lastWrite = new HashMap<>();
+    private long writeFloor;
+
+    public CachingDatabaseService(AsyncDatabaseConnectable delegate) {
+        this(delegate, Integer.getInteger("codevia.cache.maxEntries", DEFAULT_MAX_ENTRIES),
+                Long.getLong("codevia.cache.ttlMillis", DEFAULT_TTL_MILLIS));
+    }
+
+    public CachingDatabaseService(AsyncDatabaseConnectable delegate, int maxEntries, long defaultTtlMillis) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.entries = new ExpiringLruCache<>(maxEntries);
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    /**
+     * Override the TTL for one collection, e.g. long-lived catalogs vs. frequently changing profiles.
+     * Can also be set with -Dcodevia.cache.ttlMillis.<collection>.
+     */
+    public synchronized void setCollectionTtl(String collection, long ttlMillis) {
+        ttlByCollection.put(collection, ttlMillis);
+    }
+
+    public AsyncDatabaseConnectable getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void connect() throws Exception {
+        delegate.connect();
+    }
+
+    // Paging; the other blocking operations wait for the non-blocking ones
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        return delegate.streamAll(collection, pageSize);
+    }
+
+    // Non-blocking operations
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        invalidate(collection, documentId);
+        return delegate.saveAsync(collection, documentId, data)
+                .whenComplete((result, error) -> invalidate(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        Map<String, Object> cached = lookup(collection, documentId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        long generation = writeGeneration.get();
+        return delegate.getAsync(collection, documentId)
+                .thenApply(data -> {
+                    store(collection, documentId, data, generation);
+                    return copy(data);
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        return delegate.getAllAsync(collection);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        invalidate(collection, documentId);
+        return delegate.updateAsync(collection, documentId, data)
+                .whenComplete((result, error) -> invalidate(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        invalidate(collection, documentId);
+        return delegate.deleteAsync(collection, documentId)
+                .whenComplete((result, error) -> invalidate(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        updatesByDocumentId.keySet().forEach(documentId -> invalidate(collection, documentId));
+        return delegate.updateBatchAsync(collection, updatesByDocumentId)
+                .whenComplete((result, error) ->
+                        updatesByDocumentId.keySet().forEach(documentId -> invalidate(collection, documentId)));
+    }
+
+    @Override
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        return delegate.listen(collection, changedSinceMillis, new DocumentChangeListener() {
+            @Override
+            public void onChange(ChangeType type, String documentId, Map<String, Object> data) {
+                // Changes made by other app instances must not be served stale from here
+                invalidate(collection, documentId);
+                listener.onChange(type, documentId, data);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    // Cache management
+
+    public synchronized void invalidate(String collection, String documentId) {
+        String key = key(collection, documentId);
+        long generation = writeGeneration.incrementAndGet();
+        lastWrite.put(key, generation);
+        if (lastWrite.size() > maxEntries) {
+            lastWrite.clear();
+            writeFloor = generation;
+        }
+        entries.invalidate(key);
+    }
+
+    public synchronized void invalidateAll() {
+        lastWrite.clear();
+        writeFloor = writeGeneration.incrementAndGet();
+        entries.clear();
+    }
+
+    public long getHitCount() { return entries.getHits(); }
+    public long getMissCount() { return entries.getMisses(); }
+    public long getEvictionCount() { return entries.getEvictions(); }
+    public int size() { return entries.size(); }
+
+    public double getHitRate() {
+        long hits = entries.getHits();
+        long total = hits + entries.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void displayStats() {
+        System.out.println("Document cache: " + size() + "/" + maxEntries + " entries, "
+                + getHitCount() + " hits, " + getMissCount() + " misses ("
+                + String.format("%.1f", getHitRate() * 100) + "% hit rate), " + getEvictionCount() + " evictions");
+    }
+
+    // Private helper methods
+
+    private Map<String, Object> lookup(String collection, String documentId) {
+        return copy(entries.get(key(collection, documentId)));
+    }
+
+    private synchronized void store(String collection, String documentId, Map<String, Object> data, long generation) {
+        // Only cache found documents, and never a value that a concurrent write may have replaced
+        String key = key(collection, documentId);
+        Long written = lastWrite.get(key);
+        if (data == null || (written != null ? written : writeFloor) > generation) {
+            return;
+        }
+
+        entries.put(key, copy(data), System.currentTimeMillis() + ttlFor(collection));
+    }
+
+    private long ttlFor(String collection) {
+        Long ttl = ttlByCollection.get(collection);
+        if (ttl == null) {
+            ttl = Long.getLong("codevia.cache.ttlMillis." + collection, defaultTtlMillis);
+            ttlByCollection.put(collection, ttl);
+        }
+        return ttl;
+    }
+
+    private static String key(String collection, String documentId) {
+        return collection + "/" + documentId;
+    }
+
+    // Callers get their own copy, down to nested maps and lists, so they can't modify what is cached
+    private static Map<String, Object> copy(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        Map<String, Object> copy = new HashMap<>(data.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            copy.put(field.getKey(), copyValue(field.getValue()));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            ((Map<Object, Object>) value).forEach((key, nested) -> copy.put(key, copyValue(nested)));
+            return copy;
+        }
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(copyValue(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,81 @@
+package service;
+
+/**
+ * Stops calling a backend that keeps failing.
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and every call
+ * is refused for {@code openMillis}. Then one trial call is let through: if it succeeds the
+ * breaker closes again, if it fails the breaker stays open for another period.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a call may go ahead now. Every permitted call must report back with
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * The backend answered; errors that aren't the backend's fault count as success too.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            log.info("Circuit closed", "circuit", name);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            log.warn("Circuit opened, failing fast", "circuit", name,
+                    "consecutiveFailures", consecutiveFailures, "openMillis", openMillis);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
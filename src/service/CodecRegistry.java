@@ -0,0 +1,63 @@
+package service;
+
+import interface_.Codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codecs by model class, with the built-in ones for User, Skill, Quiz, Question and Achievement.
+ */
+public class CodecRegistry {
+    private final Map<Class<?>, Codec<?>> codecs = new ConcurrentHashMap<>();
+
+    private CodecRegistry() {
+        QuestionCodec questionCodec = new QuestionCodec();
+        register(new UserCodec());
+        register(new SkillCodec());
+        register(questionCodec);
+        register(new QuizCodec(questionCodec));
+        register(new AchievementCodec());
+    }
+
+    private static class Holder {
+        private static final CodecRegistry INSTANCE = new CodecRegistry();
+    }
+
+    public static CodecRegistry getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public <T> void register(Codec<T> codec) {
+        codecs.put(codec.getType(), codec);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> forType(Class<T> type) {
+        Codec<T> codec = (Codec<T>) codecs.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec registered for " + type.getName());
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, Object> encode(T value) {
+        return forType((Class<T>) value.getClass()).encode(value);
+    }
+
+    public <T> T decode(Class<T> type, String documentId, Map<String, Object> data) {
+        return forType(type).decode(documentId, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> byte[] toBytes(T value) {
+        BinaryWriter out = new BinaryWriter();
+        forType((Class<T>) value.getClass()).write(value, out);
+        return out.toByteArray();
+    }
+
+    public <T> T fromBytes(Class<T> type, byte[] bytes) {
+        return forType(type).read(new BinaryReader(bytes));
+    }
+}
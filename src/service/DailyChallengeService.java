@@ -3,34 +3,74 @@ package service;
 import model.DailyChallenge;
 import model.User;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class DailyChallengeService {
-    private DailyChallenge dailyChallenge = new DailyChallenge();
+    public static final int REWARD_XP = 50;
 
-    public void trackQuestionAnswered(User user, AchievementService achievementService) {
-        dailyChallenge.resetIfNewDay();
+    // One challenge per user, so a single service can serve many users at once
+    private final Map<String, DailyChallenge> challenges = new ConcurrentHashMap<>();
+    private UserService userService; // Optional, used to persist the bonus XP
 
+    public void setUserService(UserService userService) {
+        this.userService = userService;
+    }
 
-        if (!dailyChallenge.isCompleted()) {
-            dailyChallenge.incrementProgress();
+    /**
+     * The user's challenge for today.
+     */
+    public DailyChallenge getChallenge(User user) {
+        DailyChallenge challenge = challenges.computeIfAbsent(user.getUserId(), id -> new DailyChallenge());
+        synchronized (challenge) {
+            challenge.resetIfNewDay();
+        }
+        return challenge;
+    }
 
-            if (dailyChallenge.isCompleted()) {
-                int rewardXp = 50;
-                System.out.println("🏆 Daily Challenge Completed! You earned " + rewardXp + " bonus XP!");
-                user.gainExperiencePoint(rewardXp);
+    /**
+     * Count one answered question towards the user's challenge, awarding the bonus XP when it completes.
+     * Returns true if this answer completed the challenge.
+     */
+    public boolean recordQuestionAnswered(User user, AchievementService achievementService) {
+        DailyChallenge challenge = getChallenge(user);
+        synchronized (challenge) {
+            if (challenge.isCompleted()) {
+                return false;
+            }
+            challenge.incrementProgress();
+            if (!challenge.isCompleted()) {
+                return false;
+            }
+        }
 
-                //Achievement Trigger
-                achievementService.dailyChallengeCompleted();
-            } else {
-                System.out.println("📊 Daily Progress: " +
-                        dailyChallenge.getQuestionsAnswered() + "/3 questions answered today.");
+        synchronized (user) {
+            user.gainExperiencePoint(REWARD_XP);
+            if (userService != null) {
+                userService.updateUser(user);
             }
         }
+
+        //Achievement Trigger
+        achievementService.dailyChallengeCompleted();
+        return true;
+    }
+
+    public void trackQuestionAnswered(User user, AchievementService achievementService) {
+        boolean wasCompleted = getChallenge(user).isCompleted();
+        if (recordQuestionAnswered(user, achievementService)) {
+            System.out.println("🏆 Daily Challenge Completed! You earned " + REWARD_XP + " bonus XP!");
+        } else if (!wasCompleted) {
+            DailyChallenge challenge = getChallenge(user);
+            System.out.println("📊 Daily Progress: " +
+                    challenge.getQuestionsAnswered() + "/" + DailyChallenge.QUESTIONS_REQUIRED + " questions answered today.");
+        }
     }
 
-    public void showStatus() {
-        dailyChallenge.resetIfNewDay();
-        System.out.println("📅 Daily Challenge: Answer 3 quiz questions");
-        System.out.println("Progress: " + dailyChallenge.getQuestionsAnswered() + "/3");
-        System.out.println("Status: " + (dailyChallenge.isCompleted() ? "✅ Completed" : "⏳ In Progress"));
+    public void showStatus(User user) {
+        DailyChallenge challenge = getChallenge(user);
+        System.out.println("📅 Daily Challenge: Answer " + DailyChallenge.QUESTIONS_REQUIRED + " quiz questions");
+        System.out.println("Progress: " + challenge.getQuestionsAnswered() + "/" + DailyChallenge.QUESTIONS_REQUIRED);
+        System.out.println("Status: " + (challenge.isCompleted() ? "✅ Completed" : "⏳ In Progress"));
     }
 }
@@ -0,0 +1,242 @@
+package service;
+
+import interface_.AsyncDatabaseConnectable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Application-wide database bootstrap. Selects the backend, connects it exactly
+ * once in the background and hands the same connection to every service.
+ */
+public class DatabaseConnectionManager {
+    // Selects the backend at startup: -Dcodevia.database=firebase (default) or local
+    public static final String DATABASE_PROPERTY = "codevia.database";
+
+    // Connection policy: per-attempt timeout, number of attempts and the first retry delay (doubled each retry)
+    private static final long CONNECT_TIMEOUT_MILLIS = Long.getLong("codevia.connect.timeoutMillis", 10_000);
+    private static final int CONNECT_ATTEMPTS = Integer.getInteger("codevia.connect.attempts", 3);
+    private static final long CONNECT_RETRY_DELAY_MILLIS = Long.getLong("codevia.connect.retryDelayMillis", 500);
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(DatabaseConnectionManager.class);
+
+    private volatile AsyncDatabaseConnectable database;
+    private volatile AsyncDatabaseConnectable backend; // Undecorated, behind database
+    private volatile CachingDatabaseService cache;
+    private volatile ResilientDatabaseService resilience;
+    private volatile JournalingDatabaseService journal;
+    private final DatabaseMetrics metrics = new DatabaseMetrics(); // Kept across a fallback to the local store
+    private final CompletableFuture<AsyncDatabaseConnectable> databaseReady;
+
+    private DatabaseConnectionManager() {
+        // Private constructor for Singleton pattern
+        AsyncDatabaseConnectable backend = selectDatabase();
+        this.database = decorate(backend);
+        this.databaseReady = connect(backend, database);
+        metrics.startPeriodicDump();
+    }
+
+    // Lazy, thread-safe initialization: the JVM runs the holder's initializer once
+    private static class Holder {
+        private static final DatabaseConnectionManager INSTANCE = new DatabaseConnectionManager();
+    }
+
+    public static DatabaseConnectionManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Completes with the connected database once startup has finished connecting (or fallen back
+     * to the local store), or exceptionally if no database could be opened.
+     */
+    public CompletableFuture<AsyncDatabaseConnectable> whenReady() {
+        return databaseReady;
+    }
+
+    /**
+     * The selected backend, or the fallback once connecting has given up. Null if nothing could be opened.
+     */
+    public AsyncDatabaseConnectable getDatabase() {
+        return database;
+    }
+
+    /**
+     * The document cache in front of the database, for stats and manual invalidation.
+     */
+    public CachingDatabaseService getCache() {
+        return cache;
+    }
+
+    /**
+     * Retry, circuit breaker and bulkhead state of the current backend.
+     */
+    public ResilientDatabaseService getResilience() {
+        return resilience;
+    }
+
+    /**
+     * Offline write journal in front of Firebase, null for the local store (which is durable itself).
+     */
+    public JournalingDatabaseService getJournal() {
+        return journal;
+    }
+
+    /**
+     * Latency and error stats for every database operation since startup.
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * True if data lives in the local store, selected at startup or fallen back to.
+     */
+    public boolean isLocalStore() {
+        return backend instanceof LocalStoreService;
+    }
+
+    public boolean isConnected() {
+        return databaseReady.isDone() && !databaseReady.isCompletedExceptionally();
+    }
+
+    private static AsyncDatabaseConnectable selectDatabase() {
+        if ("local".equalsIgnoreCase(System.getProperty(DATABASE_PROPERTY, "firebase"))) {
+            return LocalStoreService.getInstance();
+        }
+        return FirebaseService.getInstance();
+    }
+
+    /**
+     * Every service goes through the same stack: metrics, the document cache, the write journal,
+     * then retries and the circuit breaker right in front of the backend (so cached reads still
+     * work and writes are kept while it is open).
+     */
+    private AsyncDatabaseConnectable decorate(AsyncDatabaseConnectable backend) {
+        this.backend = backend;
+        ResilientDatabaseService resilient = new ResilientDatabaseService(backend);
+        this.resilience = resilient;
+        AsyncDatabaseConnectable durable = resilient;
+
+        if (backend instanceof LocalStoreService) {
+            this.journal = null; // Don't keep replaying into Firebase after falling back
+        } else {
+            try {
+                Path dataDir = Paths.get(System.getProperty("codevia.dataDir", LocalStoreService.DEFAULT_DATA_DIR));
+                JournalingDatabaseService journaling = new JournalingDatabaseService(resilient, WriteJournal.open(dataDir, "firestore"));
+                this.journal = journaling;
+                durable = journaling;
+            } catch (IOException e) {
+                log.error("Failed to open write journal, writes during outages will be lost", e);
+            }
+        }
+
+        CachingDatabaseService cached = new CachingDatabaseService(durable);
+        this.cache = cached;
+        return new MeteredDatabaseService(cached, metrics);
+    }
+
+    private CompletableFuture<AsyncDatabaseConnectable> connect(AsyncDatabaseConnectable backend,
+                                                                AsyncDatabaseConnectable decorated) {
+        return connectWithRetry(decorated, 1, null)
+                .handle((connected, error) -> {
+                    if (error == null) {
+                        JournalingDatabaseService journaling = journal;
+                        if (journaling != null) {
+                            // Replay what was left over from an earlier outage
+                            journaling.start();
+                        }
+                        return connected;
+                    }
+                    log.error("Failed to connect to database: " + unwrap(error).getMessage());
+                    if (backend instanceof LocalStoreService) {
+                        throw new CompletionException(unwrap(error));
+                    }
+                    // The fallback gets its own document cache
+                    return decorate(fallBackToLocalStore());
+                })
+                .whenComplete((connected, error) -> this.database = connected);
+    }
+
+    /**
+     * Connect in the background, retrying with exponential backoff. Each attempt is bounded by a timeout,
+     * after which its thread is interrupted. An attempt still running after that is waited on again
+     * instead of starting another connect next to it.
+     */
+    private static CompletableFuture<AsyncDatabaseConnectable> connectWithRetry(AsyncDatabaseConnectable database,
+                                                                                int attempt, ConnectAttempt previous) {
+        ConnectAttempt current = previous != null && !previous.done.isDone() ? previous : new ConnectAttempt(database, attempt);
+        return current.done.copy()
+                .orTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(database);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof TimeoutException) {
+                        current.thread.interrupt();
+                    }
+                    if (attempt >= CONNECT_ATTEMPTS) {
+                        return CompletableFuture.<AsyncDatabaseConnectable>failedFuture(cause);
+                    }
+
+                    long delay = CONNECT_RETRY_DELAY_MILLIS << (attempt - 1);
+                    log.warn("Database connect attempt failed: " + describe(cause), "attempt", attempt, "retryInMs", delay);
+                    Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(retry -> connectWithRetry(database, attempt + 1, current));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * One call to connect(), on its own thread so a timed-out attempt can be interrupted.
+     */
+    private static final class ConnectAttempt {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Thread thread;
+
+        ConnectAttempt(AsyncDatabaseConnectable database, int attempt) {
+            thread = Thread.ofVirtual().name("database-connect-" + attempt).start(() -> {
+                try {
+                    database.connect();
+                    done.complete(null);
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Keep progress on local disk instead of dropping every operation when Firebase is unreachable.
+     */
+    private static AsyncDatabaseConnectable fallBackToLocalStore() {
+        try {
+            LocalStoreService localStore = LocalStoreService.getInstance();
+            localStore.connect();
+            log.info("Firebase not available, running in local mode");
+            return localStore;
+        } catch (Exception e) {
+            log.error("Failed to open local store: " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static String describe(Throwable error) {
+        return error instanceof TimeoutException ? "timed out" : error.getMessage();
+    }
+}
@@ -0,0 +1,160 @@
+package service;
+
+import exception.DatabaseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts, latency percentiles and errors per collection and operation.
+ *
+ * Recorded by {@link MeteredDatabaseService}; read with {@link #snapshot()} or
+ * dumped to the log every -Dcodevia.metrics.dumpIntervalMillis (default one minute, 0 disables).
+ */
+public class DatabaseMetrics {
+    public static final long DEFAULT_DUMP_INTERVAL_MILLIS = 60_000;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(DatabaseMetrics.class);
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper;
+
+    public void record(String collection, String operation, long nanos, Throwable error) {
+        OperationMetrics metrics = operations.computeIfAbsent(collection + "." + operation,
+                key -> new OperationMetrics(collection, operation));
+        metrics.latency.recordNanos(nanos);
+        if (error != null) {
+            metrics.errorsByCause.computeIfAbsent(causeOf(error), cause -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Current stats for every collection and operation seen so far, sorted by collection then operation.
+     */
+    public List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (OperationMetrics metrics : operations.values()) {
+            stats.add(metrics.snapshot());
+        }
+        stats.sort(Comparator.comparing(OperationStats::getCollection).thenComparing(OperationStats::getOperation));
+        return stats;
+    }
+
+    public synchronized void startPeriodicDump() {
+        startPeriodicDump(Long.getLong("codevia.metrics.dumpIntervalMillis", DEFAULT_DUMP_INTERVAL_MILLIS));
+    }
+
+    public synchronized void startPeriodicDump(long intervalMillis) {
+        if (dumper != null || intervalMillis <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(this::dump, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write the current stats to the log, one event per collection and operation.
+     */
+    public void dump() {
+        for (OperationStats stats : snapshot()) {
+            log.info("Database latency", "collection", stats.getCollection(), "operation", stats.getOperation(),
+                    "count", stats.getCount(), "errors", stats.getErrorCount(),
+                    "p50Ms", stats.getP50Millis(), "p90Ms", stats.getP90Millis(), "p99Ms", stats.getP99Millis(),
+                    "p999Ms", stats.getP999Millis(), "maxMs", stats.getMaxMillis(), "errorsByCause", stats.getErrorsByCause());
+        }
+    }
+
+    public void displayStats() {
+        List<OperationStats> snapshot = snapshot();
+        if (snapshot.isEmpty()) {
+            System.out.println("Database latency: no operations yet");
+            return;
+        }
+        System.out.println("Database latency (ms):");
+        for (OperationStats stats : snapshot) {
+            System.out.println("  " + stats);
+        }
+    }
+
+    /**
+     * What actually went wrong: the cause wrapped in a DatabaseException, or the error itself.
+     */
+    static String causeOf(Throwable error) {
+        Throwable cause = DatabaseConnectionManager.unwrap(error);
+        if (cause instanceof DatabaseException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private static class OperationMetrics {
+        private final String collection;
+        private final String operation;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+
+        OperationMetrics(String collection, String operation) {
+            this.collection = collection;
+            this.operation = operation;
+        }
+
+        OperationStats snapshot() {
+            Map<String, Long> errors = new HashMap<>();
+            errorsByCause.forEach((cause, count) -> errors.put(cause, count.sum()));
+            return new OperationStats(collection, operation, latency.snapshot(), errors);
+        }
+    }
+
+    /**
+     * Immutable stats for one collection and operation.
+     */
+    public static class OperationStats {
+        private final String collection;
+        private final String operation;
+        private final LatencyHistogram.Snapshot latency;
+        private final Map<String, Long> errorsByCause;
+
+        OperationStats(String collection, String operation, LatencyHistogram.Snapshot latency, Map<String, Long> errorsByCause) {
+            this.collection = collection;
+            this.operation = operation;
+            this.latency = latency;
+            this.errorsByCause = Collections.unmodifiableMap(errorsByCause);
+        }
+
+        public String getCollection() { return collection; }
+        public String getOperation() { return operation; }
+        public long getCount() { return latency.getCount(); }
+        public double getMeanMillis() { return latency.getMeanMillis(); }
+        public double getP50Millis() { return latency.getPercentileMillis(50); }
+        public double getP90Millis() { return latency.getPercentileMillis(90); }
+        public double getP99Millis() { return latency.getPercentileMillis(99); }
+        public double getP999Millis() { return latency.getPercentileMillis(99.9); }
+        public double getMaxMillis() { return latency.getMaxMillis(); }
+        public double getPercentileMillis(double percentile) { return latency.getPercentileMillis(percentile); }
+        public Map<String, Long> getErrorsByCause() { return errorsByCause; }
+
+        public long getErrorCount() {
+            return errorsByCause.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s.%s: %d calls, %d errors, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%s",
+                    collection, operation, getCount(), getErrorCount(), getP50Millis(), getP90Millis(),
+                    getP99Millis(), getMaxMillis(), errorsByCause.isEmpty() ? "" : " " + errorsByCause);
+        }
+    }
+}
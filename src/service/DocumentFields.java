@@ -0,0 +1,62 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed reads of document fields. Firestore returns whole numbers as Long and the local
+ * store may return Integer, so numbers are read through Number.
+ */
+public final class DocumentFields {
+    private DocumentFields() {
+    }
+
+    public static String getString(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public static int getInt(Map<String, Object> data, String field, int defaultValue) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    public static boolean getBoolean(Map<String, Object> data, String field, boolean defaultValue) {
+        Object value = data.get(field);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * A copy of a list of strings, or null if the field is missing. Non-string elements are skipped.
+     */
+    public static List<String> getStringList(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> values = (List<?>) value;
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object element : values) {
+            if (element instanceof String) {
+                strings.add((String) element);
+            }
+        }
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> getMapList(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (element instanceof Map) {
+                maps.add((Map<String, Object>) element);
+            }
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,135 @@
+package service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small bounded cache where every entry carries its own expiry time.
+ * Entries have a weight (1 each by default); the least recently used entries are evicted
+ * once the total weight is over the limit.
+ */
+public class ExpiringLruCache<K, V> {
+    public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+
+    // Access-ordered, so iteration starts at the least recently used entry (guarded by this)
+    private final LinkedHashMap<K, CacheEntry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ExpiringLruCache(int maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    /**
+     * A cache bounded by the total weight of its values, e.g. the number of questions in cached quizzes.
+     */
+    public ExpiringLruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null || entry.expiresAtMillis <= System.currentTimeMillis()) {
+            if (entry != null) {
+                remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Cache a value until {@code expiresAtMillis}, or {@link #NEVER_EXPIRES}. The entry just put is
+     * always kept, even if it alone is over the weight limit.
+     */
+    public synchronized void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            remove(key);
+            return;
+        }
+        CacheEntry<V> entry = new CacheEntry<>(value, expiresAtMillis, weigher.applyAsLong(value));
+        CacheEntry<V> previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+
+        Iterator<Map.Entry<K, CacheEntry<V>>> it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            CacheEntry<V> eldest = it.next().getValue();
+            if (eldest == entry) {
+                continue;
+            }
+            it.remove();
+            weight -= eldest.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total weight of the cached values.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private void remove(K key) {
+        CacheEntry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private static class CacheEntry<V> {
+        final V value;
+        final long expiresAtMillis;
+        final long weight;
+
+        CacheEntry(V value, long expiresAtMillis, long weight) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A relative change to a document field (increment or array union).
+ *
+ * Backend-neutral so pending deltas can be merged before they are written;
+ * each DatabaseConnectable translates them into its own form.
+ */
+public final class FieldDelta {
+    public enum Kind { INCREMENT, ARRAY_UNION }
+
+    private final Kind kind;
+    private final long increment;
+    private final List<Object> elements;
+
+    private FieldDelta(Kind kind, long increment, List<Object> elements) {
+        this.kind = kind;
+        this.increment = increment;
+        this.elements = elements;
+    }
+
+    public static FieldDelta increment(long amount) {
+        return new FieldDelta(Kind.INCREMENT, amount, Collections.emptyList());
+    }
+
+    public static FieldDelta arrayUnion(List<?> elements) {
+        return new FieldDelta(Kind.ARRAY_UNION, 0, Collections.unmodifiableList(new ArrayList<>(elements)));
+    }
+
+    public Kind getKind() { return kind; }
+    public long getIncrement() { return increment; }
+    public List<Object> getElements() { return elements; }
+
+    /**
+     * Combine this delta with a later one on the same field.
+     */
+    public FieldDelta mergeWith(FieldDelta later) {
+        if (kind != later.kind) {
+            return later;
+        }
+        if (kind == Kind.INCREMENT) {
+            return increment(increment + later.increment);
+        }
+        LinkedHashSet<Object> union = new LinkedHashSet<>(elements);
+        union.addAll(later.elements);
+        return arrayUnion(new ArrayList<>(union));
+    }
+
+    /**
+     * Apply this delta to the field's current value, for backends that store plain values.
+     */
+    public Object applyTo(Object current) {
+        if (kind == Kind.INCREMENT) {
+            long base = current instanceof Number ? ((Number) current).longValue() : 0L;
+            return base + increment;
+        }
+        LinkedHashSet<Object> union = new LinkedHashSet<>();
+        if (current instanceof List) {
+            union.addAll((List<?>) current);
+        }
+        union.addAll(elements);
+        return new ArrayList<>(union);
+    }
+
+    /**
+     * Merge a later set of field writes into an earlier pending one.
+     * Deltas on the same field are combined; plain values simply replace what was there.
+     */
+    public static void mergeFields(Map<String, Object> pending, Map<String, Object> later) {
+        for (Map.Entry<String, Object> field : later.entrySet()) {
+            Object earlier = pending.get(field.getKey());
+            Object value = field.getValue();
+            if (earlier instanceof FieldDelta && value instanceof FieldDelta) {
+                pending.put(field.getKey(), ((FieldDelta) earlier).mergeWith((FieldDelta) value));
+            } else if (earlier != null && !(earlier instanceof FieldDelta) && value instanceof FieldDelta) {
+                // An absolute value followed by a delta collapses into a new absolute value
+                pending.put(field.getKey(), ((FieldDelta) value).applyTo(earlier));
+            } else {
+                pending.put(field.getKey(), value);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.INCREMENT ? "increment(" + increment + ")" : "arrayUnion(" + elements + ")";
+    }
+}
@@ -1,7 +1,11 @@
 package service;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.auth.UserRecord;
 import com.google.firebase.auth.UserRecord.CreateRequest;
 import com.google.firebase.auth.UserRecord.UpdateRequest;
@@ -10,13 +14,29 @@ import exception.AuthenticationException;
 import exception.ValidationException;
 import model.User;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 public class FirebaseAuthService {
-    private static FirebaseAuthService instance;
-    private FirebaseAuth firebaseAuth;
+    private static final AsyncLogger log = AsyncLogger.getLogger(FirebaseAuthService.class);
+
+    private volatile FirebaseAuth firebaseAuth;
     private UserService userService;
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
+
+    // Firebase lookups already made, so repeat logins and token checks skip the round trip
+    private final long userRecordTtlMillis = Long.getLong("codevia.auth.userRecordTtlMillis", 300_000);
+    private final ExpiringLruCache<String, UserRecord> userRecordsByEmail =
+            new ExpiringLruCache<>(Integer.getInteger("codevia.auth.cacheSize", 10_000));
+    private final ExpiringLruCache<String, UserRecord> userRecordsByUid =
+            new ExpiringLruCache<>(Integer.getInteger("codevia.auth.cacheSize", 10_000));
+    private final ExpiringLruCache<String, VerifiedToken> verifiedTokens = // Keyed by token hash, valid until the token's exp
+            new ExpiringLruCache<>(Integer.getInteger("codevia.auth.cacheSize", 10_000));
 
     private FirebaseAuthService() {
         // Delayed initialization
@@ -29,11 +49,13 @@ public class FirebaseAuthService {
         }
     }
 
+    // Lazy, thread-safe initialization: the JVM runs the holder's initializer once
+    private static class Holder {
+        private static final FirebaseAuthService INSTANCE = new FirebaseAuthService();
+    }
+
     public static FirebaseAuthService getInstance() {
-        if (instance == null) {
-            instance = new FirebaseAuthService();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     public void setUserService(UserService userService) {
@@ -41,9 +63,31 @@ public class FirebaseAuthService {
     }
 
     /**
-     * Register a new user with Firebase Authentication
+     * Register a new user with Firebase Authentication. Blocks until done; see {@link #registerUserAsync}.
      */
     public User registerUser(String username, String email, String password) throws AuthenticationException, ValidationException {
+        try {
+            return registerUserAsync(username, email, password).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            if (cause instanceof AuthenticationException) {
+                throw (AuthenticationException) cause;
+            }
+            throw new AuthenticationException("Registration failed: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Register without blocking the caller, so it is safe to call from a UI thread.
+     *
+     * The Firebase Auth account is created while the password is hashed, then the profile is written.
+     * If the profile can't be created or written, the Auth account is deleted again so no half-registered
+     * user is left behind. Fails with a ValidationException or AuthenticationException.
+     */
+    public CompletableFuture<User> registerUserAsync(String username, String email, String password) {
         try {
             // Initialize Firebase Auth if not already
             initialize();
@@ -55,28 +99,65 @@ public class FirebaseAuthService {
             if (userService.findUserByEmail(email) != null) {
                 throw new ValidationException("User with this email already exists");
             }
+        } catch (ValidationException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new AuthenticationException("Registration failed: " + e.getMessage()));
+        }
 
-            // Create user in Firebase Auth
-            UserRecord.CreateRequest request = new UserRecord.CreateRequest()
-                    .setEmail(email)
-                    .setPassword(password)
-                    .setDisplayName(username)
-                    .setEmailVerified(false);
-
-            UserRecord userRecord = firebaseAuth.createUser(request);
-            System.out.println("✅ Firebase user created: " + userRecord.getUid());
+        // Create user in Firebase Auth
+        UserRecord.CreateRequest request = new UserRecord.CreateRequest()
+                .setEmail(email)
+                .setPassword(password)
+                .setDisplayName(username)
+                .setEmailVerified(false);
+
+        CompletableFuture<UserRecord> authUser = toCompletableFuture(firebaseAuth.createUserAsync(request));
+        CompletableFuture<String> uid = authUser.thenApply(userRecord -> {
+            log.info("Firebase user created", "uid", userRecord.getUid());
+            cacheUserRecord(userRecord);
+            return userRecord.getUid();
+        });
+
+        // Create user in local database
+        return userService.createUserAsync(uid, username, email, password)
+                .handle((user, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(user);
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    // The Auth call may still be running; roll back once it has settled, if it created a user
+                    return uid.handle((createdUid, authError) -> createdUid)
+                            .thenCompose(createdUid -> createdUid == null
+                                    ? CompletableFuture.<User>failedFuture(registrationError(cause))
+                                    : rollback(createdUid, cause));
+                })
+                .thenCompose(future -> future);
+    }
 
-            // Create user in local database
-            User user = userService.createUser(userRecord.getUid(), username, email, password);
-            
-            return user;
+    /**
+     * Delete the Auth account of a registration whose profile failed, then fail with the original error.
+     */
+    private CompletableFuture<User> rollback(String uid, Throwable cause) {
+        log.warn("Profile creation failed, deleting Firebase user", "uid", uid, "reason", cause.getMessage());
+        invalidateUserRecord(uid);
+        return toCompletableFuture(firebaseAuth.deleteUserAsync(uid))
+                .handle((ignored, rollbackError) -> {
+                    if (rollbackError != null) {
+                        log.error("Failed to delete Firebase user after a failed registration", rollbackError, "uid", uid);
+                    }
+                    throw new CompletionException(registrationError(cause));
+                });
+    }
 
-        } catch (FirebaseAuthException e) {
-            String errorMessage = getAuthErrorMessage(e);
-            throw new AuthenticationException("Registration failed: " + errorMessage);
-        } catch (Exception e) {
-            throw new AuthenticationException("Registration failed: " + e.getMessage());
+    private Exception registrationError(Throwable cause) {
+        if (cause instanceof ValidationException || cause instanceof AuthenticationException) {
+            return (Exception) cause;
+        }
+        if (cause instanceof FirebaseAuthException) {
+            return new AuthenticationException("Registration failed: " + getAuthErrorMessage((FirebaseAuthException) cause));
         }
+        return new AuthenticationException("Registration failed: " + cause.getMessage());
     }
 
     /**
@@ -88,7 +169,7 @@ public class FirebaseAuthService {
             initialize();
 
             // Get user by email from Firebase
-            UserRecord userRecord = firebaseAuth.getUserByEmail(email);
+            UserRecord userRecord = getUserRecordByEmail(email);
             
             // Note: Firebase Admin SDK doesn't directly verify passwords
             // For admin SDK, we'll verify the password against our local storage
@@ -109,7 +190,7 @@ public class FirebaseAuthService {
                 localUser = updateUserFromFirebase(localUser, userRecord);
             }
 
-            System.out.println("✅ Firebase authentication successful for: " + userRecord.getEmail());
+            log.debug("Firebase authentication successful", "uid", userRecord.getUid());
             return localUser;
 
         } catch (FirebaseAuthException e) {
@@ -124,15 +205,17 @@ public class FirebaseAuthService {
      */
     public User verifyIdToken(String idToken) throws AuthenticationException {
         try {
-            var decodedToken = firebaseAuth.verifyIdToken(idToken);
-            String uid = decodedToken.getUid();
-            String email = decodedToken.getEmail();
+            initialize();
+
+            VerifiedToken verified = verifyToken(idToken);
+            String uid = verified.uid;
+            String email = verified.email;
 
             // Get user from local database
             User user = userService.findUserByEmail(email);
             if (user == null) {
                 // User exists in Firebase but not locally, create local user
-                UserRecord userRecord = firebaseAuth.getUser(uid);
+                UserRecord userRecord = getUserRecord(uid);
                 user = userService.createUser(uid, userRecord.getDisplayName(), email, "");
             }
 
@@ -156,7 +239,8 @@ public class FirebaseAuthService {
                     .setPassword(newPassword);
 
             firebaseAuth.updateUser(request);
-            System.out.println("✅ Password updated successfully for user: " + uid);
+            invalidateUserRecord(uid);
+            log.info("Firebase password updated", "uid", uid);
 
         } catch (FirebaseAuthException e) {
             throw new AuthenticationException("Password update failed: " + getAuthErrorMessage(e));
@@ -169,7 +253,8 @@ public class FirebaseAuthService {
     public void deleteUser(String uid) throws AuthenticationException {
         try {
             firebaseAuth.deleteUser(uid);
-            System.out.println("✅ User deleted from Firebase: " + uid);
+            invalidateUserRecord(uid);
+            log.info("Firebase user deleted", "uid", uid);
 
         } catch (FirebaseAuthException e) {
             throw new AuthenticationException("User deletion failed: " + getAuthErrorMessage(e));
@@ -184,9 +269,8 @@ public class FirebaseAuthService {
             // Note: Admin SDK doesn't directly send password reset emails
             // This would typically be done on the client side
             // Here we'll just verify the user exists
-            firebaseAuth.getUserByEmail(email);
-            System.out.println("✅ User verified for password reset: " + email);
-            System.out.println("📧 In production, password reset email would be sent via client SDK");
+            UserRecord userRecord = firebaseAuth.getUserByEmail(email);
+            log.info("User verified for password reset, the email is sent by the client SDK", "uid", userRecord.getUid());
 
         } catch (FirebaseAuthException e) {
             throw new AuthenticationException("Password reset failed: " + getAuthErrorMessage(e));
@@ -198,14 +282,107 @@ public class FirebaseAuthService {
      */
     public UserRecord getFirebaseUser(String uid) throws AuthenticationException {
         try {
-            return firebaseAuth.getUser(uid);
+            return getUserRecord(uid);
         } catch (FirebaseAuthException e) {
             throw new AuthenticationException("Failed to get user info: " + getAuthErrorMessage(e));
         }
     }
 
+    public void displayCacheStats() {
+        System.out.println("Auth cache - user records: " + (userRecordsByEmail.size() + userRecordsByUid.size())
+                + ", verified tokens: " + verifiedTokens.size()
+                + ", hits: " + (userRecordsByEmail.getHits() + userRecordsByUid.getHits() + verifiedTokens.getHits())
+                + ", misses: " + (userRecordsByEmail.getMisses() + userRecordsByUid.getMisses() + verifiedTokens.getMisses()));
+    }
+
     // Private helper methods
 
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, Runnable::run);
+        return future;
+    }
+
+    private UserRecord getUserRecordByEmail(String email) throws FirebaseAuthException {
+        UserRecord record = userRecordsByEmail.get(email);
+        if (record == null) {
+            record = firebaseAuth.getUserByEmail(email);
+            cacheUserRecord(record);
+        }
+        return record;
+    }
+
+    private UserRecord getUserRecord(String uid) throws FirebaseAuthException {
+        UserRecord record = userRecordsByUid.get(uid);
+        if (record == null) {
+            record = firebaseAuth.getUser(uid);
+            cacheUserRecord(record);
+        }
+        return record;
+    }
+
+    private void cacheUserRecord(UserRecord record) {
+        long expiresAt = System.currentTimeMillis() + userRecordTtlMillis;
+        userRecordsByUid.put(record.getUid(), record, expiresAt);
+        if (record.getEmail() != null) {
+            userRecordsByEmail.put(record.getEmail(), record, expiresAt);
+        }
+    }
+
+    private void invalidateUserRecord(String uid) {
+        UserRecord record = userRecordsByUid.get(uid);
+        userRecordsByUid.invalidate(uid);
+        if (record != null && record.getEmail() != null) {
+            userRecordsByEmail.invalidate(record.getEmail());
+        }
+    }
+
+    private VerifiedToken verifyToken(String idToken) throws FirebaseAuthException {
+        String key = tokenHash(idToken);
+        VerifiedToken verified = verifiedTokens.get(key);
+        if (verified != null) {
+            return verified;
+        }
+
+        FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
+        verified = new VerifiedToken(decodedToken.getUid(), decodedToken.getEmail());
+        Object exp = decodedToken.getClaims() == null ? null : decodedToken.getClaims().get("exp");
+        if (exp instanceof Number) {
+            // Never trust the token past its own expiry
+            verifiedTokens.put(key, verified, ((Number) exp).longValue() * 1000);
+        }
+        return verified;
+    }
+
+    private static String tokenHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class VerifiedToken {
+        final String uid;
+        final String email;
+
+        VerifiedToken(String uid, String email) {
+            this.uid = uid;
+            this.email = email;
+        }
+    }
+
     private void validateUserInput(String username, String email, String password) throws ValidationException {
         if (username == null || username.trim().isEmpty()) {
             throw new ValidationException("Username cannot be empty");
@@ -222,10 +399,9 @@ public class FirebaseAuthService {
         return email.contains("@") && email.contains(".");
     }
 
-    private boolean verifyPassword(User user, String password) {
-        // In production, you'd use proper password hashing
-        // For now, simple comparison (not secure for production)
-        return user.getPassword().equals(password);
+    private boolean verifyPassword(User user, String password) throws AuthenticationException {
+        // Salted hash check on the password hasher pool
+        return userService.verifyPassword(user, password);
     }
 
     private User updateUserFromFirebase(User localUser, UserRecord firebaseUser) {
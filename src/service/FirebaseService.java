@@ -1,17 +1,31 @@
 // service/FirebaseService.java
 package service;
 
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
 import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
 import exception.DatabaseException;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.cloud.FirestoreClient;
+import com.google.cloud.firestore.DocumentChange;
 import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -19,43 +33,57 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-public class FirebaseService implements DatabaseConnectable {
-    private static FirebaseService instance;
-    private Firestore firestore;
+public class FirebaseService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    // Firestore rejects write batches with more than 500 operations
+    public static final int MAX_BATCH_WRITES = 500;
+    // Server time of a document's last write, set on every save and update
+    public static final String UPDATED_AT_FIELD = "updatedAt";
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(FirebaseService.class);
+
+    private volatile Firestore firestore;
 
     private FirebaseService() {
         // Private constructor for Singleton pattern
     }
 
+    // Lazy, thread-safe initialization: the JVM runs the holder's initializer once
+    private static class Holder {
+        private static final FirebaseService INSTANCE = new FirebaseService();
+    }
+
     public static FirebaseService getInstance() {
-        if (instance == null) {
-            instance = new FirebaseService();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     @Override
-    public void connect() throws Exception {
+    public synchronized void connect() throws Exception {
+        if (firestore != null) {
+            return; // Already connected, don't read the credentials again
+        }
+
         try {
             // Initialize Firebase only if it's not already initialized
             if (FirebaseApp.getApps().isEmpty()) {
-                FileInputStream serviceAccount = new FileInputStream("./Codevia Firebase Admin SDK.json");
-                
-                FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
-                    .setDatabaseUrl("https://codevia-873bc-default-rtdb.firebaseio.com")
-                    .build();
+                FirebaseOptions options;
+                try (FileInputStream serviceAccount = new FileInputStream("./Codevia Firebase Admin SDK.json")) {
+                    options = FirebaseOptions.builder()
+                        .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                        .setDatabaseUrl("https://codevia-873bc-default-rtdb.firebaseio.com")
+                        .build();
+                }
                 
                 FirebaseApp.initializeApp(options);
                 
-                System.out.println("Firebase Admin SDK initialized successfully!");
+                log.info("Firebase Admin SDK initialized");
             }
 
             // Get Firestore instance
             this.firestore = FirestoreClient.getFirestore();
-            System.out.println("Firestore initialized successfully");
+            log.info("Firestore initialized");
 
         } catch (IOException e) {
             throw new DatabaseException("Failed to read Firebase service account file: " + e.getMessage());
@@ -64,103 +92,235 @@ public class FirebaseService implements DatabaseConnectable {
         }
     }
 
-    @Override
-    public void save(String collection, String documentId, Map<String, Object> data) throws Exception {
-        try {
-            if (firestore == null) {
-                throw new DatabaseException("Firestore not initialized. Call connect() first.");
-            }
-            
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            docRef.set(data).get();
-            
-            System.out.println("Successfully saved to " + collection + "/" + documentId);
-
-        } catch (InterruptedException | ExecutionException e) {
-            throw new DatabaseException("Failed to save data: " + e.getMessage());
-        }
-    }
+    // Paging; the other blocking operations wait for the non-blocking ones (UI code should use those)
 
     @Override
-    public Map<String, Object> get(String collection, String documentId) throws Exception {
-        try {
-            if (firestore == null) {
-                throw new DatabaseException("Firestore not initialized. Call connect() first.");
-            }
-            
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            DocumentSnapshot document = docRef.get().get();
-            
-            if (document.exists()) {
-                System.out.println("Successfully retrieved from " + collection + "/" + documentId);
-                return document.getData();
-            } else {
-                System.out.println("Document not found: " + collection + "/" + documentId);
-                return null;
-            }
-
-        } catch (InterruptedException | ExecutionException e) {
-            throw new DatabaseException("Failed to get data: " + e.getMessage());
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        if (firestore == null) {
+            throw new DatabaseException("Firestore not initialized. Call connect() first.");
         }
-    }
 
-    @Override
-    public List<Map<String, Object>> getAll(String collection) throws Exception {
-        try {
-            if (firestore == null) {
-                throw new DatabaseException("Firestore not initialized. Call connect() first.");
+        return PagedIterator.stream((last, size) -> {
+            Query query = firestore.collection(collection).orderBy(FieldPath.documentId()).limit(size);
+            if (last != null) {
+                query = query.startAfter(last.get("id"));
             }
-            
-            QuerySnapshot querySnapshot = firestore.collection(collection).get().get();
-            List<Map<String, Object>> results = new ArrayList<>();
-            
+
+            QuerySnapshot querySnapshot = AsyncDatabaseConnectable.await(toCompletableFuture(query.get(), "Failed to get page"));
+            List<Map<String, Object>> page = new ArrayList<>(querySnapshot.size());
             querySnapshot.getDocuments().forEach(doc -> {
                 Map<String, Object> data = doc.getData();
                 if (data != null) {
                     data.put("id", doc.getId()); // Add document ID to the data
-                    results.add(data);
+                    page.add(data);
                 }
             });
-            
-            System.out.println("Successfully retrieved " + results.size() + " documents from " + collection);
-            return results;
+            return page;
+        }, pageSize);
+    }
+
+    // Non-blocking operations
 
-        } catch (InterruptedException | ExecutionException e) {
-            throw new DatabaseException("Failed to get all data: " + e.getMessage());
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        if (firestore == null) {
+            return notInitialized();
         }
+
+        long startNanos = System.nanoTime();
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        return toCompletableFuture(docRef.set(toFirestoreFields(data)), "Failed to save data")
+                .thenAccept(result -> log.debug("Document saved",
+                        "collection", collection, "documentId", documentId, "latencyMs", AsyncLogger.elapsedMillis(startNanos)));
     }
 
     @Override
-    public void update(String collection, String documentId, Map<String, Object> data) throws Exception {
-        try {
-            if (firestore == null) {
-                throw new DatabaseException("Firestore not initialized. Call connect() first.");
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        if (firestore == null) {
+            return notInitialized();
+        }
+
+        long startNanos = System.nanoTime();
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        return toCompletableFuture(docRef.get(), "Failed to get data")
+                .thenApply(document -> {
+                    boolean found = document.exists();
+                    log.debug(found ? "Document retrieved" : "Document not found",
+                            "collection", collection, "documentId", documentId, "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+                    return found ? document.getData() : null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        if (firestore == null) {
+            return notInitialized();
+        }
+
+        long startNanos = System.nanoTime();
+        return toCompletableFuture(firestore.collection(collection).get(), "Failed to get all data")
+                .thenApply(querySnapshot -> {
+                    List<Map<String, Object>> results = new ArrayList<>();
+
+                    querySnapshot.getDocuments().forEach(doc -> {
+                        Map<String, Object> data = doc.getData();
+                        if (data != null) {
+                            data.put("id", doc.getId()); // Add document ID to the data
+                            results.add(data);
+                        }
+                    });
+
+                    log.debug("Collection retrieved",
+                            "collection", collection, "documents", results.size(), "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+                    return results;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        if (firestore == null) {
+            return notInitialized();
+        }
+
+        long startNanos = System.nanoTime();
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        return toCompletableFuture(docRef.update(toFirestoreFields(data)), "Failed to update data")
+                .thenAccept(result -> log.debug("Document updated",
+                        "collection", collection, "documentId", documentId, "latencyMs", AsyncLogger.elapsedMillis(startNanos)));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        if (firestore == null) {
+            return notInitialized();
+        }
+
+        long startNanos = System.nanoTime();
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        return toCompletableFuture(docRef.delete(), "Failed to delete data")
+                .thenAccept(result -> log.debug("Document deleted",
+                        "collection", collection, "documentId", documentId, "latencyMs", AsyncLogger.elapsedMillis(startNanos)));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        if (firestore == null) {
+            return notInitialized();
+        }
+
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<?>> commits = new ArrayList<>();
+        WriteBatch batch = firestore.batch();
+        int batchSize = 0;
+
+        for (Map.Entry<String, Map<String, Object>> entry : updatesByDocumentId.entrySet()) {
+            DocumentReference docRef = firestore.collection(collection).document(entry.getKey());
+            // Merge so a queued update never fails on a document whose create is still in flight.
+            // Callers only queue documents that were saved (UserService skips users kept in memory only).
+            batch.set(docRef, toFirestoreFields(entry.getValue()), SetOptions.merge());
+            batchSize++;
+
+            if (batchSize == MAX_BATCH_WRITES) {
+                commits.add(toCompletableFuture(batch.commit(), "Failed to commit batch"));
+                batch = firestore.batch();
+                batchSize = 0;
             }
-            
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            docRef.update(data).get();
-            
-            System.out.println("Successfully updated " + collection + "/" + documentId);
-
-        } catch (InterruptedException | ExecutionException e) {
-            throw new DatabaseException("Failed to update data: " + e.getMessage());
         }
+        if (batchSize > 0) {
+            commits.add(toCompletableFuture(batch.commit(), "Failed to commit batch"));
+        }
+
+        return CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> log.debug("Batch updated", "collection", collection,
+                        "documents", updatesByDocumentId.size(), "commits", commits.size(), "latencyMs", AsyncLogger.elapsedMillis(startNanos)));
     }
 
     @Override
-    public void delete(String collection, String documentId) throws Exception {
-        try {
-            if (firestore == null) {
-                throw new DatabaseException("Firestore not initialized. Call connect() first.");
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        if (firestore == null) {
+            throw new DatabaseException("Firestore not initialized. Call connect() first.");
+        }
+
+        // The SDK keeps every document the query matches in memory, so match only recently written ones
+        Query query = firestore.collection(collection);
+        if (changedSinceMillis > 0) {
+            query = query.whereGreaterThanOrEqualTo(UPDATED_AT_FIELD, Timestamp.ofTimeMicroseconds(changedSinceMillis * 1000));
+        }
+        ListenerRegistration registration = query.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                listener.onError(new DatabaseException("Listener on " + collection + " failed: " + error.getMessage(), error));
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+
+            // Only the documents that changed since the previous snapshot
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                QueryDocumentSnapshot doc = change.getDocument();
+                switch (change.getType()) {
+                    case ADDED:
+                        listener.onChange(DocumentChangeListener.ChangeType.ADDED, doc.getId(), doc.getData());
+                        break;
+                    case MODIFIED:
+                        listener.onChange(DocumentChangeListener.ChangeType.MODIFIED, doc.getId(), doc.getData());
+                        break;
+                    case REMOVED:
+                        listener.onChange(DocumentChangeListener.ChangeType.REMOVED, doc.getId(), null);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+
+        log.info("Listening for changes", "collection", collection, "changedSinceMillis", changedSinceMillis);
+        return registration::remove;
+    }
+
+    // Private helper methods
+
+    private static <T> CompletableFuture<T> notInitialized() {
+        return CompletableFuture.failedFuture(
+                new DatabaseException("Firestore not initialized. Call connect() first."));
+    }
+
+    /**
+     * Translate FieldDeltas into Firestore transforms so increments and unions are applied server-side,
+     * and stamp the write with the server's time for {@link #listen(String, long, DocumentChangeListener)}.
+     */
+    private static Map<String, Object> toFirestoreFields(Map<String, Object> data) {
+        Map<String, Object> fields = new HashMap<>(data);
+        fields.put(UPDATED_AT_FIELD, FieldValue.serverTimestamp());
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (field.getValue() instanceof FieldDelta) {
+                FieldDelta delta = (FieldDelta) field.getValue();
+                field.setValue(delta.getKind() == FieldDelta.Kind.INCREMENT
+                        ? FieldValue.increment(delta.getIncrement())
+                        : FieldValue.arrayUnion(delta.getElements().toArray()));
             }
-            
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            docRef.delete().get();
-            
-            System.out.println("Successfully deleted " + collection + "/" + documentId);
-
-        } catch (InterruptedException | ExecutionException e) {
-            throw new DatabaseException("Failed to delete data: " + e.getMessage());
         }
+        return fields;
+    }
+
+    /**
+     * Bridge a Firestore ApiFuture to a CompletableFuture without blocking any thread.
+     * Failures complete the future with a DatabaseException.
+     */
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture, String errorMessage) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(new DatabaseException(errorMessage + ": " + t.getMessage(), t));
+            }
+        }, Runnable::run);
+        return future;
     }
-}
\ No newline at end of file
+}
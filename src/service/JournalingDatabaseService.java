@@ -0,0 +1,351 @@
+package service;
+
+import exception.DatabaseException;
+import exception.DatabaseUnavailableException;
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
+import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes go to a {@link WriteJournal} first and are applied to the database from there.
+ *
+ * Up to -Dcodevia.journal.maxInFlight writes are applied at once, but writes to the same document
+ * are applied one after the other, in journal order. While the database is reachable a write's
+ * future completes once it is applied (or fails for a reason retrying won't fix). When the database
+ * is unavailable the write stays in the journal, the future completes as soon as it is safely on disk,
+ * and the journal is replayed once the database answers again, also after a restart.
+ *
+ * Writes with increments or array unions carry the journal sequence number in a
+ * {@code _journal_<clientId>} field. A replay of a write that may already have landed reads that
+ * field first and skips documents that already have it, so XP is never granted twice.
+ */
+public class JournalingDatabaseService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    public static final long DEFAULT_REPLAY_DELAY_MILLIS = 5_000;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(JournalingDatabaseService.class);
+
+    private final AsyncDatabaseConnectable delegate;
+    private final WriteJournal journal;
+    private final String appliedField;
+    private final long replayDelayMillis;
+    private final int maxInFlight;
+    private final ScheduledExecutorService replayer;
+
+    // Guarded by this
+    private final Map<Long, WriteJournal.Entry> inFlight = new HashMap<>();
+    private boolean offline = false; // Last attempt found the database unavailable
+    private boolean started = false;
+    private boolean retryScheduled = false;
+
+    public JournalingDatabaseService(AsyncDatabaseConnectable delegate, WriteJournal journal) {
+        this(delegate, journal, Long.getLong("codevia.journal.replayDelayMillis", DEFAULT_REPLAY_DELAY_MILLIS));
+    }
+
+    public JournalingDatabaseService(AsyncDatabaseConnectable delegate, WriteJournal journal, long replayDelayMillis) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.appliedField = "_journal_" + journal.getClientId();
+        this.replayDelayMillis = replayDelayMillis;
+        this.maxInFlight = Math.max(1, Integer.getInteger("codevia.journal.maxInFlight", DEFAULT_MAX_IN_FLIGHT));
+        this.replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public AsyncDatabaseConnectable getDelegate() {
+        return delegate;
+    }
+
+    public WriteJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Start applying journaled writes, including any left over from a previous run.
+     * Called once the database is connected.
+     */
+    public void start() {
+        synchronized (this) {
+            started = true;
+        }
+        dispatch();
+    }
+
+    @Override
+    public void connect() throws Exception {
+        delegate.connect();
+    }
+
+    // Paging; the other blocking operations wait for the non-blocking ones
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        return delegate.streamAll(collection, pageSize);
+    }
+
+    // Non-blocking operations
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        return submit("save", collection, single(documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        return delegate.getAsync(collection, documentId);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        return delegate.getAllAsync(collection);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        return submit("update", collection, single(documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        return submit("delete", collection, single(documentId, null));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        updatesByDocumentId.forEach((documentId, fields) -> documents.put(documentId, new HashMap<>(fields)));
+        return submit("updateBatch", collection, documents);
+    }
+
+    @Override
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        return delegate.listen(collection, changedSinceMillis, listener);
+    }
+
+    public void displayStats() {
+        int applying;
+        synchronized (this) {
+            applying = inFlight.size();
+        }
+        System.out.println("Write journal: " + journal.getPendingCount() + " writes waiting to be applied ("
+                + applying + " in flight)");
+    }
+
+    // Private helper methods
+
+    private CompletableFuture<Void> submit(String operation, String collection, Map<String, Map<String, Object>> documents) {
+        WriteJournal.Entry entry;
+        try {
+            entry = journal.append(operation, collection, documents);
+        } catch (Exception e) {
+            // Can't keep it durable, at least try to apply it directly
+            log.error("Failed to journal write, applying it directly", e, "collection", collection);
+            return apply(operation, collection, documents);
+        }
+
+        boolean unavailable;
+        synchronized (this) {
+            unavailable = offline;
+        }
+        if (unavailable) {
+            // Safely on disk, don't keep the caller waiting for the outage to end
+            entry.getResult().complete(null);
+        }
+        dispatch();
+        return entry.getResult().copy();
+    }
+
+    /**
+     * Start applying the oldest journaled writes that don't touch a document an earlier,
+     * unfinished write touches. While the database is unavailable only one write at a time
+     * probes it.
+     */
+    private void dispatch() {
+        List<WriteJournal.Entry> starting = new ArrayList<>();
+        synchronized (this) {
+            int limit = offline ? 1 : maxInFlight;
+            if (!started || retryScheduled || inFlight.size() >= limit) {
+                return;
+            }
+
+            Set<String> busy = new HashSet<>();
+            for (WriteJournal.Entry entry : journal.getOldestPending(maxInFlight * 4)) {
+                boolean blocked = false;
+                for (String documentId : entry.getDocuments().keySet()) {
+                    blocked |= !busy.add(entry.getCollection() + "/" + documentId);
+                }
+                if (blocked || inFlight.containsKey(entry.getSeq())) {
+                    continue;
+                }
+                inFlight.put(entry.getSeq(), entry);
+                starting.add(entry);
+                if (inFlight.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        starting.forEach(this::applyEntry);
+    }
+
+    private void applyEntry(WriteJournal.Entry entry) {
+        skipAppliedDocuments(entry)
+                .thenCompose(documents -> documents.isEmpty()
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : apply(entry.getOperation(), entry.getCollection(), withSequence(entry, documents)))
+                .whenCompleteAsync((result, error) -> applied(entry, error), replayer);
+    }
+
+    private void applied(WriteJournal.Entry entry, Throwable error) {
+        if (error == null) {
+            synchronized (this) {
+                offline = false;
+            }
+            finish(entry, null);
+            dispatch();
+            return;
+        }
+
+        Throwable cause = DatabaseConnectionManager.unwrap(error);
+        if (!(cause instanceof DatabaseUnavailableException) && !ResilientDatabaseService.isTransient(cause)) {
+            log.error("Dropping journaled write the database rejected", cause,
+                    "operation", entry.getOperation(), "collection", entry.getCollection(), "seq", entry.getSeq());
+            finish(entry, cause);
+            dispatch();
+            return;
+        }
+
+        if (!(cause instanceof DatabaseUnavailableException)) {
+            entry.markUncertain(); // A timed out write may still have landed
+        }
+        boolean wentOffline;
+        synchronized (this) {
+            inFlight.remove(entry.getSeq());
+            wentOffline = !offline;
+            offline = true;
+            if (!retryScheduled) {
+                retryScheduled = true;
+                replayer.schedule(this::retry, replayDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (wentOffline) {
+            // Everything journaled is on disk and will be replayed, callers don't need to wait for that
+            journal.getPending().forEach(pending -> pending.getResult().complete(null));
+            log.warn("Database unavailable, keeping writes in the journal: " + cause.getMessage(),
+                    "pending", journal.getPendingCount(), "retryInMs", replayDelayMillis);
+        }
+    }
+
+    private void retry() {
+        synchronized (this) {
+            retryScheduled = false;
+        }
+        dispatch();
+    }
+
+    // Acknowledge before leaving inFlight, so dispatch() can't start the write again
+    private void finish(WriteJournal.Entry entry, Throwable error) {
+        try {
+            journal.acknowledge(entry);
+        } catch (Exception e) {
+            log.error("Failed to acknowledge journaled write", e, "seq", entry.getSeq());
+        }
+        synchronized (this) {
+            inFlight.remove(entry.getSeq());
+        }
+        if (error == null) {
+            entry.getResult().complete(null);
+        } else {
+            entry.getResult().completeExceptionally(error);
+        }
+    }
+
+    /**
+     * For a write that may already have been applied, leave out the documents that show it was.
+     */
+    private CompletableFuture<Map<String, Map<String, Object>>> skipAppliedDocuments(WriteJournal.Entry entry) {
+        if (!entry.isUncertain()) {
+            return CompletableFuture.completedFuture(entry.getDocuments());
+        }
+
+        Map<String, Map<String, Object>> remaining = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> document : entry.getDocuments().entrySet()) {
+            if (isIdempotent(document.getValue())) {
+                remaining.put(document.getKey(), document.getValue());
+                continue;
+            }
+            checks.add(delegate.getAsync(entry.getCollection(), document.getKey()).thenAccept(current -> {
+                Object applied = current == null ? null : current.get(appliedField);
+                if (applied instanceof Number && ((Number) applied).longValue() >= entry.getSeq()) {
+                    log.info("Journaled write already applied, skipping", "collection", entry.getCollection(),
+                            "documentId", document.getKey(), "seq", entry.getSeq());
+                    return;
+                }
+                synchronized (remaining) {
+                    remaining.put(document.getKey(), document.getValue());
+                }
+            }));
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> remaining);
+    }
+
+    // Tag non-idempotent writes with their sequence number so a later replay can tell they landed
+    private Map<String, Map<String, Object>> withSequence(WriteJournal.Entry entry, Map<String, Map<String, Object>> documents) {
+        Map<String, Map<String, Object>> tagged = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+            Map<String, Object> fields = document.getValue();
+            if (fields != null && !isIdempotent(fields)) {
+                fields = new HashMap<>(fields);
+                fields.put(appliedField, entry.getSeq());
+            }
+            tagged.put(document.getKey(), fields);
+        }
+        return tagged;
+    }
+
+    private CompletableFuture<Void> apply(String operation, String collection, Map<String, Map<String, Object>> documents) {
+        if (operation.equals("updateBatch")) {
+            return delegate.updateBatchAsync(collection, documents);
+        }
+
+        Map.Entry<String, Map<String, Object>> document = documents.entrySet().iterator().next();
+        switch (operation) {
+            case "save":
+                return delegate.saveAsync(collection, document.getKey(), document.getValue());
+            case "update":
+                return delegate.updateAsync(collection, document.getKey(), document.getValue());
+            case "delete":
+                return delegate.deleteAsync(collection, document.getKey());
+            default:
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown journaled operation: " + operation));
+        }
+    }
+
+    private static boolean isIdempotent(Map<String, Object> fields) {
+        return fields == null || fields.values().stream().noneMatch(value -> value instanceof FieldDelta);
+    }
+
+    private static Map<String, Map<String, Object>> single(String documentId, Map<String, Object> data) {
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        documents.put(documentId, data == null ? null : new HashMap<>(data));
+        return documents;
+    }
+}
@@ -0,0 +1,104 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in microseconds, bucketed like HdrHistogram.
+ *
+ * Values below 64 get a bucket each; above that every power of two is split into
+ * 32 linear buckets, so any reported percentile is within about 3% of the real value
+ * while the whole histogram stays a fixed array of counters.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int LINEAR_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKETS = LINEAR_BUCKETS / 2;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Point-in-time copy; recording may continue while it is taken.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0; // Summed from the copied buckets, so percentile ranks always match them
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalMicros.sum(), maxMicros.get());
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = highestBit - (SUB_BUCKET_BITS - 1);
+        return LINEAR_BUCKETS + (shift - 1) * HALF_BUCKETS + (int) ((micros >>> shift) - HALF_BUCKETS);
+    }
+
+    // Largest value that lands in the bucket
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / HALF_BUCKETS + 1;
+        long subBucket = (bucket - LINEAR_BUCKETS) % HALF_BUCKETS + HALF_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Immutable view of a histogram, all values in milliseconds.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() { return count; }
+        public double getMaxMillis() { return maxMicros / 1_000.0; }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalMicros / 1_000.0 / count;
+        }
+
+        /**
+         * Latency at the given percentile (0-100).
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros) / 1_000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+}
@@ -0,0 +1,761 @@
+// service/LocalStoreService.java
+package service;
+
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
+import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
+import exception.DatabaseException;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded document store on local disk, with the same collection/document
+ * semantics as {@link FirebaseService}.
+ *
+ * Each collection is an append-only log of document versions plus a
+ * memory-mapped index file mapping document ids to their latest log offset.
+ * Used for offline/on-prem runs and as the fallback when Firebase is unreachable.
+ *
+ * Durability is set with -Dcodevia.localStore.fsync=always|interval|never (default interval,
+ * every -Dcodevia.localStore.fsyncIntervalMillis).
+ */
+public class LocalStoreService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    public static final String DEFAULT_DATA_DIR = "./data";
+    public static final long DEFAULT_COMPACT_MIN_BYTES = 4 * 1024 * 1024;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(LocalStoreService.class);
+
+    private final Path dataDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CollectionLog> collections = new ConcurrentHashMap<>();
+    private final ExecutorService ioExecutor;
+    private final ExecutorService eventExecutor; // Delivers change events in write order, outside any lock
+    private final Map<String, List<DocumentChangeListener>> listeners = new ConcurrentHashMap<>();
+    private final WriteJournal.FsyncPolicy fsyncPolicy;
+    private final long compactMinBytes;
+    private ScheduledExecutorService fsyncScheduler;
+    private volatile boolean connected = false;
+
+    public LocalStoreService(Path dataDir) {
+        this.dataDir = dataDir;
+        this.fsyncPolicy = WriteJournal.FsyncPolicy.valueOf(
+                System.getProperty("codevia.localStore.fsync", "interval").toUpperCase());
+        this.compactMinBytes = Long.getLong("codevia.localStore.compactMinBytes", DEFAULT_COMPACT_MIN_BYTES);
+        this.ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-store-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-store-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Lazy, thread-safe initialization: the JVM runs the holder's initializer once
+    private static class Holder {
+        private static final LocalStoreService INSTANCE =
+                new LocalStoreService(Paths.get(System.getProperty("codevia.dataDir", DEFAULT_DATA_DIR)));
+    }
+
+    public static LocalStoreService getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public synchronized void connect() throws Exception {
+        if (connected) {
+            return;
+        }
+        try {
+            Files.createDirectories(dataDir);
+            if (fsyncPolicy == WriteJournal.FsyncPolicy.INTERVAL) {
+                long intervalMillis = Long.getLong("codevia.localStore.fsyncIntervalMillis", 1_000);
+                fsyncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "local-store-fsync");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                fsyncScheduler.scheduleAtFixedRate(this::sync, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            }
+            connected = true;
+            log.info("Local store initialized", "dataDir", dataDir.toAbsolutePath());
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to open local store: " + e.getMessage(), e);
+        }
+    }
+
+    // Blocking operations
+
+    @Override
+    public void save(String collection, String documentId, Map<String, Object> data) throws Exception {
+        CollectionLog log = collection(collection);
+        log.put(documentId, resolveDeltas(null, data));
+    }
+
+    @Override
+    public Map<String, Object> get(String collection, String documentId) throws Exception {
+        return collection(collection).get(documentId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getAll(String collection) throws Exception {
+        return collection(collection).getAll();
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        CollectionLog log = collection(collection);
+        return PagedIterator.stream((last, size) -> log.getPage(last == null ? null : (String) last.get("id"), size), pageSize);
+    }
+
+    @Override
+    public void update(String collection, String documentId, Map<String, Object> data) throws Exception {
+        CollectionLog log = collection(collection);
+        synchronized (log) {
+            Map<String, Object> existing = log.get(documentId);
+            if (existing == null) {
+                // Same behaviour as Firestore's update on a missing document
+                throw new DatabaseException("Failed to update data: document not found " + collection + "/" + documentId);
+            }
+            log.put(documentId, resolveDeltas(existing, data));
+        }
+    }
+
+    @Override
+    public void delete(String collection, String documentId) throws Exception {
+        collection(collection).delete(documentId);
+    }
+
+    // Non-blocking operations, run on the store's I/O thread
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        return runAsync(() -> {
+            save(collection, documentId, data);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        return runAsync(() -> get(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        return runAsync(() -> getAll(collection));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        return runAsync(() -> {
+            update(collection, documentId, data);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        return runAsync(() -> {
+            delete(collection, documentId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        return runAsync(() -> {
+            CollectionLog log = collection(collection);
+            synchronized (log) {
+                for (Map.Entry<String, Map<String, Object>> entry : updatesByDocumentId.entrySet()) {
+                    // Merge semantics, like the Firestore batch
+                    Map<String, Object> existing = log.get(entry.getKey());
+                    log.put(entry.getKey(), resolveDeltas(existing, entry.getValue()));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Change feed equivalent to a Firestore snapshot listener, for offline runs and tests.
+     */
+    @Override
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        CollectionLog log = collection(collection);
+        List<DocumentChangeListener> collectionListeners =
+                listeners.computeIfAbsent(collection, name -> new CopyOnWriteArrayList<>());
+        collectionListeners.add(listener);
+
+        // Initial snapshot goes through the event thread too, so later changes arrive after it
+        eventExecutor.execute(() -> {
+            try {
+                for (Map<String, Object> data : log.getWrittenSince(changedSinceMillis)) {
+                    String documentId = (String) data.remove("id");
+                    listener.onChange(DocumentChangeListener.ChangeType.ADDED, documentId, data);
+                }
+            } catch (Exception e) {
+                listener.onError(e);
+            }
+        });
+
+        return () -> collectionListeners.remove(listener);
+    }
+
+    /**
+     * Force every collection's recent writes to disk.
+     */
+    public void sync() {
+        for (CollectionLog collection : collections.values()) {
+            try {
+                collection.sync();
+            } catch (IOException e) {
+                log.error("Failed to sync local store", e, "collection", collection.name);
+            }
+        }
+    }
+
+    // Private helper methods
+
+    private void publishChange(String collection, DocumentChangeListener.ChangeType type,
+                               String documentId, Map<String, Object> data) {
+        List<DocumentChangeListener> collectionListeners = listeners.get(collection);
+        if (collectionListeners == null || collectionListeners.isEmpty()) {
+            return;
+        }
+
+        eventExecutor.execute(() -> {
+            for (DocumentChangeListener listener : collectionListeners) {
+                try {
+                    listener.onChange(type, documentId, data == null ? null : new LinkedHashMap<>(data));
+                } catch (RuntimeException e) {
+                    log.warn("Change listener failed", e, "collection", collection, "documentId", documentId);
+                }
+            }
+        });
+    }
+
+    private interface IoTask<T> {
+        T run() throws Exception;
+    }
+
+    private <T> CompletableFuture<T> runAsync(IoTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ioExecutor.execute(() -> {
+            try {
+                future.complete(task.run());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private CollectionLog collection(String collection) throws DatabaseException {
+        if (!connected) {
+            throw new DatabaseException("Local store not initialized. Call connect() first.");
+        }
+        if (collection.contains("/") || collection.contains("\\") || collection.startsWith(".")) {
+            throw new DatabaseException("Invalid collection name: " + collection);
+        }
+
+        try {
+            return collections.computeIfAbsent(collection, name -> {
+                try {
+                    return new CollectionLog(name, dataDir.resolve(name + ".log"), dataDir.resolve(name + ".idx"));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            throw new DatabaseException("Failed to open collection " + collection + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Apply the incoming fields on top of the current document. FieldDeltas are resolved
+     * against the current value since we store plain values only.
+     */
+    private static Map<String, Object> resolveDeltas(Map<String, Object> current, Map<String, Object> data) {
+        Map<String, Object> merged = current == null ? new LinkedHashMap<>() : new LinkedHashMap<>(current);
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof FieldDelta) {
+                value = ((FieldDelta) value).applyTo(merged.get(field.getKey()));
+            }
+            merged.put(field.getKey(), value);
+        }
+        return merged;
+    }
+
+    /**
+     * One collection on disk.
+     *
+     * Log header:   [int magic][int version][long generation]
+     * Log record:   [int length][int crc][byte op][short idLength][id bytes][JSON payload], crc over what follows it
+     * Index header: [long usedBytes][long logEnd][long generation]
+     * Index entry:  [short idLength][id bytes][long logOffset, -1 when deleted][int recordSize]
+     *
+     * Every write appends to both files. Once overwritten and deleted records take up more room than
+     * the live ones (and at least codevia.localStore.compactMinBytes), both are rewritten with only the
+     * live documents and swapped in. The generation ties an index to its log: if a crash leaves the two
+     * from different rewrites, the index is rebuilt from the log.
+     */
+    private class CollectionLog {
+        private static final int LOG_MAGIC = 0x43564C47; // "CVLG"
+        private static final int LOG_VERSION = 1;
+        private static final int LOG_HEADER_SIZE = 16;
+        private static final int RECORD_HEADER_SIZE = 8;
+        private static final byte OP_PUT = 1;
+        private static final byte OP_DELETE = 2;
+        private static final int INDEX_HEADER_SIZE = 24;
+        private static final int INITIAL_INDEX_SIZE = 64 * 1024;
+
+        private final String name;
+        private final Path logFile;
+        private final Path indexFile;
+        private FileChannel logChannel;
+        private FileChannel indexChannel;
+        private MappedByteBuffer indexBuffer;
+        private long generation;
+        private long logEnd; // Where the next record goes
+        private long liveBytes; // Size of the records the index points to
+        private boolean unsynced;
+        private final TreeMap<String, Long> offsets = new TreeMap<>(); // Sorted so pages can resume after an id
+        private final Map<String, Integer> recordSizes = new HashMap<>();
+        private final Map<String, Long> writtenAtMillis = new HashMap<>(); // Documents written since the store opened
+
+        CollectionLog(String name, Path logFile, Path indexFile) throws IOException {
+            this.name = name;
+            this.logFile = logFile;
+            this.indexFile = indexFile;
+            open();
+        }
+
+        synchronized void put(String documentId, Map<String, Object> data) throws IOException {
+            byte[] payload = objectMapper.writeValueAsBytes(data);
+            long offset = append(OP_PUT, documentId, payload);
+            boolean existed = offsets.containsKey(documentId);
+            index(documentId, offset, (int) (logEnd - offset));
+            writtenAtMillis.put(documentId, System.currentTimeMillis());
+            publishChange(name, existed ? DocumentChangeListener.ChangeType.MODIFIED : DocumentChangeListener.ChangeType.ADDED,
+                    documentId, data);
+            compactIfNeeded();
+        }
+
+        synchronized void delete(String documentId) throws IOException {
+            if (!offsets.containsKey(documentId)) {
+                return;
+            }
+            long offset = append(OP_DELETE, documentId, new byte[0]);
+            index(documentId, -1, (int) (logEnd - offset));
+            writtenAtMillis.remove(documentId);
+            publishChange(name, DocumentChangeListener.ChangeType.REMOVED, documentId, null);
+            compactIfNeeded();
+        }
+
+        synchronized Map<String, Object> get(String documentId) throws IOException {
+            Long offset = offsets.get(documentId);
+            return offset == null ? null : readDocument(offset);
+        }
+
+        synchronized List<Map<String, Object>> getAll() throws IOException {
+            List<Map<String, Object>> results = new ArrayList<>(offsets.size());
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                Map<String, Object> data = readDocument(entry.getValue());
+                data.put("id", entry.getKey()); // Add document ID to the data, like FirebaseService
+                results.add(data);
+            }
+            return results;
+        }
+
+        /**
+         * Documents written at or after sinceMillis; all of them for 0. Write times aren't stored,
+         * so anything written before the store was opened counts as older.
+         */
+        synchronized List<Map<String, Object>> getWrittenSince(long sinceMillis) throws IOException {
+            if (sinceMillis <= 0) {
+                return getAll();
+            }
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map.Entry<String, Long> written : writtenAtMillis.entrySet()) {
+                Long offset = offsets.get(written.getKey());
+                if (written.getValue() >= sinceMillis && offset != null) {
+                    Map<String, Object> data = readDocument(offset);
+                    data.put("id", written.getKey());
+                    results.add(data);
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Up to pageSize documents with ids after afterId (from the start when null).
+         */
+        synchronized List<Map<String, Object>> getPage(String afterId, int pageSize) throws IOException {
+            Map<String, Long> remaining = afterId == null ? offsets : offsets.tailMap(afterId, false);
+            List<Map<String, Object>> page = new ArrayList<>(Math.min(pageSize, remaining.size()));
+            for (Map.Entry<String, Long> entry : remaining.entrySet()) {
+                if (page.size() == pageSize) {
+                    break;
+                }
+                Map<String, Object> data = readDocument(entry.getValue());
+                data.put("id", entry.getKey());
+                page.add(data);
+            }
+            return page;
+        }
+
+        /**
+         * Force writes made since the last sync to disk, for the interval fsync policy.
+         */
+        synchronized void sync() throws IOException {
+            if (unsynced) {
+                logChannel.force(false);
+                indexBuffer.force();
+                unsynced = false;
+            }
+        }
+
+        private void open() throws IOException {
+            logChannel = new RandomAccessFile(logFile.toFile(), "rw").getChannel();
+            indexChannel = new RandomAccessFile(indexFile.toFile(), "rw").getChannel();
+            indexBuffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_INDEX_SIZE, indexChannel.size()));
+            offsets.clear();
+            recordSizes.clear();
+            liveBytes = 0;
+            load();
+        }
+
+        private void close() throws IOException {
+            indexBuffer.force();
+            logChannel.close();
+            indexChannel.close();
+        }
+
+        private long append(byte op, String documentId, byte[] payload) throws IOException {
+            ByteBuffer record = encodeRecord(op, documentId, payload);
+            long offset = logEnd;
+            // A failed write leaves logEnd where it was, so the next record overwrites the torn one
+            writeFully(logChannel, record, offset);
+            logEnd = offset + record.capacity();
+            if (fsyncPolicy == WriteJournal.FsyncPolicy.ALWAYS) {
+                logChannel.force(false);
+            } else {
+                unsynced = true;
+            }
+            return offset;
+        }
+
+        private void index(String documentId, long offset, int recordSize) throws IOException {
+            byte[] id = documentId.getBytes(StandardCharsets.UTF_8);
+            long used = indexBuffer.getLong(0);
+            int entrySize = 2 + id.length + 8 + 4;
+            ensureIndexCapacity(used + entrySize);
+
+            indexBuffer.position((int) used);
+            indexBuffer.putShort((short) id.length);
+            indexBuffer.put(id);
+            indexBuffer.putLong(offset);
+            indexBuffer.putInt(recordSize);
+            // Publish the entry only after it is fully written
+            indexBuffer.putLong(8, logEnd);
+            indexBuffer.putLong(0, used + entrySize);
+
+            track(documentId, offset, recordSize);
+        }
+
+        private void track(String documentId, long offset, int recordSize) {
+            Integer previousSize = offset < 0 ? recordSizes.remove(documentId) : recordSizes.put(documentId, recordSize);
+            if (previousSize != null) {
+                liveBytes -= previousSize;
+            }
+            if (offset < 0) {
+                offsets.remove(documentId);
+            } else {
+                offsets.put(documentId, offset);
+                liveBytes += recordSize;
+            }
+        }
+
+        private void ensureIndexCapacity(long required) throws IOException {
+            if (required <= indexBuffer.capacity()) {
+                return;
+            }
+            if (required > Integer.MAX_VALUE) {
+                // Compaction keeps the index near the number of live documents, so this takes billions of them
+                throw new IOException("Index of collection " + name + " is full");
+            }
+            long newSize = indexBuffer.capacity();
+            while (newSize < required) {
+                newSize = Math.min(newSize * 2, Integer.MAX_VALUE);
+            }
+            indexBuffer.force();
+            indexBuffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        }
+
+        private Map<String, Object> readDocument(long offset) throws IOException {
+            ByteBuffer body = readRecord(logChannel, offset, Long.MAX_VALUE);
+            if (body == null) {
+                throw new IOException("Corrupt record in collection " + name + " at offset " + offset);
+            }
+            int idLength = body.getShort(1);
+            int payloadOffset = 3 + idLength;
+            return objectMapper.readValue(body.array(), payloadOffset, body.capacity() - payloadOffset,
+                    new TypeReference<LinkedHashMap<String, Object>>() {});
+        }
+
+        /**
+         * The record's body (op onwards) if it is complete, ends before end and its checksum matches, else null.
+         */
+        private ByteBuffer readRecord(FileChannel channel, long position, long end) throws IOException {
+            if (position + RECORD_HEADER_SIZE > end) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            if (!readFully(channel, header, position)) {
+                return null;
+            }
+            int length = header.getInt(0);
+            if (length < 3 || position + RECORD_HEADER_SIZE + length > end) {
+                return null;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            if (!readFully(channel, body, position + RECORD_HEADER_SIZE)
+                    || checksum(body.array(), 0, length) != header.getInt(4)) {
+                return null;
+            }
+            return body;
+        }
+
+        /**
+         * Rebuild the in-memory id map from the index, then replay any log records written after
+         * the index was last published (e.g. after a crash). An index that doesn't belong to the
+         * log is rebuilt from the whole log.
+         */
+        private void load() throws IOException {
+            long size = logChannel.size();
+            if (size == 0) {
+                generation = 1;
+                writeFully(logChannel, logHeader(generation), 0);
+                logEnd = LOG_HEADER_SIZE;
+                resetIndex();
+                return;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+            if (!readFully(logChannel, header, 0) || header.getInt(0) != LOG_MAGIC || header.getInt(4) != LOG_VERSION) {
+                throw new IOException("Not a local store log: " + logFile);
+            }
+            generation = header.getLong(8);
+
+            long used = indexBuffer.getLong(0);
+            long indexedLogEnd = indexBuffer.getLong(8);
+            boolean indexMatches = indexBuffer.getLong(16) == generation
+                    && used >= INDEX_HEADER_SIZE && used <= indexBuffer.capacity()
+                    && indexedLogEnd >= LOG_HEADER_SIZE && indexedLogEnd <= size;
+            if (!indexMatches) {
+                if (used != 0) {
+                    log.warn("Local store index doesn't match its log, rebuilding", "collection", name);
+                }
+                resetIndex();
+                replayLog(LOG_HEADER_SIZE, size);
+                return;
+            }
+
+            indexBuffer.position(INDEX_HEADER_SIZE);
+            while (indexBuffer.position() < used) {
+                byte[] id = new byte[indexBuffer.getShort()];
+                indexBuffer.get(id);
+                long offset = indexBuffer.getLong();
+                int recordSize = indexBuffer.getInt();
+                track(new String(id, StandardCharsets.UTF_8), offset, recordSize);
+            }
+            replayLog(indexedLogEnd, size);
+        }
+
+        private void resetIndex() {
+            indexBuffer.putLong(0, INDEX_HEADER_SIZE);
+            indexBuffer.putLong(8, LOG_HEADER_SIZE);
+            indexBuffer.putLong(16, generation);
+        }
+
+        private void replayLog(long from, long end) throws IOException {
+            long position = from;
+            logEnd = from;
+            ByteBuffer body;
+            while ((body = readRecord(logChannel, position, end)) != null) {
+                byte op = body.get(0);
+                String documentId = new String(body.array(), 3, body.getShort(1), StandardCharsets.UTF_8);
+                int recordSize = RECORD_HEADER_SIZE + body.capacity();
+                logEnd = position + recordSize;
+                index(documentId, op == OP_DELETE ? -1 : position, recordSize);
+                position = logEnd;
+            }
+
+            if (position < end) {
+                log.warn("Local store log has a damaged tail, truncating",
+                        "collection", name, "validBytes", position, "size", end);
+                logChannel.truncate(position);
+            }
+            indexBuffer.putLong(8, logEnd);
+        }
+
+        private void compactIfNeeded() {
+            long deadBytes = logEnd - LOG_HEADER_SIZE - liveBytes;
+            if (deadBytes < compactMinBytes || deadBytes < liveBytes) {
+                return;
+            }
+            try {
+                compact();
+            } catch (IOException e) {
+                // The current files are still complete, try again after more writes
+                log.error("Failed to compact local store collection", e,
+                        "collection", name);
+            }
+        }
+
+        /**
+         * Copy the live records into a new log and index, then swap them in for the current ones.
+         */
+        private void compact() throws IOException {
+            long startNanos = System.nanoTime();
+            long bytesBefore = logEnd;
+            long nextGeneration = generation + 1;
+            Path compactLog = logFile.resolveSibling(logFile.getFileName() + ".compact");
+            Path compactIndex = indexFile.resolveSibling(indexFile.getFileName() + ".compact");
+            Files.deleteIfExists(compactLog);
+            Files.deleteIfExists(compactIndex);
+
+            try (FileChannel logOut = new RandomAccessFile(compactLog.toFile(), "rw").getChannel();
+                 FileChannel indexOut = new RandomAccessFile(compactIndex.toFile(), "rw").getChannel()) {
+                writeFully(logOut, logHeader(nextGeneration), 0);
+                long logPosition = LOG_HEADER_SIZE;
+                long indexPosition = INDEX_HEADER_SIZE;
+                ByteBuffer indexChunk = ByteBuffer.allocate(64 * 1024);
+
+                for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                    int recordSize = recordSizes.get(entry.getKey());
+                    ByteBuffer body = readRecord(logChannel, entry.getValue(), logEnd);
+                    if (body == null || RECORD_HEADER_SIZE + body.capacity() != recordSize) {
+                        throw new IOException("Corrupt record for " + entry.getKey() + " at offset " + entry.getValue());
+                    }
+                    ByteBuffer record = ByteBuffer.allocate(recordSize);
+                    record.putInt(body.capacity()).putInt(checksum(body.array(), 0, body.capacity())).put(body.array());
+                    record.flip();
+                    writeFully(logOut, record, logPosition);
+
+                    byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    if (indexChunk.remaining() < 2 + id.length + 8 + 4) {
+                        indexChunk.flip();
+                        indexPosition += writeFully(indexOut, indexChunk, indexPosition);
+                        indexChunk = ByteBuffer.allocate(Math.max(64 * 1024, 2 + id.length + 8 + 4));
+                    }
+                    indexChunk.putShort((short) id.length).put(id).putLong(logPosition).putInt(recordSize);
+                    logPosition += recordSize;
+                }
+                indexChunk.flip();
+                indexPosition += writeFully(indexOut, indexChunk, indexPosition);
+
+                ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+                indexHeader.putLong(indexPosition).putLong(logPosition).putLong(nextGeneration);
+                indexHeader.flip();
+                writeFully(indexOut, indexHeader, 0);
+                logOut.force(false);
+                indexOut.force(false);
+            } catch (IOException e) {
+                Files.deleteIfExists(compactLog);
+                Files.deleteIfExists(compactIndex);
+                throw e;
+            }
+
+            // A crash between the two moves leaves files of different generations, which load() handles
+            close();
+            try {
+                Files.move(compactLog, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(compactIndex, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                open();
+            }
+            log.info("Compacted local store collection", "collection", name,
+                    "bytesBefore", bytesBefore, "bytesAfter", logEnd, "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+        }
+
+        private ByteBuffer encodeRecord(byte op, String documentId, byte[] payload) {
+            byte[] id = documentId.getBytes(StandardCharsets.UTF_8);
+            int length = 1 + 2 + id.length + payload.length;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+            record.putInt(length);
+            record.putInt(0); // CRC, filled in below
+            record.put(op);
+            record.putShort((short) id.length);
+            record.put(id);
+            record.put(payload);
+            record.putInt(4, checksum(record.array(), RECORD_HEADER_SIZE, length));
+            record.flip();
+            return record;
+        }
+
+        private ByteBuffer logHeader(long generation) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+            header.putInt(LOG_MAGIC).putInt(LOG_VERSION).putLong(generation);
+            header.flip();
+            return header;
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        return length;
+    }
+
+    // False if the file ends first
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,191 @@
+package service;
+
+import exception.AuthenticationException;
+import exception.RateLimitException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throttles login attempts before any password hashing or database work is done.
+ *
+ * Every attempt takes a token from its source's bucket (IP address, console, ...) and one from the email's
+ * bucket, so an email with an empty bucket is locked out until it refills. The email's token is kept only
+ * if the password was wrong: a successful login refills the email's bucket, and an attempt that ends
+ * without a verdict gives its token back. On top of that only a fixed number of logins may be
+ * in flight at once. Buckets that have refilled completely are dropped, and the number of tracked keys
+ * is capped, so a flood of distinct keys can't exhaust memory.
+ *
+ * Configured with -Dcodevia.login.* properties (see README).
+ */
+public class LoginRateLimiter {
+    private static final AsyncLogger log = AsyncLogger.getLogger(LoginRateLimiter.class);
+
+    private final int emailCapacity;
+    private final long emailRefillNanos;
+    private final int sourceCapacity;
+    private final long sourceRefillNanos;
+    private final int maxKeys;
+    private final int maxInFlight;
+
+    private final Map<String, TokenBucket> emailBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> sourceBuckets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong rejectedBySource = new AtomicLong();
+    private final AtomicLong rejectedByEmail = new AtomicLong();
+    private final AtomicLong rejectedByConcurrency = new AtomicLong();
+
+    public LoginRateLimiter() {
+        this(Integer.getInteger("codevia.login.email.attempts", 5),
+                Long.getLong("codevia.login.email.refillMillis", 60_000),
+                Integer.getInteger("codevia.login.source.attempts", 30),
+                Long.getLong("codevia.login.source.refillMillis", 2_000),
+                Integer.getInteger("codevia.login.maxKeys", 100_000),
+                Integer.getInteger("codevia.login.maxInFlight", 32));
+    }
+
+    public LoginRateLimiter(int emailCapacity, long emailRefillMillis, int sourceCapacity, long sourceRefillMillis,
+                            int maxKeys, int maxInFlight) {
+        this.emailCapacity = emailCapacity;
+        this.emailRefillNanos = TimeUnit.MILLISECONDS.toNanos(emailRefillMillis);
+        this.sourceCapacity = sourceCapacity;
+        this.sourceRefillNanos = TimeUnit.MILLISECONDS.toNanos(sourceRefillMillis);
+        this.maxKeys = maxKeys;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Admit one login attempt, or throw if it is over a limit. The returned permit must be closed
+     * once the attempt is finished, after reporting its outcome.
+     */
+    public Permit acquire(String email, String source) throws AuthenticationException {
+        String normalized = UserDirectory.normalizeEmail(email);
+        String emailKey = normalized == null ? "" : normalized;
+        String sourceKey = source == null ? "unknown" : source;
+
+        TokenBucket sourceBucket = bucket(sourceBuckets, sourceKey, sourceCapacity, sourceRefillNanos);
+        if (!sourceBucket.tryAcquire()) {
+            rejectedBySource.incrementAndGet();
+            long wait = seconds(sourceBucket.nanosUntilToken());
+            throw new RateLimitException("Too many login attempts, please try again in " + wait + " seconds", wait);
+        }
+
+        // Reserved up front, so concurrent attempts for one email can't all pass a check of the same token
+        TokenBucket emailBucket = bucket(emailBuckets, emailKey, emailCapacity, emailRefillNanos);
+        if (!emailBucket.tryAcquire()) {
+            rejectedByEmail.incrementAndGet();
+            long wait = seconds(emailBucket.nanosUntilToken());
+            throw new RateLimitException("Account temporarily locked after failed attempts, please try again in "
+                    + wait + " seconds", wait);
+        }
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                emailBucket.refund();
+                rejectedByConcurrency.incrementAndGet();
+                throw new RateLimitException("Too many sign-ins in progress, please try again", 1);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(emailBucket);
+            }
+        }
+    }
+
+    public long getRejectedBySource() {
+        return rejectedBySource.get();
+    }
+
+    public long getRejectedByEmail() {
+        return rejectedByEmail.get();
+    }
+
+    public long getRejectedByConcurrency() {
+        return rejectedByConcurrency.get();
+    }
+
+    public int getTrackedKeys() {
+        return emailBuckets.size() + sourceBuckets.size();
+    }
+
+    public void displayStats() {
+        System.out.println("Login limiter - tracked keys: " + getTrackedKeys()
+                + ", in flight: " + inFlight.get()
+                + ", rejected (source/email/concurrency): " + rejectedBySource.get()
+                + "/" + rejectedByEmail.get() + "/" + rejectedByConcurrency.get());
+    }
+
+    private TokenBucket bucket(Map<String, TokenBucket> buckets, String key, int capacity, long refillNanos) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evict(buckets);
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillNanos));
+    }
+
+    /**
+     * Drop full buckets, which are no different from new ones. If every bucket is in use,
+     * drop arbitrary ones until there is room: they start over as full buckets.
+     */
+    private void evict(Map<String, TokenBucket> buckets) {
+        buckets.values().removeIf(TokenBucket::isFull);
+        if (buckets.size() < maxKeys) {
+            return;
+        }
+        int toRemove = buckets.size() - maxKeys * 9 / 10;
+        Iterator<TokenBucket> it = buckets.values().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        log.warn("Login limiter key map full, evicted active buckets", "maxKeys", maxKeys);
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    /**
+     * One admitted attempt. Report its outcome, then close it to free the in-flight slot.
+     */
+    public class Permit implements AutoCloseable {
+        private final TokenBucket emailBucket;
+        private boolean reported;
+        private boolean closed;
+
+        private Permit(TokenBucket emailBucket) {
+            this.emailBucket = emailBucket;
+        }
+
+        public void succeeded() {
+            reported = true;
+            emailBucket.reset();
+        }
+
+        /**
+         * The password was wrong; the email keeps the token this attempt took.
+         */
+        public void failed() {
+            reported = true;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (!reported) {
+                    emailBucket.refund();
+                }
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
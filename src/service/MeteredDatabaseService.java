@@ -0,0 +1,163 @@
+package service;
+
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
+import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Times every call to another database and records it in {@link DatabaseMetrics}.
+ * Blocking and non-blocking variants of an operation are counted together.
+ */
+public class MeteredDatabaseService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    private final AsyncDatabaseConnectable delegate;
+    private final DatabaseMetrics metrics;
+
+    public MeteredDatabaseService(AsyncDatabaseConnectable delegate, DatabaseMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public AsyncDatabaseConnectable getDelegate() {
+        return delegate;
+    }
+
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void connect() throws Exception {
+        delegate.connect();
+    }
+
+    // Paging; the other blocking operations wait for the non-blocking ones
+
+    /**
+     * Pages are fetched lazily while the consumer iterates, so one "streamAll" sample is recorded per
+     * stream: the time spent fetching, without the consumer's own work, once it ends, fails or is closed.
+     */
+    @Override
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        long startNanos = System.nanoTime();
+        Stream<Map<String, Object>> pages;
+        try {
+            pages = delegate.streamAll(collection, pageSize);
+        } catch (Exception e) {
+            metrics.record(collection, "streamAll", System.nanoTime() - startNanos, e);
+            throw e;
+        }
+        MeteredIterator iterator = new MeteredIterator(collection, pages.iterator(), System.nanoTime() - startNanos);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        pages.close();
+                    } finally {
+                        iterator.finish(null);
+                    }
+                });
+    }
+
+    // Non-blocking operations
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        return timedAsync(collection, "save", () -> delegate.saveAsync(collection, documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        return timedAsync(collection, "get", () -> delegate.getAsync(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        return timedAsync(collection, "getAll", () -> delegate.getAllAsync(collection));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        return timedAsync(collection, "update", () -> delegate.updateAsync(collection, documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        return timedAsync(collection, "delete", () -> delegate.deleteAsync(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        return timedAsync(collection, "updateBatch", () -> delegate.updateBatchAsync(collection, updatesByDocumentId));
+    }
+
+    @Override
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        return delegate.listen(collection, changedSinceMillis, listener);
+    }
+
+    // Private helper methods
+
+    private class MeteredIterator implements Iterator<Map<String, Object>> {
+        private final String collection;
+        private final Iterator<Map<String, Object>> pages;
+        private long fetchNanos;
+        private boolean recorded;
+
+        MeteredIterator(String collection, Iterator<Map<String, Object>> pages, long openNanos) {
+            this.collection = collection;
+            this.pages = pages;
+            this.fetchNanos = openNanos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long startNanos = System.nanoTime();
+            try {
+                boolean hasNext = pages.hasNext();
+                fetchNanos += System.nanoTime() - startNanos;
+                if (!hasNext) {
+                    finish(null);
+                }
+                return hasNext;
+            } catch (RuntimeException e) {
+                fetchNanos += System.nanoTime() - startNanos;
+                // PagedIterator wraps the DatabaseException of a failed page
+                finish(e instanceof IllegalStateException && e.getCause() != null ? e.getCause() : e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pages.next();
+        }
+
+        synchronized void finish(Throwable error) {
+            if (!recorded) {
+                recorded = true;
+                metrics.record(collection, "streamAll", fetchNanos, error);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> timedAsync(String collection, String operation, Supplier<CompletableFuture<T>> call) {
+        long startNanos = System.nanoTime();
+        return call.get().whenComplete((result, error) ->
+                metrics.record(collection, operation, System.nanoTime() - startNanos, error));
+    }
+}
@@ -0,0 +1,79 @@
+package service;
+
+import exception.DatabaseException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates a collection one page at a time, so only the current page is held in memory.
+ * The fetcher receives the last element of the previous page (null for the first page).
+ */
+public class PagedIterator<T> implements Iterator<T> {
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    public interface PageFetcher<T> {
+        List<T> fetchPage(T lastOfPreviousPage, int pageSize) throws Exception;
+    }
+
+    private final PageFetcher<T> fetcher;
+    private final int pageSize;
+    private List<T> page;
+    private int position = 0;
+    private boolean lastPage = false;
+
+    public PagedIterator(PageFetcher<T> fetcher, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.fetcher = fetcher;
+        this.pageSize = pageSize;
+    }
+
+    public static int configuredPageSize() {
+        return Integer.getInteger("codevia.pageSize", DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Failures while fetching a page are thrown as IllegalStateException wrapping the DatabaseException.
+     */
+    public static <T> Stream<T> stream(PageFetcher<T> fetcher, int pageSize) {
+        Iterator<T> iterator = new PagedIterator<>(fetcher, pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null && position < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+
+        T last = (page == null || page.isEmpty()) ? null : page.get(page.size() - 1);
+        try {
+            page = fetcher.fetchPage(last, pageSize);
+        } catch (DatabaseException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), new DatabaseException("Failed to fetch page: " + e.getMessage(), e));
+        }
+        position = 0;
+        lastPage = page.size() < pageSize;
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(position++);
+    }
+}
@@ -0,0 +1,337 @@
+package service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted scrypt password hashes, verified in constant time.
+ *
+ * Hashes are stored as {@code $scrypt$ln=15,r=8,p=1$<salt>$<hash>} (base64), so the cost travels with
+ * each hash and can be raised without invalidating existing passwords: {@link #needsRehash(String)} tells
+ * the caller to store a fresh hash after the next successful login. Values without the prefix are
+ * legacy plaintext passwords and are still accepted until they are rehashed.
+ *
+ * Each hash takes tens of milliseconds and 128 * r * 2^ln bytes of memory, so the work runs on a
+ * small bounded pool; when it is full new requests fail fast instead of piling up.
+ * Cost is set with -Dcodevia.password.logN, -Dcodevia.password.r and -Dcodevia.password.p, up to
+ * 256 MiB per hash; stored hashes asking for more are treated as invalid.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "$scrypt$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int DEFAULT_LOG_N = 15; // 32 MiB per hash with r=8
+    private static final int DEFAULT_R = 8;
+    private static final int DEFAULT_P = 1;
+
+    // Upper bounds for configured costs and for costs read back from stored hashes
+    private static final int MAX_LOG_N = 24;
+    private static final int MAX_R = 32;
+    private static final int MAX_P = 16;
+    private static final long MAX_MEMORY_BYTES = 256L * 1024 * 1024; // 128 * r * N
+    private static final int MAX_HASH_BYTES = 64;
+
+    private final int logN;
+    private final int r;
+    private final int p;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor executor;
+    private volatile String dummyHash; // Verified against for unknown users, so they take as long as known ones
+
+    private PasswordHasher() {
+        this.logN = Integer.getInteger("codevia.password.logN", DEFAULT_LOG_N);
+        this.r = Integer.getInteger("codevia.password.r", DEFAULT_R);
+        this.p = Integer.getInteger("codevia.password.p", DEFAULT_P);
+        if (!withinLimits(logN, r, p)) {
+            throw new IllegalArgumentException("Invalid scrypt parameters: ln=" + logN + ", r=" + r + ", p=" + p);
+        }
+
+        int threads = Integer.getInteger("codevia.password.threads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        int queueSize = Integer.getInteger("codevia.password.queueSize", 64);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static class Holder {
+        private static final PasswordHasher INSTANCE = new PasswordHasher();
+    }
+
+    public static PasswordHasher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Hash on the hasher pool. Fails with RejectedExecutionException when the pool is saturated.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> hash(password), executor);
+    }
+
+    /**
+     * Verify on the hasher pool. Fails with RejectedExecutionException when the pool is saturated.
+     * A null stored value is checked against a dummy hash, so unknown accounts cost the same time.
+     */
+    public CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (stored == null) {
+                verify(password, dummyHash());
+                return false;
+            }
+            return verify(password, stored);
+        }, executor);
+    }
+
+    /**
+     * Hash on the calling thread.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = scrypt(password.getBytes(StandardCharsets.UTF_8), salt, 1 << logN, r, p, HASH_BYTES);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "ln=" + logN + ",r=" + r + ",p=" + p + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify on the calling thread. The comparison takes the same time wherever the first difference is.
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        byte[] candidate = password.getBytes(StandardCharsets.UTF_8);
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(candidate, stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Parsed parsed = Parsed.of(stored);
+        if (parsed == null) {
+            return false;
+        }
+        byte[] actual = scrypt(candidate, parsed.salt, 1 << parsed.logN, parsed.r, parsed.p, parsed.hash.length);
+        return MessageDigest.isEqual(actual, parsed.hash);
+    }
+
+    public boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * True for plaintext values and for hashes made with other cost parameters than the current ones.
+     */
+    public boolean needsRehash(String stored) {
+        Parsed parsed = isHashed(stored) ? Parsed.of(stored) : null;
+        return parsed == null || parsed.logN != logN || parsed.r != r || parsed.p != p;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * A stored hash names its own cost, so it must not be able to demand more memory or CPU than
+     * this hasher would ever be configured with.
+     */
+    private static boolean withinLimits(int logN, int r, int p) {
+        return logN >= 1 && logN <= MAX_LOG_N && r >= 1 && r <= MAX_R && p >= 1 && p <= MAX_P
+                && 128L * r * (1L << logN) <= MAX_MEMORY_BYTES;
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = hash("codevia-dummy-password");
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private static class Parsed {
+        final int logN;
+        final int r;
+        final int p;
+        final byte[] salt;
+        final byte[] hash;
+
+        private Parsed(int logN, int r, int p, byte[] salt, byte[] hash) {
+            this.logN = logN;
+            this.r = r;
+            this.p = p;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        static Parsed of(String stored) {
+            // $scrypt$ln=15,r=8,p=1$salt$hash
+            String[] parts = stored.substring(PREFIX.length()).split("\\$");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                int logN = -1, r = -1, p = -1;
+                for (String param : parts[0].split(",")) {
+                    String[] pair = param.split("=", 2);
+                    int value = Integer.parseInt(pair[1]);
+                    switch (pair[0]) {
+                        case "ln": logN = value; break;
+                        case "r": r = value; break;
+                        case "p": p = value; break;
+                        default: return null;
+                    }
+                }
+                if (!withinLimits(logN, r, p)) {
+                    return null;
+                }
+                Base64.Decoder decoder = Base64.getDecoder();
+                byte[] hash = decoder.decode(parts[2]);
+                if (hash.length == 0 || hash.length > MAX_HASH_BYTES) {
+                    return null;
+                }
+                return new Parsed(logN, r, p, decoder.decode(parts[1]), hash);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    // scrypt (RFC 7914)
+
+    static byte[] scrypt(byte[] password, byte[] salt, int n, int r, int p, int length) {
+        int blockInts = 32 * r;
+        byte[] b = pbkdf2(password, salt, p * 128 * r);
+        int[] x = new int[blockInts];
+        int[] v = new int[blockInts * n];
+        int[] scratch = new int[blockInts + 16];
+
+        for (int i = 0; i < p; i++) {
+            int offset = i * 128 * r;
+            for (int k = 0; k < blockInts; k++) {
+                x[k] = readIntLE(b, offset + k * 4);
+            }
+            roMix(x, v, scratch, n, r);
+            for (int k = 0; k < blockInts; k++) {
+                writeIntLE(b, offset + k * 4, x[k]);
+            }
+        }
+        return pbkdf2(password, b, length);
+    }
+
+    private static void roMix(int[] x, int[] v, int[] scratch, int n, int r) {
+        int blockInts = 32 * r;
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(x, 0, v, i * blockInts, blockInts);
+            blockMix(x, scratch, r);
+        }
+        for (int i = 0; i < n; i++) {
+            int j = x[(2 * r - 1) * 16] & (n - 1);
+            int base = j * blockInts;
+            for (int k = 0; k < blockInts; k++) {
+                x[k] ^= v[base + k];
+            }
+            blockMix(x, scratch, r);
+        }
+    }
+
+    private static void blockMix(int[] b, int[] scratch, int r) {
+        int blockInts = 32 * r;
+        int[] y = scratch; // First blockInts ints hold the output, the last 16 the running block
+        int xOffset = blockInts;
+        System.arraycopy(b, (2 * r - 1) * 16, y, xOffset, 16);
+        for (int i = 0; i < 2 * r; i++) {
+            for (int k = 0; k < 16; k++) {
+                y[xOffset + k] ^= b[i * 16 + k];
+            }
+            salsa20_8(y, xOffset);
+            // Even blocks go to the first half of the output, odd blocks to the second
+            int target = (i % 2 == 0 ? i / 2 : r + i / 2) * 16;
+            System.arraycopy(y, xOffset, y, target, 16);
+        }
+        System.arraycopy(y, 0, b, 0, blockInts);
+    }
+
+    private static void salsa20_8(int[] b, int offset) {
+        int x0 = b[offset], x1 = b[offset + 1], x2 = b[offset + 2], x3 = b[offset + 3];
+        int x4 = b[offset + 4], x5 = b[offset + 5], x6 = b[offset + 6], x7 = b[offset + 7];
+        int x8 = b[offset + 8], x9 = b[offset + 9], x10 = b[offset + 10], x11 = b[offset + 11];
+        int x12 = b[offset + 12], x13 = b[offset + 13], x14 = b[offset + 14], x15 = b[offset + 15];
+        for (int i = 0; i < 8; i += 2) {
+            x4 ^= Integer.rotateLeft(x0 + x12, 7);   x8 ^= Integer.rotateLeft(x4 + x0, 9);
+            x12 ^= Integer.rotateLeft(x8 + x4, 13);  x0 ^= Integer.rotateLeft(x12 + x8, 18);
+            x9 ^= Integer.rotateLeft(x5 + x1, 7);    x13 ^= Integer.rotateLeft(x9 + x5, 9);
+            x1 ^= Integer.rotateLeft(x13 + x9, 13);  x5 ^= Integer.rotateLeft(x1 + x13, 18);
+            x14 ^= Integer.rotateLeft(x10 + x6, 7);  x2 ^= Integer.rotateLeft(x14 + x10, 9);
+            x6 ^= Integer.rotateLeft(x2 + x14, 13);  x10 ^= Integer.rotateLeft(x6 + x2, 18);
+            x3 ^= Integer.rotateLeft(x15 + x11, 7);  x7 ^= Integer.rotateLeft(x3 + x15, 9);
+            x11 ^= Integer.rotateLeft(x7 + x3, 13);  x15 ^= Integer.rotateLeft(x11 + x7, 18);
+            x1 ^= Integer.rotateLeft(x0 + x3, 7);    x2 ^= Integer.rotateLeft(x1 + x0, 9);
+            x3 ^= Integer.rotateLeft(x2 + x1, 13);   x0 ^= Integer.rotateLeft(x3 + x2, 18);
+            x6 ^= Integer.rotateLeft(x5 + x4, 7);    x7 ^= Integer.rotateLeft(x6 + x5, 9);
+            x4 ^= Integer.rotateLeft(x7 + x6, 13);   x5 ^= Integer.rotateLeft(x4 + x7, 18);
+            x11 ^= Integer.rotateLeft(x10 + x9, 7);  x8 ^= Integer.rotateLeft(x11 + x10, 9);
+            x9 ^= Integer.rotateLeft(x8 + x11, 13);  x10 ^= Integer.rotateLeft(x9 + x8, 18);
+            x12 ^= Integer.rotateLeft(x15 + x14, 7); x13 ^= Integer.rotateLeft(x12 + x15, 9);
+            x14 ^= Integer.rotateLeft(x13 + x12, 13); x15 ^= Integer.rotateLeft(x14 + x13, 18);
+        }
+        b[offset] += x0; b[offset + 1] += x1; b[offset + 2] += x2; b[offset + 3] += x3;
+        b[offset + 4] += x4; b[offset + 5] += x5; b[offset + 6] += x6; b[offset + 7] += x7;
+        b[offset + 8] += x8; b[offset + 9] += x9; b[offset + 10] += x10; b[offset + 11] += x11;
+        b[offset + 12] += x12; b[offset + 13] += x13; b[offset + 14] += x14; b[offset + 15] += x15;
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA256 with a single iteration, as scrypt uses it.
+     */
+    private static byte[] pbkdf2(byte[] password, byte[] salt, int length) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            // HMAC zero-pads short keys, so an empty password is the same key as a single zero byte
+            mac.init(new SecretKeySpec(password.length == 0 ? new byte[1] : password, "HmacSHA256"));
+            byte[] output = new byte[length];
+            byte[] counter = new byte[4];
+            for (int block = 1, offset = 0; offset < length; block++, offset += 32) {
+                counter[0] = (byte) (block >>> 24);
+                counter[1] = (byte) (block >>> 16);
+                counter[2] = (byte) (block >>> 8);
+                counter[3] = (byte) block;
+                mac.update(salt);
+                byte[] digest = mac.doFinal(counter);
+                System.arraycopy(digest, 0, output, offset, Math.min(32, length - offset));
+            }
+            return output;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+}
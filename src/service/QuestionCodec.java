@@ -0,0 +1,54 @@
+package service;
+
+import interface_.Codec;
+import model.Question;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Questions, stored inside their quiz document (they have no id of their own).
+ */
+public class QuestionCodec implements Codec<Question> {
+    public static final String FIELD_QUESTION_TEXT = "questionText";
+    public static final String FIELD_OPTIONS = "options";
+    public static final String FIELD_CORRECT_ANSWER = "correctAnswer";
+
+    @Override
+    public Class<Question> getType() {
+        return Question.class;
+    }
+
+    @Override
+    public Map<String, Object> encode(Question question) {
+        Map<String, Object> data = new HashMap<>(4);
+        data.put(FIELD_QUESTION_TEXT, question.getQuestionText());
+        data.put(FIELD_OPTIONS, new ArrayList<>(question.getOptions()));
+        data.put(FIELD_CORRECT_ANSWER, question.getCorrectAnswer());
+        return data;
+    }
+
+    @Override
+    public Question decode(String documentId, Map<String, Object> data) {
+        String questionText = DocumentFields.getString(data, FIELD_QUESTION_TEXT);
+        List<String> options = DocumentFields.getStringList(data, FIELD_OPTIONS);
+        if (questionText == null || options == null) {
+            return null;
+        }
+        return new Question(questionText, options, DocumentFields.getInt(data, FIELD_CORRECT_ANSWER, 0));
+    }
+
+    @Override
+    public void write(Question question, BinaryWriter out) {
+        out.writeString(question.getQuestionText());
+        out.writeStringList(question.getOptions());
+        out.writeInt(question.getCorrectAnswer());
+    }
+
+    @Override
+    public Question read(BinaryReader in) {
+        return new Question(in.readString(), in.readStringList(), in.readInt());
+    }
+}
@@ -0,0 +1,338 @@
+package service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import interface_.AsyncDatabaseConnectable;
+import model.Quiz;
+import model.QuizSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Every available quiz, indexed by quizId, skillId and skill name.
+ *
+ * Only a summary of each quiz stays in memory. Question bodies are loaded the first time a quiz is
+ * opened and kept in an LRU cache bounded by the total number of cached questions
+ * (-Dcodevia.quiz.cacheQuestions), so a large catalog doesn't have to fit in the heap.
+ *
+ * Quizzes come from the bundled content (/quizzes on the classpath), then an optional content
+ * directory (-Dcodevia.quiz.contentDir), then the database once it is ready. A later source
+ * replaces an earlier one's quiz with the same quizId.
+ */
+public class QuizCatalog {
+    private static final AsyncLogger log = AsyncLogger.getLogger(QuizCatalog.class);
+
+    // Summaries live in their own collection so listing the catalog never reads any questions
+    public static final String SUMMARY_COLLECTION = "quizCatalog";
+    public static final String QUIZ_COLLECTION = "quizzes";
+    public static final String FIELD_QUESTION_COUNT = "questionCount";
+
+    private static final String BUNDLED_PATH = "/quizzes/";
+    private static final String INDEX_FILE = "index.json";
+    private static final Pattern QUIZ_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private enum Source { BUNDLED, DIRECTORY, DATABASE }
+
+    private static class Holder {
+        private static final QuizCatalog INSTANCE = new QuizCatalog();
+    }
+
+    public static QuizCatalog getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final QuizCodec quizCodec = new QuizCodec(new QuestionCodec());
+    private final Path contentDir;
+    private final long loadTimeoutMillis;
+
+    // Published as a whole whenever a source is merged in, readers never lock
+    private volatile Indexes indexes = new Indexes(Collections.emptyMap());
+
+    // Bounded by the number of cached questions; filled and invalidated under this, to match the indexes
+    private final ExpiringLruCache<String, Quiz> cache;
+
+    private QuizCatalog() {
+        String dir = System.getProperty("codevia.quiz.contentDir");
+        this.contentDir = dir == null || dir.isEmpty() ? null : Paths.get(dir);
+        this.cache = new ExpiringLruCache<>(Integer.getInteger("codevia.quiz.cacheQuestions", 5_000),
+                quiz -> quiz.getQuestions().size());
+        this.loadTimeoutMillis = Long.getLong("codevia.quiz.loadTimeoutMillis", 10_000);
+
+        loadBundled();
+        if (contentDir != null) {
+            loadDirectory();
+        }
+        DatabaseConnectionManager.getInstance().whenReady()
+                .thenAcceptAsync(this::loadFromDatabase)
+                .exceptionally(error -> null);
+    }
+
+    /**
+     * All quizzes, ordered by skillId and then quizId.
+     */
+    public List<QuizSummary> getQuizzes() {
+        return indexes.all;
+    }
+
+    public QuizSummary findByQuizId(String quizId) {
+        Entry entry = quizId == null ? null : indexes.byQuizId.get(quizId);
+        return entry == null ? null : entry.summary;
+    }
+
+    public List<QuizSummary> findBySkillId(String skillId) {
+        return skillId == null ? Collections.emptyList()
+                : indexes.bySkillId.getOrDefault(skillId, Collections.emptyList());
+    }
+
+    /**
+     * Skill names are matched case-insensitively.
+     */
+    public List<QuizSummary> findBySkillName(String skillName) {
+        return skillName == null ? Collections.emptyList()
+                : indexes.bySkillName.getOrDefault(normalize(skillName), Collections.emptyList());
+    }
+
+    /**
+     * The first quiz of a skill whose questions can be loaded, or null if there is none.
+     */
+    public Quiz getQuizForSkill(String skillId) {
+        return firstLoadable(findBySkillId(skillId));
+    }
+
+    public Quiz getQuizForSkillName(String skillName) {
+        return firstLoadable(findBySkillName(skillName));
+    }
+
+    /**
+     * The quiz with its questions, loading them on first use. Null if the quiz doesn't exist
+     * or its questions can't be loaded.
+     */
+    public Quiz getQuiz(String quizId) {
+        Entry entry = quizId == null ? null : indexes.byQuizId.get(quizId);
+        if (entry == null) {
+            return null;
+        }
+
+        Quiz cached = cache.get(quizId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Loaded outside the lock; two threads missing at once both load, the later put wins
+        Quiz quiz = load(entry);
+        if (quiz != null) {
+            cache(quiz, entry);
+        }
+        return quiz;
+    }
+
+    private Quiz firstLoadable(List<QuizSummary> quizzes) {
+        for (QuizSummary summary : quizzes) {
+            Quiz quiz = getQuiz(summary.getQuizId());
+            if (quiz != null) {
+                return quiz;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return indexes.byQuizId.size();
+    }
+
+    public void displayStats() {
+        System.out.println("Quiz catalog - quizzes: " + size()
+                + ", cached: " + cache.size() + " (" + cache.weight() + "/" + cache.getMaxWeight() + " questions)"
+                + ", hits/misses: " + cache.getHits() + "/" + cache.getMisses());
+    }
+
+    private synchronized void cache(Quiz quiz, Entry entry) {
+        // Don't cache a body that was replaced while it was loading
+        if (indexes.byQuizId.get(quiz.getQuizId()) != entry) {
+            return;
+        }
+        // Always keeps the quiz just loaded, even if it alone is over the limit
+        cache.put(quiz.getQuizId(), quiz, ExpiringLruCache.NEVER_EXPIRES);
+    }
+
+    private Quiz load(Entry entry) {
+        String quizId = entry.summary.getQuizId();
+        long startNanos = System.nanoTime();
+        try {
+            Map<String, Object> data;
+            switch (entry.source) {
+                case BUNDLED:
+                    try (InputStream in = QuizCatalog.class.getResourceAsStream(BUNDLED_PATH + quizId + ".json")) {
+                        data = in == null ? null : readMap(in);
+                    }
+                    break;
+                case DIRECTORY:
+                    try (InputStream in = Files.newInputStream(contentDir.resolve(quizId + ".json"))) {
+                        data = readMap(in);
+                    }
+                    break;
+                default:
+                    AsyncDatabaseConnectable database = DatabaseConnectionManager.getInstance().getDatabase();
+                    data = database == null ? null
+                            : database.getAsync(QUIZ_COLLECTION, quizId).get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+                    break;
+            }
+
+            Quiz decoded = data == null ? null : quizCodec.decode(quizId, data);
+            if (decoded == null) {
+                log.warn("Quiz questions not found", "quizId", quizId, "source", entry.source);
+                return null;
+            }
+            log.debug("Loaded quiz questions", "quizId", quizId, "questions", decoded.getQuestions().size(),
+                    "durationMs", AsyncLogger.elapsedMillis(startNanos));
+            // The summary is authoritative for everything but the questions
+            QuizSummary summary = entry.summary;
+            return new Quiz(quizId, summary.getSkillId(), summary.getSkillName(),
+                    Collections.unmodifiableList(decoded.getQuestions()), summary.getPassingScore());
+        } catch (Exception e) {
+            log.error("Failed to load quiz questions", e, "quizId", quizId, "source", entry.source);
+            return null;
+        }
+    }
+
+    private void loadBundled() {
+        try (InputStream in = QuizCatalog.class.getResourceAsStream(BUNDLED_PATH + INDEX_FILE)) {
+            if (in == null) {
+                log.warn("Bundled quiz index not found on the classpath");
+                return;
+            }
+            merge(readIndex(in), Source.BUNDLED);
+        } catch (IOException e) {
+            log.error("Failed to read the bundled quiz index", e);
+        }
+    }
+
+    private void loadDirectory() {
+        Path indexFile = contentDir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            log.warn("Quiz content directory has no " + INDEX_FILE, "dir", contentDir);
+            return;
+        }
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            merge(readIndex(in), Source.DIRECTORY);
+        } catch (IOException e) {
+            log.error("Failed to read the quiz index", e, "file", indexFile);
+        }
+    }
+
+    private void loadFromDatabase(AsyncDatabaseConnectable database) {
+        List<QuizSummary> summaries = new ArrayList<>();
+        try (Stream<Map<String, Object>> documents = database.streamAll(SUMMARY_COLLECTION,
+                PagedIterator.configuredPageSize())) {
+            documents.forEach(data -> {
+                QuizSummary summary = decodeSummary(DocumentFields.getString(data, "id"), data);
+                if (summary != null) {
+                    summaries.add(summary);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to load the quiz catalog from the database", e);
+            return;
+        }
+        if (!summaries.isEmpty()) {
+            merge(summaries, Source.DATABASE);
+        }
+    }
+
+    private List<QuizSummary> readIndex(InputStream in) throws IOException {
+        List<Map<String, Object>> entries = mapper.readValue(in, new TypeReference<List<Map<String, Object>>>() {});
+        List<QuizSummary> summaries = new ArrayList<>(entries.size());
+        for (Map<String, Object> data : entries) {
+            QuizSummary summary = decodeSummary(DocumentFields.getString(data, "quizId"), data);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    private Map<String, Object> readMap(InputStream in) throws IOException {
+        return mapper.readValue(in, new TypeReference<Map<String, Object>>() {});
+    }
+
+    /**
+     * Quiz ids become file names, so anything but plain ids is rejected.
+     */
+    private QuizSummary decodeSummary(String quizId, Map<String, Object> data) {
+        String skillId = DocumentFields.getString(data, QuizCodec.FIELD_SKILL_ID);
+        String skillName = DocumentFields.getString(data, QuizCodec.FIELD_SKILL_NAME);
+        if (quizId == null || !QUIZ_ID.matcher(quizId).matches() || skillId == null || skillName == null) {
+            log.warn("Skipping invalid quiz catalog entry", "quizId", quizId);
+            return null;
+        }
+        return new QuizSummary(quizId, skillId, skillName,
+                DocumentFields.getInt(data, QuizCodec.FIELD_PASSING_SCORE, 70),
+                DocumentFields.getInt(data, FIELD_QUESTION_COUNT, 0));
+    }
+
+    private synchronized void merge(Collection<QuizSummary> summaries, Source source) {
+        Map<String, Entry> byQuizId = new HashMap<>(indexes.byQuizId);
+        for (QuizSummary summary : summaries) {
+            byQuizId.put(summary.getQuizId(), new Entry(summary, source));
+            cache.invalidate(summary.getQuizId());
+        }
+        indexes = new Indexes(byQuizId);
+        log.info("Quiz catalog loaded", "source", source, "quizzes", summaries.size(), "total", byQuizId.size());
+    }
+
+    private static String normalize(String skillName) {
+        return skillName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Entry {
+        final QuizSummary summary;
+        final Source source;
+
+        Entry(QuizSummary summary, Source source) {
+            this.summary = summary;
+            this.source = source;
+        }
+    }
+
+    /**
+     * One immutable generation of the lookup tables.
+     */
+    private static class Indexes {
+        final Map<String, Entry> byQuizId;
+        final Map<String, List<QuizSummary>> bySkillId = new HashMap<>();
+        final Map<String, List<QuizSummary>> bySkillName = new HashMap<>();
+        final List<QuizSummary> all;
+
+        Indexes(Map<String, Entry> byQuizId) {
+            this.byQuizId = byQuizId;
+            List<QuizSummary> sorted = new ArrayList<>(byQuizId.size());
+            for (Entry entry : byQuizId.values()) {
+                sorted.add(entry.summary);
+            }
+            sorted.sort(Comparator.comparing(QuizSummary::getSkillId).thenComparing(QuizSummary::getQuizId));
+            for (QuizSummary summary : sorted) {
+                bySkillId.computeIfAbsent(summary.getSkillId(), k -> new ArrayList<>()).add(summary);
+                bySkillName.computeIfAbsent(normalize(summary.getSkillName()), k -> new ArrayList<>()).add(summary);
+            }
+            bySkillId.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            bySkillName.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            this.all = Collections.unmodifiableList(sorted);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package service;
+
+import interface_.Codec;
+import model.Question;
+import model.Quiz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quiz documents in the "quizzes" collection, questions embedded.
+ */
+public class QuizCodec implements Codec<Quiz> {
+    public static final String FIELD_SKILL_ID = "skillId";
+    public static final String FIELD_SKILL_NAME = "skillName";
+    public static final String FIELD_QUESTIONS = "questions";
+    public static final String FIELD_PASSING_SCORE = "passingScore";
+
+    private final QuestionCodec questionCodec;
+
+    public QuizCodec(QuestionCodec questionCodec) {
+        this.questionCodec = questionCodec;
+    }
+
+    @Override
+    public Class<Quiz> getType() {
+        return Quiz.class;
+    }
+
+    @Override
+    public int getBinaryVersion() {
+        return 2;
+    }
+
+    @Override
+    public Map<String, Object> encode(Quiz quiz) {
+        List<Map<String, Object>> questions = new ArrayList<>(quiz.getQuestions().size());
+        for (Question question : quiz.getQuestions()) {
+            questions.add(questionCodec.encode(question));
+        }
+
+        Map<String, Object> data = new HashMap<>(8);
+        if (quiz.getSkillId() != null) {
+            data.put(FIELD_SKILL_ID, quiz.getSkillId());
+        }
+        data.put(FIELD_SKILL_NAME, quiz.getSkillName());
+        data.put(FIELD_QUESTIONS, questions);
+        data.put(FIELD_PASSING_SCORE, quiz.getPassingScore());
+        return data;
+    }
+
+    @Override
+    public Quiz decode(String documentId, Map<String, Object> data) {
+        String skillName = DocumentFields.getString(data, FIELD_SKILL_NAME);
+        List<Map<String, Object>> questionData = DocumentFields.getMapList(data, FIELD_QUESTIONS);
+        if (documentId == null || skillName == null || questionData == null) {
+            return null;
+        }
+
+        List<Question> questions = new ArrayList<>(questionData.size());
+        for (Map<String, Object> entry : questionData) {
+            Question question = questionCodec.decode(null, entry);
+            if (question != null) {
+                questions.add(question);
+            }
+        }
+        return new Quiz(documentId, DocumentFields.getString(data, FIELD_SKILL_ID), skillName, questions,
+                DocumentFields.getInt(data, FIELD_PASSING_SCORE, 70));
+    }
+
+    @Override
+    public void write(Quiz quiz, BinaryWriter out) {
+        out.writeString(quiz.getQuizId());
+        out.writeString(quiz.getSkillId());
+        out.writeString(quiz.getSkillName());
+        out.writeInt(quiz.getPassingScore());
+        out.writeUnsignedVarLong(quiz.getQuestions().size());
+        for (Question question : quiz.getQuestions()) {
+            questionCodec.write(question, out);
+        }
+    }
+
+    @Override
+    public Quiz read(BinaryReader in) {
+        String quizId = in.readString();
+        String skillId = in.readString();
+        String skillName = in.readString();
+        int passingScore = in.readInt();
+        int count = (int) in.readUnsignedVarLong();
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            questions.add(questionCodec.read(in));
+        }
+        return new Quiz(quizId, skillId, skillName, questions, passingScore);
+    }
+}
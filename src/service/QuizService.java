@@ -2,49 +2,31 @@ package service;
 
 import model.Question;
 import model.Quiz;
+import model.QuizSummary;
 import model.User;
 import model.DailyChallenge;
 
 import java.util.*;
 
 public class QuizService {
-    // A map to store quizzes with the skill name as the key
-    private Map<String, Quiz> quizMap = new HashMap<>();
+    // Every quiz comes from the shared catalog, questions are loaded on demand
+    private final QuizCatalog catalog;
     private DailyChallengeService challengeService;
+    private UserService userService; // Optional, used to persist XP rewards
 
 
 
-    // Constructor initializes sample quizzes.
-
     public QuizService() {
-        createSampleQuizzes();
+        this(QuizCatalog.getInstance());
+    }
+
+    public QuizService(QuizCatalog catalog) {
+        this.catalog = catalog;
     }
 
 
-    private void createSampleQuizzes() {
-        // Quiz for "Java Basics"
-        List<Question> javaQuestions = List.of(
-                new Question("What is the size of int in Java?",
-                        Arrays.asList("2 bytes", "4 bytes", "8 bytes"), 1), // Correct: "4 bytes"
-                new Question("Which loop checks the condition *after* executing once?",
-                        Arrays.asList("for", "while", "do-while"), 2) // Correct: "do-while"
-        );
-
-        // Quiz for "OOP"
-        List<Question> oopQuestions = List.of(
-                new Question("What is inheritance?",
-                        Arrays.asList(
-                                "Copying code from one class to another",
-                                "A class deriving properties from another", // Correct
-                                "Unrelated class sharing names"
-                        ), 1),
-                new Question("Which keyword is used to inherit a class in Java?",
-                        Arrays.asList("inherits", "extends", "implements"), 1) // Correct: "extends"
-        );
-
-        // Map each quiz to its related skill
-        quizMap.put("Java Basics", new Quiz("java-basics", "Java Basics", javaQuestions, 70));
-        quizMap.put("OOP", new Quiz("oop", "OOP", oopQuestions, 70));
+    public void setUserService(UserService userService) {
+        this.userService = userService;
     }
 
     /**
@@ -53,17 +35,18 @@ public class QuizService {
      */
     public void startQuiz(String skillName, Scanner scanner, User user, AchievementService achievementService, DailyChallengeService challengeService) {
         // Retrieve the quiz by skill name
-        Quiz quiz = quizMap.get(skillName);
+        Quiz quiz = getQuizBySkillName(skillName);
         if (quiz == null) {
             System.out.println("❌ No quiz available for this skill.");
             return;
         }
 
         System.out.println("🧪 Starting Quiz: " + skillName);
-        int score = 0; // Track number of correct answers
+        QuizSession session = startSession(quiz);
 
         // Loop through each question in the quiz
-        for (Question q : quiz.getQuestions()) {
+        while (session.hasNextQuestion()) {
+            Question q = session.getCurrentQuestion();
             q.display(); // Display question and options
             System.out.print("Your answer: ");
 
@@ -72,37 +55,80 @@ public class QuizService {
                 answer = Integer.parseInt(scanner.nextLine());
             } catch (NumberFormatException e) {
                 System.out.println("Invalid input. Skipping question.\n");
+                session.skip();
                 continue;
             }
 
-            // Check the answer
-            if (q.checkAnswer(answer)) {
-                System.out.println("✅ Correct!\n");
-                score++;
+            // Options are numbered from 1 on screen, an option that doesn't exist is simply wrong
+            boolean correct;
+            if (answer >= 1 && answer <= q.getOptions().size()) {
+                correct = session.submit(answer - 1);
             } else {
-                System.out.println("❌ Incorrect.\n");
+                session.skip();
+                correct = false;
             }
+            System.out.println(correct ? "✅ Correct!\n" : "❌ Incorrect.\n");
 
             challengeService.trackQuestionAnswered(user, achievementService);
             achievementService.quizCompleted();
 
         }
 
-        // Calculate XP earned (20 XP per correct answer)
-        int earnedXp = score * 20;
-
         // Reward XP to user and possibly level them up
-        user.gainExperiencePoint(earnedXp); // Make sure your User class uses this method name
+        int earnedXp = completeSession(session, user);
 
         // Final score report
-        System.out.println("🎉 You scored " + score + "/" + quiz.getQuestions().size() +
+        System.out.println("🎉 You scored " + session.getScore() + "/" + session.getQuestionCount() +
                 " and earned " + earnedXp + " XP!");
 
         achievementService.quizCompleted();
     }
     
+    public QuizSession startSession(Quiz quiz) {
+        return new QuizSession(quiz);
+    }
+
+    /**
+     * Finish the session and credit its XP to the user, saving the user if a UserService is set.
+     * Returns the XP awarded, which is 0 if the session was already finished.
+     */
+    public int completeSession(QuizSession session, User user) {
+        if (!session.finish()) {
+            return 0;
+        }
+        int earnedXp = session.getEarnedXp();
+        if (user != null && earnedXp > 0) {
+            synchronized (user) {
+                user.gainExperiencePoint(earnedXp);
+                if (userService != null) {
+                    userService.updateUser(user);
+                }
+            }
+        }
+        return earnedXp;
+    }
+
+    /**
+     * Looks a quiz up by skill name, or by quizId if no skill has that name.
+     */
     public Quiz getQuizBySkillName(String skillName) {
-        return quizMap.get(skillName);
+        if (skillName == null) {
+            return null;
+        }
+        Quiz quiz = catalog.getQuizForSkillName(skillName);
+        return quiz != null ? quiz : catalog.getQuiz(skillName.trim());
+    }
+
+    public Quiz getQuiz(String quizId) {
+        return catalog.getQuiz(quizId);
+    }
+
+    public Quiz getQuizForSkill(String skillId) {
+        return catalog.getQuizForSkill(skillId);
+    }
+
+    public List<QuizSummary> getQuizzes() {
+        return catalog.getQuizzes();
     }
 
 }
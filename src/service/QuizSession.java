@@ -0,0 +1,129 @@
+package service;
+
+import model.Question;
+import model.Quiz;
+
+import java.util.List;
+
+/**
+ * One run through a quiz, with no input or output of its own. A front end shows
+ * {@link #getCurrentQuestion()}, passes the chosen option to {@link #submit(int)} until
+ * {@link #hasNextQuestion()} is false, then finishes the session to award its XP.
+ *
+ * Options are 0-based, like {@link Question#getCorrectAnswer()}. A session holds only the shared,
+ * read-only quiz and a few counters, so a server can keep many of them around. It is not thread-safe:
+ * a session belongs to one user, and callers sharing it between threads must synchronize on it.
+ */
+public class QuizSession {
+    public static final int XP_PER_CORRECT_ANSWER = 20;
+
+    private final Quiz quiz;
+    private final List<Question> questions;
+    private int questionIndex;
+    private int answered;
+    private int score;
+    private boolean finished;
+
+    public QuizSession(Quiz quiz) {
+        if (quiz == null) {
+            throw new IllegalArgumentException("Quiz cannot be null");
+        }
+        this.quiz = quiz;
+        this.questions = quiz.getQuestions();
+    }
+
+    /**
+     * The question to answer next, or null once every question is answered or the session is finished.
+     */
+    public Question getCurrentQuestion() {
+        return hasNextQuestion() ? questions.get(questionIndex) : null;
+    }
+
+    public boolean hasNextQuestion() {
+        return !finished && questionIndex < questions.size();
+    }
+
+    /**
+     * Answer the current question with a 0-based option and move on. Returns whether it was correct.
+     */
+    public boolean submit(int option) {
+        Question question = requireCurrentQuestion();
+        if (option < 0 || option >= question.getOptions().size()) {
+            throw new IllegalArgumentException("Option must be between 0 and " + (question.getOptions().size() - 1));
+        }
+
+        boolean correct = question.checkAnswer(option);
+        if (correct) {
+            score++;
+        }
+        answered++;
+        questionIndex++;
+        return correct;
+    }
+
+    /**
+     * Move on without answering; the question counts as wrong.
+     */
+    public void skip() {
+        requireCurrentQuestion();
+        questionIndex++;
+    }
+
+    /**
+     * End the session, even if questions are left. Returns true only the first time,
+     * so the XP is awarded once.
+     */
+    public boolean finish() {
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        return true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public Quiz getQuiz() {
+        return quiz;
+    }
+
+    /**
+     * 0-based position of the current question.
+     */
+    public int getQuestionIndex() {
+        return questionIndex;
+    }
+
+    public int getQuestionCount() {
+        return questions.size();
+    }
+
+    public int getAnsweredCount() {
+        return answered;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getEarnedXp() {
+        return score * XP_PER_CORRECT_ANSWER;
+    }
+
+    public double getPercentage() {
+        return questions.isEmpty() ? 0 : score * 100.0 / questions.size();
+    }
+
+    public boolean isPassed() {
+        return getPercentage() >= quiz.getPassingScore();
+    }
+
+    private Question requireCurrentQuestion() {
+        if (!hasNextQuestion()) {
+            throw new IllegalStateException("Quiz session has no question left");
+        }
+        return questions.get(questionIndex);
+    }
+}
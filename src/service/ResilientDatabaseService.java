@@ -0,0 +1,256 @@
+package service;
+
+import exception.DatabaseException;
+import exception.DatabaseUnavailableException;
+import interface_.AsyncDatabaseConnectable;
+import interface_.ChangeSubscription;
+import interface_.DatabaseConnectable;
+import interface_.DocumentChangeListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Retries, a circuit breaker and a bulkhead in front of a database.
+ *
+ * Each attempt is bounded by a timeout. Transient failures (timeouts, I/O and unavailable
+ * backends) of idempotent operations are retried with jittered exponential backoff. Once the
+ * backend keeps failing the circuit opens and calls fail fast with a
+ * {@link DatabaseUnavailableException}; the same happens when too many calls are already in flight.
+ */
+public class ResilientDatabaseService implements DatabaseConnectable, AsyncDatabaseConnectable {
+    public static final int DEFAULT_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_RETRY_DELAY_MILLIS = 2_000;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_CONCURRENT = 64;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(ResilientDatabaseService.class);
+
+    // Client library errors worth another try, matched by name so no gRPC/gax types are needed here
+    private static final Set<String> TRANSIENT_ERRORS = Set.of("UnavailableException", "DeadlineExceededException",
+            "AbortedException", "ResourceExhaustedException", "InternalException");
+
+    private final AsyncDatabaseConnectable delegate;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final long maxRetryDelayMillis;
+    private final long timeoutMillis;
+    private final int maxConcurrent;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ResilientDatabaseService(AsyncDatabaseConnectable delegate) {
+        this(delegate,
+                Integer.getInteger("codevia.db.retry.attempts", DEFAULT_ATTEMPTS),
+                Long.getLong("codevia.db.retry.delayMillis", DEFAULT_RETRY_DELAY_MILLIS),
+                Long.getLong("codevia.db.timeoutMillis", DEFAULT_TIMEOUT_MILLIS),
+                new CircuitBreaker("database",
+                        Integer.getInteger("codevia.db.breaker.failureThreshold", DEFAULT_FAILURE_THRESHOLD),
+                        Long.getLong("codevia.db.breaker.openMillis", DEFAULT_OPEN_MILLIS)),
+                Integer.getInteger("codevia.db.maxConcurrent", DEFAULT_MAX_CONCURRENT));
+    }
+
+    public ResilientDatabaseService(AsyncDatabaseConnectable delegate, int maxAttempts, long retryDelayMillis,
+                                    long timeoutMillis, CircuitBreaker circuitBreaker, int maxConcurrent) {
+        this.delegate = delegate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxRetryDelayMillis = Math.max(retryDelayMillis, DEFAULT_MAX_RETRY_DELAY_MILLIS);
+        this.timeoutMillis = timeoutMillis;
+        this.circuitBreaker = circuitBreaker;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+    }
+
+    public AsyncDatabaseConnectable getDelegate() {
+        return delegate;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public void connect() throws Exception {
+        // Connecting has its own retry policy in DatabaseConnectionManager
+        delegate.connect();
+    }
+
+    // Paging; the other blocking operations wait for the non-blocking ones, with the same timeouts
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(String collection, int pageSize) throws Exception {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            shortCircuited.incrementAndGet();
+            throw new DatabaseUnavailableException("Database unavailable, not streaming " + collection);
+        }
+        return delegate.streamAll(collection, pageSize);
+    }
+
+    // Non-blocking operations
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String collection, String documentId, Map<String, Object> data) {
+        // A full overwrite can safely be repeated
+        return execute("save " + collection + "/" + documentId, true,
+                () -> delegate.saveAsync(collection, documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAsync(String collection, String documentId) {
+        return execute("get " + collection + "/" + documentId, true,
+                () -> delegate.getAsync(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllAsync(String collection) {
+        return execute("getAll " + collection, true, () -> delegate.getAllAsync(collection));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String collection, String documentId, Map<String, Object> data) {
+        return execute("update " + collection + "/" + documentId, isIdempotent(data),
+                () -> delegate.updateAsync(collection, documentId, data));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String collection, String documentId) {
+        return execute("delete " + collection + "/" + documentId, true,
+                () -> delegate.deleteAsync(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBatchAsync(String collection, Map<String, Map<String, Object>> updatesByDocumentId) {
+        boolean idempotent = updatesByDocumentId.values().stream().allMatch(ResilientDatabaseService::isIdempotent);
+        return execute("updateBatch " + collection, idempotent,
+                () -> delegate.updateBatchAsync(collection, updatesByDocumentId));
+    }
+
+    @Override
+    public ChangeSubscription listen(String collection, long changedSinceMillis, DocumentChangeListener listener)
+            throws Exception {
+        return delegate.listen(collection, changedSinceMillis, listener);
+    }
+
+    // Stats
+
+    public long getRetryCount() { return retries.get(); }
+    public long getShortCircuitedCount() { return shortCircuited.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+    public int getInFlight() { return maxConcurrent - bulkhead.availablePermits(); }
+
+    public void displayStats() {
+        System.out.println("Database resilience: circuit " + circuitBreaker.getState()
+                + ", in flight " + getInFlight() + "/" + maxConcurrent
+                + ", retries " + retries.get() + ", short-circuited " + shortCircuited.get()
+                + ", rejected " + rejected.get());
+    }
+
+    // Private helper methods
+
+    private <T> CompletableFuture<T> execute(String description, boolean idempotent, Supplier<CompletableFuture<T>> call) {
+        return attempt(description, idempotent ? maxAttempts : 1, 1, call);
+    }
+
+    private <T> CompletableFuture<T> attempt(String description, int attempts, int attempt, Supplier<CompletableFuture<T>> call) {
+        if (!bulkhead.tryAcquire()) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new DatabaseUnavailableException(
+                    "Too many database calls in flight (" + maxConcurrent + "), rejected " + description));
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            shortCircuited.incrementAndGet();
+            return CompletableFuture.failedFuture(new DatabaseUnavailableException(
+                    "Database unavailable, failing fast: " + description));
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        // The permit is held until the backend call really finishes, even after the caller has timed out,
+        // so the bulkhead bounds calls actually in flight. The timeout goes on a copy to leave the call as is.
+        result.whenComplete((value, error) -> bulkhead.release());
+        return result.copy()
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((value, error) -> {
+                    if (error == null) {
+                        circuitBreaker.onSuccess();
+                        return CompletableFuture.completedFuture(value);
+                    }
+
+                    Throwable cause = DatabaseConnectionManager.unwrap(error);
+                    if (cause instanceof TimeoutException) {
+                        cause = new DatabaseException("Timed out after " + timeoutMillis + " ms: " + description, cause);
+                    }
+                    if (!isTransient(cause)) {
+                        // The backend answered, the request itself was bad
+                        circuitBreaker.onSuccess();
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+
+                    circuitBreaker.onFailure();
+                    if (attempt >= attempts || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+
+                    retries.incrementAndGet();
+                    long delay = backoff(attempt);
+                    log.debug("Retrying database call", "call", description, "attempt", attempt,
+                            "retryInMs", delay, "cause", cause.getMessage());
+                    Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(retry -> attempt(description, attempts, attempt + 1, call));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // Exponential, with jitter so clients that failed together don't retry together
+    private long backoff(int attempt) {
+        long delay = Math.min(maxRetryDelayMillis, retryDelayMillis << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Increments and array unions would be applied twice if a write that timed out had actually landed.
+     */
+    private static boolean isIdempotent(Map<String, Object> data) {
+        return data.values().stream().noneMatch(value -> value instanceof FieldDelta);
+    }
+
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof IOException
+                    || TRANSIENT_ERRORS.contains(cause.getClass().getSimpleName())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,210 @@
+package service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issues and checks local session tokens, so a signed-in user doesn't need Firebase again until the token expires.
+ *
+ * A token is {@code v1.<userId>.<expiresAt>.<signature>}, signed with HMAC-SHA256 using a key kept in
+ * {@code <dataDir>/session.key}. Tokens therefore survive restarts, and checking one needs no network or lookup.
+ * Lifetime is set with -Dcodevia.session.ttlMillis (default 12 hours).
+ *
+ * Signing out must survive a restart too, or a revoked token would work again until it expires. Revocations
+ * are appended to {@code <dataDir>/session.revoked} and loaded back at startup, minus the expired ones.
+ * Only the canonical encoding of a token is accepted, so a revoked token can't be revived by re-encoding it.
+ */
+public class SessionManager {
+    public static final long DEFAULT_TTL_MILLIS = 12 * 60 * 60 * 1000L;
+    private static final String VERSION = "v1";
+    private static final int KEY_BYTES = 32;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(SessionManager.class);
+
+    private final byte[] key;
+    private final long ttlMillis;
+    private final Path revokedFile;
+    private final ReentrantLock revokedFileLock = new ReentrantLock(); // Not a monitor: logouts run on virtual threads
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>(); // Signature -> expiry of signed-out tokens
+
+    private SessionManager() {
+        Path dataDir = Paths.get(System.getProperty("codevia.dataDir", LocalStoreService.DEFAULT_DATA_DIR));
+        this.key = loadKey(dataDir.resolve("session.key"));
+        this.ttlMillis = Long.getLong("codevia.session.ttlMillis", DEFAULT_TTL_MILLIS);
+        this.revokedFile = dataDir.resolve("session.revoked");
+        loadRevoked();
+    }
+
+    private static class Holder {
+        private static final SessionManager INSTANCE = new SessionManager();
+    }
+
+    public static SessionManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public String issue(String userId) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String body = VERSION + "." + encode(userId.getBytes(StandardCharsets.UTF_8)) + "." + expiresAt;
+        return body + "." + encode(sign(body));
+    }
+
+    /**
+     * The user id the token was issued for, or null if it is malformed, forged, expired or revoked.
+     */
+    public String validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+        try {
+            String body = parts[0] + "." + parts[1] + "." + parts[2];
+            byte[] signature = decodeCanonical(parts[3]);
+            byte[] userId = decodeCanonical(parts[1]);
+            if (signature == null || userId == null || !MessageDigest.isEqual(sign(body), signature)) {
+                return null;
+            }
+            if (Long.parseLong(parts[2]) <= System.currentTimeMillis() || revoked.containsKey(parts[3])) {
+                return null;
+            }
+            return new String(userId, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sign a token out before it expires.
+     */
+    public void revoke(String token) {
+        if (validate(token) == null) {
+            return;
+        }
+        String[] parts = token.split("\\.");
+        long expiresAt = Long.parseLong(parts[2]);
+        revoked.put(parts[3], expiresAt);
+        appendRevoked(parts[3], expiresAt);
+
+        // Expired tokens fail validation anyway, so they no longer need to be remembered
+        long now = System.currentTimeMillis();
+        for (Iterator<Long> it = revoked.values().iterator(); it.hasNext(); ) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private byte[] sign(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // The decoder ignores unused trailing bits, so several strings decode to the same bytes; accept only ours
+    private static byte[] decodeCanonical(String text) {
+        byte[] bytes = Base64.getUrlDecoder().decode(text);
+        return encode(bytes).equals(text) ? bytes : null;
+    }
+
+    private void appendRevoked(String signature, long expiresAt) {
+        revokedFileLock.lock();
+        try {
+            Files.write(revokedFile, (signature + " " + expiresAt + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Failed to store session revocation, it won't survive a restart: " + e.getMessage());
+        } finally {
+            revokedFileLock.unlock();
+        }
+    }
+
+    // Load revocations that haven't expired, and rewrite the file without the rest
+    private void loadRevoked() {
+        if (!Files.exists(revokedFile)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (String line : Files.readAllLines(revokedFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 2) {
+                    continue;
+                }
+                try {
+                    long expiresAt = Long.parseLong(fields[1]);
+                    if (expiresAt > now) {
+                        revoked.put(fields[0], expiresAt);
+                    }
+                } catch (NumberFormatException e) {
+                    // Torn last line
+                }
+            }
+
+            StringBuilder live = new StringBuilder();
+            revoked.forEach((signature, expiresAt) -> live.append(signature).append(' ').append(expiresAt).append('\n'));
+            Path temp = revokedFile.resolveSibling(revokedFile.getFileName() + ".tmp");
+            Files.write(temp, live.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, revokedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to load session revocations: " + e.getMessage());
+        }
+    }
+
+    private static byte[] loadKey(Path file) {
+        try {
+            if (Files.exists(file)) {
+                byte[] existing = Files.readAllBytes(file);
+                if (existing.length == KEY_BYTES) {
+                    return existing;
+                }
+            }
+            byte[] key = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(key);
+            Files.createDirectories(file.getParent());
+            Files.write(file, key);
+            try {
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+            }
+            return key;
+        } catch (IOException e) {
+            // Sessions then only last as long as this process
+            log.warn("Failed to store session key, sessions won't survive a restart: " + e.getMessage());
+            byte[] key = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(key);
+            return key;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package service;
+
+import interface_.Codec;
+import model.Skill;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Skill documents in the "skills" collection.
+ */
+public class SkillCodec implements Codec<Skill> {
+    public static final String FIELD_SKILL_NAME = "skillName";
+    public static final String FIELD_DESCRIPTION = "description";
+    public static final String FIELD_REQUIRED_XP = "requiredXP";
+    public static final String FIELD_UNLOCKED = "unlocked";
+    public static final String FIELD_COMPLETED = "completed";
+
+    @Override
+    public Class<Skill> getType() {
+        return Skill.class;
+    }
+
+    @Override
+    public Map<String, Object> encode(Skill skill) {
+        Map<String, Object> data = new HashMap<>(8);
+        data.put(FIELD_SKILL_NAME, skill.getSkillName());
+        data.put(FIELD_DESCRIPTION, skill.getDescription());
+        data.put(FIELD_REQUIRED_XP, skill.getRequiredXP());
+        data.put(FIELD_UNLOCKED, skill.isUnlocked());
+        data.put(FIELD_COMPLETED, skill.isCompleted());
+        return data;
+    }
+
+    @Override
+    public Skill decode(String documentId, Map<String, Object> data) {
+        String skillName = DocumentFields.getString(data, FIELD_SKILL_NAME);
+        if (documentId == null || skillName == null) {
+            return null;
+        }
+        Skill skill = new Skill(documentId, skillName, DocumentFields.getString(data, FIELD_DESCRIPTION),
+                DocumentFields.getInt(data, FIELD_REQUIRED_XP, 0));
+        skill.setUnlocked(DocumentFields.getBoolean(data, FIELD_UNLOCKED, false));
+        skill.setCompleted(DocumentFields.getBoolean(data, FIELD_COMPLETED, false));
+        return skill;
+    }
+
+    @Override
+    public void write(Skill skill, BinaryWriter out) {
+        out.writeString(skill.getSkillId());
+        out.writeString(skill.getSkillName());
+        out.writeString(skill.getDescription());
+        out.writeInt(skill.getRequiredXP());
+        out.writeByte((skill.isUnlocked() ? 1 : 0) | (skill.isCompleted() ? 2 : 0));
+    }
+
+    @Override
+    public Skill read(BinaryReader in) {
+        Skill skill = new Skill(in.readString(), in.readString(), in.readString(), in.readInt());
+        int flags = in.readByte();
+        skill.setUnlocked((flags & 1) != 0);
+        skill.setCompleted((flags & 2) != 0);
+        return skill;
+    }
+}
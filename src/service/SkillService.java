@@ -3,6 +3,7 @@ package service;
 import model.Skill;
 import model.User;
 import exception.SkillNotFoundException;
+import exception.ValidationException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,11 +32,11 @@ public class SkillService extends BaseService {
         System.out.println("Available skills: " + skills.size());
     }
 
-    public void showSkills() {
+    public void showSkills(User user) {
         System.out.println("\n📚 Available Skills:");
         System.out.println("===================");
         for (Skill skill : skills) {
-            String status = skill.isUnlocked() ? "✅ Unlocked" : "🔒 Locked";
+            String status = isUnlockedFor(user, skill) ? "✅ Unlocked" : "🔒 Locked";
             System.out.println(skill.getSkillName() + " - " + skill.getDescription() +
                     " (Required XP: " + skill.getRequiredXP() + ") " + status);
         }
@@ -46,28 +47,46 @@ public class SkillService extends BaseService {
         String skillName = scanner.nextLine().trim();
 
         try {
-            Skill skill = findSkillByName(skillName);
+            Skill skill = unlockSkill(user, findSkillByName(skillName));
+            System.out.println("✅ Skill unlocked: " + skill.getSkillName());
+        } catch (SkillNotFoundException | ValidationException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
 
-            if (skill.isUnlocked()) {
-                System.out.println("❌ Skill already unlocked!");
-                return;
+    /**
+     * Unlock a skill for one user. Only the user's own list changes, the shared Skill objects are
+     * left alone, so one service can serve many users.
+     */
+    public Skill unlockSkill(User user, Skill skill) throws ValidationException {
+        synchronized (user) {
+            if (isUnlockedFor(user, skill)) {
+                throw new ValidationException("Skill already unlocked!");
             }
 
             if (user.getExperiencePoint() < skill.getRequiredXP()) {
-                System.out.println("❌ Not enough XP! Required: " + skill.getRequiredXP() +
+                throw new ValidationException("Not enough XP! Required: " + skill.getRequiredXP() +
                         ", You have: " + user.getExperiencePoint());
-                return;
             }
 
-            skill.setUnlocked(true);
-            user.unlockSkill(skillName);
-            System.out.println("✅ Skill unlocked: " + skillName);
+            user.unlockSkill(skill.getSkillName());
+        }
+        return skill;
+    }
 
-        } catch (SkillNotFoundException e) {
-            System.out.println("❌ " + e.getMessage());
+    public boolean isUnlockedFor(User user, Skill skill) {
+        synchronized (user) {
+            return user.getUnlockedSkills().contains(skill.getSkillName());
         }
     }
 
+    public Skill findSkillById(String skillId) throws SkillNotFoundException {
+        return skills.stream()
+                .filter(skill -> skill.getSkillId().equals(skillId))
+                .findFirst()
+                .orElseThrow(() -> new SkillNotFoundException("Skill not found: " + skillId));
+    }
+
     public Skill findSkillByName(String name) throws SkillNotFoundException {
         return skills.stream()
                 .filter(skill -> skill.getSkillName().equalsIgnoreCase(name))
@@ -0,0 +1,152 @@
+package service;
+
+import interface_.Codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshots of whole collections on local disk, for a fast cold start.
+ *
+ * A snapshot is a 32-byte header ({@code [int magic][short format][short codec version][long createdAt]
+ * [int count][long payload length][int crc]}) followed by the records in the codec's binary form.
+ * Snapshots are written to a temporary file and renamed into place, and read into memory in one go
+ * (not mapped: a mapping would pin the file until it is garbage collected, and block the rename on Windows).
+ * A snapshot written with another format or codec version, or that fails its checksum, is ignored.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x43445653; // "CDVS"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(SnapshotStore.class);
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Snapshots under the configured data directory (-Dcodevia.dataDir).
+     */
+    public static SnapshotStore openDefault() {
+        return new SnapshotStore(Paths.get(System.getProperty("codevia.dataDir", LocalStoreService.DEFAULT_DATA_DIR), "snapshots"));
+    }
+
+    public <T> void write(String name, Collection<T> values, Codec<T> codec) throws IOException {
+        long startNanos = System.nanoTime();
+        BinaryWriter payload = new BinaryWriter(Math.max(1024, values.size() * 64));
+        int count = 0;
+        for (T value : values) {
+            codec.write(value, payload);
+            count++;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.buffer(), 0, payload.size());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(FORMAT_VERSION);
+        header.putShort((short) codec.getBinaryVersion());
+        header.putLong(System.currentTimeMillis());
+        header.putInt(count);
+        header.putLong(payload.size());
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        Files.createDirectories(directory);
+        Path target = fileFor(name);
+        Path temporary = directory.resolve(name + ".snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(payload.buffer(), 0, payload.size());
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] { header, body });
+            }
+            channel.force(false);
+        }
+        // Readers see either the old snapshot or the new one, never half of one
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("Snapshot written", "snapshot", name, "count", count, "bytes", HEADER_SIZE + payload.size(),
+                "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+    }
+
+    /**
+     * Everything in the snapshot, or an empty list if there is no usable snapshot.
+     */
+    public <T> List<T> read(String name, Codec<T> codec) throws IOException {
+        Path file = fileFor(name);
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                log.warn("Ignoring truncated or oversized snapshot", "snapshot", name, "bytes", size);
+                return Collections.emptyList();
+            }
+
+            ByteBuffer contents = ByteBuffer.allocate((int) size);
+            while (contents.hasRemaining()) {
+                if (channel.read(contents) < 0) {
+                    log.warn("Ignoring truncated snapshot", "snapshot", name);
+                    return Collections.emptyList();
+                }
+            }
+            contents.flip();
+            int magic = contents.getInt();
+            short format = contents.getShort();
+            short codecVersion = contents.getShort();
+            contents.getLong(); // createdAt
+            int count = contents.getInt();
+            long payloadLength = contents.getLong();
+            int expectedCrc = contents.getInt();
+
+            if (magic != MAGIC || format != FORMAT_VERSION || codecVersion != codec.getBinaryVersion()) {
+                log.info("Ignoring snapshot from another version", "snapshot", name, "format", format, "codecVersion", codecVersion);
+                return Collections.emptyList();
+            }
+            if (payloadLength != size - HEADER_SIZE) {
+                log.warn("Ignoring truncated snapshot", "snapshot", name);
+                return Collections.emptyList();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(contents.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Ignoring corrupt snapshot", "snapshot", name);
+                return Collections.emptyList();
+            }
+
+            BinaryReader in = new BinaryReader(contents);
+            List<T> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(codec.read(in));
+            }
+            return values;
+        }
+    }
+
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(fileFor(name));
+    }
+
+    private Path fileFor(String name) {
+        return directory.resolve(name + ".snapshot");
+    }
+}
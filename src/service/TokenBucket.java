@@ -0,0 +1,73 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding up to {@code capacity} tokens, refilled at one token per {@code refillNanos}.
+ *
+ * The whole state is one AtomicLong: the time at which the bucket will be full again
+ * (the "theoretical arrival time" of the generic cell rate algorithm). Taking a token pushes that time
+ * one refill interval further; a take is refused if it would push it more than {@code capacity}
+ * intervals into the future. A bucket whose time has passed is full and holds no state worth keeping.
+ */
+public class TokenBucket {
+    private final int capacity;
+    private final long refillNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, long refillNanos) {
+        if (capacity < 1 || refillNanos < 1) {
+            throw new IllegalArgumentException("capacity and refill interval must be positive");
+        }
+        this.capacity = capacity;
+        this.refillNanos = refillNanos;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        long limit = capacity * refillNanos;
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillNanos;
+            if (next - now > limit) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Nanoseconds until the next token is available, 0 if one is available now.
+     */
+    public long nanosUntilToken() {
+        long now = System.nanoTime();
+        long wait = Math.max(fullAt.get(), now) + refillNanos - now - capacity * refillNanos;
+        return Math.max(0, wait);
+    }
+
+    public boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Give back a token taken by {@link #tryAcquire()}, unless the bucket has refilled since.
+     */
+    public void refund() {
+        while (true) {
+            long current = fullAt.get();
+            if (current - System.nanoTime() <= 0 || fullAt.compareAndSet(current, current - refillNanos)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Refill the bucket completely.
+     */
+    public void reset() {
+        fullAt.set(System.nanoTime());
+    }
+}
@@ -0,0 +1,136 @@
+package service;
+
+import interface_.Codec;
+import model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User documents in the "users" collection.
+ */
+public class UserCodec implements Codec<User> {
+    public static final String FIELD_FIREBASE_UID = "firebaseUid";
+
+    @Override
+    public Class<User> getType() {
+        return User.class;
+    }
+
+    @Override
+    public Map<String, Object> encode(User user) {
+        Map<String, Object> data = new HashMap<>(16);
+        data.put(User.FIELD_USERNAME, user.getUsername());
+        data.put(User.FIELD_EMAIL, user.getEmail());
+        data.put(User.FIELD_PASSWORD, user.getPassword());
+        data.put(User.FIELD_EXPERIENCE_POINT, user.getExperiencePoint());
+        data.put(User.FIELD_USER_LEVEL, user.getUserLevel());
+        data.put(FIELD_FIREBASE_UID, user.getUserId());
+        data.put(User.FIELD_UNLOCKED_SKILLS, new ArrayList<>(user.getUnlockedSkills()));
+        data.put(User.FIELD_ACHIEVEMENTS, new ArrayList<>(user.getAchievements()));
+        return data;
+    }
+
+    /**
+     * Only the fields changed since the last persist. XP gains and new skills/achievements
+     * go out as increments and unions so two devices of the same learner don't overwrite each other.
+     * The stored level goes out only with an absolute XP value; readers derive it from XP.
+     */
+    public Map<String, Object> encodeChanges(User user) {
+        Map<String, Object> data = new HashMap<>();
+        for (String field : user.getDirtyFields()) {
+            switch (field) {
+                case User.FIELD_USERNAME:
+                    data.put(field, user.getUsername());
+                    break;
+                case User.FIELD_EMAIL:
+                    data.put(field, user.getEmail());
+                    break;
+                case User.FIELD_PASSWORD:
+                    data.put(field, user.getPassword());
+                    break;
+                case User.FIELD_EXPERIENCE_POINT:
+                    data.put(field, user.getExperiencePoint());
+                    data.put(User.FIELD_USER_LEVEL, user.getUserLevel());
+                    break;
+                case User.FIELD_UNLOCKED_SKILLS:
+                    data.put(field, new ArrayList<>(user.getUnlockedSkills()));
+                    break;
+                case User.FIELD_ACHIEVEMENTS:
+                    data.put(field, new ArrayList<>(user.getAchievements()));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (user.getExperienceDelta() != 0) {
+            data.put(User.FIELD_EXPERIENCE_POINT, FieldDelta.increment(user.getExperienceDelta()));
+        }
+        if (!user.getAddedSkills().isEmpty()) {
+            data.put(User.FIELD_UNLOCKED_SKILLS, FieldDelta.arrayUnion(user.getAddedSkills()));
+        }
+        if (!user.getAddedAchievements().isEmpty()) {
+            data.put(User.FIELD_ACHIEVEMENTS, FieldDelta.arrayUnion(user.getAddedAchievements()));
+        }
+        return data;
+    }
+
+    @Override
+    public User decode(String documentId, Map<String, Object> data) {
+        String userId = documentId != null ? documentId : DocumentFields.getString(data, FIELD_FIREBASE_UID);
+        String username = DocumentFields.getString(data, User.FIELD_USERNAME);
+        String email = DocumentFields.getString(data, User.FIELD_EMAIL);
+        String password = DocumentFields.getString(data, User.FIELD_PASSWORD);
+        if (userId == null || username == null || email == null || password == null) {
+            return null;
+        }
+
+        User user = new User(userId, username, email, password);
+        // Sets the level too: the stored one lags behind XP written as increments
+        user.setExperiencePoint(DocumentFields.getInt(data, User.FIELD_EXPERIENCE_POINT, 0));
+        List<String> unlockedSkills = DocumentFields.getStringList(data, User.FIELD_UNLOCKED_SKILLS);
+        if (unlockedSkills != null) {
+            user.setUnlockedSkills(unlockedSkills);
+        }
+        List<String> achievements = DocumentFields.getStringList(data, User.FIELD_ACHIEVEMENTS);
+        if (achievements != null) {
+            user.setAchievements(achievements);
+        }
+
+        // Freshly decoded state matches what is stored
+        user.markClean();
+        return user;
+    }
+
+    @Override
+    public void write(User user, BinaryWriter out) {
+        out.writeString(user.getUserId());
+        out.writeString(user.getUsername());
+        out.writeString(user.getEmail());
+        out.writeString(user.getPassword());
+        out.writeInt(user.getExperiencePoint());
+        out.writeInt(user.getUserLevel());
+        out.writeStringList(user.getUnlockedSkills());
+        out.writeStringList(user.getAchievements());
+    }
+
+    @Override
+    public User read(BinaryReader in) {
+        User user = new User(in.readString(), in.readString(), in.readString(), in.readString());
+        user.setExperiencePoint(in.readInt());
+        in.readInt(); // Level, derived from XP above
+        List<String> unlockedSkills = in.readStringList();
+        if (unlockedSkills != null) {
+            user.setUnlockedSkills(unlockedSkills);
+        }
+        List<String> achievements = in.readStringList();
+        if (achievements != null) {
+            user.setAchievements(achievements);
+        }
+        user.markClean();
+        return user;
+    }
+}
@@ -0,0 +1,205 @@
+package service;
+
+import model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory user directory with hash indexes on email, userId and firebaseUid.
+ * All lookups are constant time instead of a linear scan over every user.
+ *
+ * Readers never lock: they go through the currently published index. Single
+ * writes are serialized, and a bulk reload builds a fresh index on the side
+ * and swaps it in atomically, so lookups keep working while users are loaded.
+ */
+public class UserDirectory {
+    private volatile Index index = new Index();
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    /**
+     * Add a user to every index. Returns false if the email is already taken.
+     */
+    public synchronized boolean add(User user) {
+        return index.add(user, writeSequence.incrementAndGet());
+    }
+
+    /**
+     * Re-index a user after its email may have changed.
+     */
+    public synchronized void update(User user) {
+        User owner = findByEmail(user.getEmail());
+        if (owner != null && owner != user) {
+            // Email now belongs to someone else, keep the existing entries
+            return;
+        }
+        // Index the new email before dropping the old one, so lookups never miss the user
+        index.reindex(user, writeSequence.incrementAndGet());
+    }
+
+    public synchronized void remove(User user) {
+        index.remove(user);
+    }
+
+    public synchronized void clear() {
+        index = new Index();
+    }
+
+    /**
+     * Current write position; pass it to {@link #reload} to keep users written after this point.
+     */
+    public long currentSequence() {
+        return writeSequence.get();
+    }
+
+    /**
+     * Replace the directory with freshly loaded users in one atomic swap.
+     * Existing users are carried over if they were written after {@code sinceSequence}
+     * (e.g. registered while the load was running), if {@code keep} matches them, or if they were
+     * written locally and the load didn't return them (their save may not have landed yet).
+     * A user the load did return no longer counts as written locally afterwards.
+     */
+    public void reload(Collection<User> loaded, long sinceSequence, Predicate<User> keep) {
+        // Index the loaded users without the lock, so single writes aren't held up by a large load
+        Index fresh = new Index();
+        for (User user : loaded) {
+            fresh.add(user, 0L);
+        }
+
+        synchronized (this) {
+            Index current = index;
+            for (User user : current.usersById.values()) {
+                long sequence = current.sequenceOf(user);
+                boolean returned = fresh.findById(user.getUserId()) != null;
+                if (keep.test(user) || sequence > sinceSequence || (sequence > 0 && !returned)) {
+                    // Users carried over win over the loaded copy
+                    fresh.replace(user, returned ? 0L : sequence);
+                }
+            }
+            index = fresh;
+        }
+    }
+
+    public User findByEmail(String email) {
+        String emailKey = normalizeEmail(email);
+        return emailKey == null ? null : index.usersByEmail.get(emailKey);
+    }
+
+    public User findById(String userId) {
+        return index.findById(userId);
+    }
+
+    public User findByFirebaseUid(String firebaseUid) {
+        return firebaseUid == null ? null : index.usersByFirebaseUid.get(firebaseUid);
+    }
+
+    public boolean containsEmail(String email) {
+        return findByEmail(email) != null;
+    }
+
+    public List<User> getAll() {
+        return new ArrayList<>(index.usersById.values());
+    }
+
+    public boolean isEmpty() {
+        return index.usersById.isEmpty();
+    }
+
+    public int size() {
+        return index.usersById.size();
+    }
+
+    /**
+     * Emails are matched case-insensitively and without surrounding whitespace.
+     */
+    static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One generation of the indexes. Mutated only under the directory lock, or before it is published.
+     */
+    private static class Index {
+        private final Map<String, User> usersByEmail = new ConcurrentHashMap<>();
+        private final Map<String, User> usersById = new ConcurrentHashMap<>();
+        private final Map<String, User> usersByFirebaseUid = new ConcurrentHashMap<>();
+
+        // Email each user was indexed under, so an email change can drop the old key
+        private final Map<String, String> indexedEmails = new ConcurrentHashMap<>();
+        private final Map<String, Long> writtenAt = new ConcurrentHashMap<>();
+
+        boolean add(User user, long sequence) {
+            String emailKey = normalizeEmail(user.getEmail());
+            if (emailKey == null || usersByEmail.containsKey(emailKey)) {
+                return false;
+            }
+
+            usersByEmail.put(emailKey, user);
+            usersById.put(user.getUserId(), user);
+            // Firebase Auth UIDs double as our document ids
+            usersByFirebaseUid.put(user.getUserId(), user);
+            indexedEmails.put(user.getUserId(), emailKey);
+            writtenAt.put(user.getUserId(), sequence);
+            return true;
+        }
+
+        void reindex(User user, long sequence) {
+            String emailKey = normalizeEmail(user.getEmail());
+            if (emailKey == null) {
+                return;
+            }
+            String previousKey = indexedEmails.put(user.getUserId(), emailKey);
+            usersByEmail.put(emailKey, user);
+            usersById.put(user.getUserId(), user);
+            usersByFirebaseUid.put(user.getUserId(), user);
+            writtenAt.put(user.getUserId(), sequence);
+            if (previousKey != null && !previousKey.equals(emailKey)) {
+                usersByEmail.remove(previousKey, user);
+            }
+        }
+
+        /**
+         * Add the user in place of any indexed user with the same id or email.
+         */
+        void replace(User user, long sequence) {
+            User sameId = findById(user.getUserId());
+            if (sameId != null) {
+                remove(sameId);
+            }
+            String emailKey = normalizeEmail(user.getEmail());
+            User sameEmail = emailKey == null ? null : usersByEmail.get(emailKey);
+            if (sameEmail != null) {
+                remove(sameEmail);
+            }
+            add(user, sequence);
+        }
+
+        void remove(User user) {
+            String emailKey = indexedEmails.remove(user.getUserId());
+            if (emailKey != null) {
+                usersByEmail.remove(emailKey, user);
+            }
+            usersByEmail.remove(normalizeEmail(user.getEmail()), user);
+            usersById.remove(user.getUserId(), user);
+            usersByFirebaseUid.remove(user.getUserId(), user);
+            writtenAt.remove(user.getUserId());
+        }
+
+        User findById(String userId) {
+            return userId == null ? null : usersById.get(userId);
+        }
+
+        long sequenceOf(User user) {
+            return writtenAt.getOrDefault(user.getUserId(), 0L);
+        }
+    }
+}
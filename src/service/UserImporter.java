@@ -0,0 +1,461 @@
+package service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exception.ValidationException;
+import interface_.AsyncDatabaseConnectable;
+import model.User;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk user import from CSV ({@code username,email,password} header) or a JSON array of objects with the same fields.
+ *
+ * Rows are read in batches. Each batch is validated and its passwords hashed in parallel, checked for duplicates
+ * against the directory and the rest of the file in one pass, and written with a single batch commit. Only a few
+ * batches may be in flight at once, so a slow database slows down reading instead of filling memory.
+ * After each batch is committed, in file order, the last row number is saved to
+ * {@code <dataDir>/imports/<importId>.checkpoint}, and an interrupted import with the same id resumes after it.
+ */
+public class UserImporter {
+    public enum Format { CSV, JSON }
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(UserImporter.class);
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}"); // Part of the checkpoint file name
+
+    private final UserService userService;
+    private final int batchSize = Integer.getInteger("codevia.import.batchSize", 500);
+    private final int maxInFlightBatches = Integer.getInteger("codevia.import.maxInFlightBatches", 4);
+    private final int threads = Integer.getInteger("codevia.import.threads", Runtime.getRuntime().availableProcessors());
+    private final int maxReportedErrors = Integer.getInteger("codevia.import.maxReportedErrors", 10_000);
+
+    UserImporter(UserService userService) {
+        this.userService = userService;
+    }
+
+    public Report run(InputStream in, Format format, String importId) throws IOException {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("Import id must be 1-64 letters, digits, '-' or '_': " + importId);
+        }
+        long startNanos = System.nanoTime();
+        Report report = new Report(importId, maxReportedErrors);
+        Path checkpointFile = Paths.get(System.getProperty("codevia.dataDir", LocalStoreService.DEFAULT_DATA_DIR),
+                "imports", importId + ".checkpoint");
+        long resumeAfter = readCheckpoint(checkpointFile);
+        report.resumedAfterRow = resumeAfter;
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads), daemonThreads("user-import"));
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        Set<String> seenEmails = new HashSet<>();
+        CompletableFuture<Void> committed = CompletableFuture.completedFuture(null); // Completes in file order
+
+        try (RowSource rows = format == Format.CSV ? new CsvRows(in) : new JsonRows(in)) {
+            List<Row> batch = new ArrayList<>(batchSize);
+            Row row;
+            while (!report.isStopped() && (row = rows.next()) != null) {
+                report.totalRows++;
+                if (row.number <= resumeAfter) {
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    committed = submitBatch(batch, workers, inFlight, seenEmails, committed, checkpointFile, report);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && !report.isStopped()) {
+                committed = submitBatch(batch, workers, inFlight, seenEmails, committed, checkpointFile, report);
+            }
+
+            try {
+                committed.join();
+                Files.deleteIfExists(checkpointFile);
+            } catch (CompletionException e) {
+                // The checkpoint stays at the last batch committed in order; running again resumes there
+                log.warn("User import stopped", "importId", importId, "reason", report.getStopReason());
+            }
+        } finally {
+            workers.shutdown();
+            report.elapsedMillis = AsyncLogger.elapsedMillis(startNanos);
+        }
+
+        log.info("User import finished", "importId", importId, "rows", report.totalRows, "imported", report.imported,
+                "duplicates", report.duplicates, "invalid", report.invalid, "failed", report.failed,
+                "latencyMs", report.elapsedMillis);
+        return report;
+    }
+
+    private CompletableFuture<Void> submitBatch(List<Row> batch, ExecutorService workers, Semaphore inFlight,
+                                                Set<String> seenEmails, CompletableFuture<Void> previous,
+                                                Path checkpointFile, Report report) {
+        // Validate and hash in parallel; this is where almost all of the time goes
+        List<CompletableFuture<User>> prepared = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            prepared.add(CompletableFuture.supplyAsync(() -> prepare(row, report), workers));
+        }
+
+        // Dedup and reserve in file order, on this thread
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        List<User> reserved = new ArrayList<>();
+        List<Row> reservedRows = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            User user = prepared.get(i).join();
+            if (user == null) {
+                continue;
+            }
+            String emailKey = UserDirectory.normalizeEmail(user.getEmail());
+            if (!seenEmails.add(emailKey) || !userService.getDirectory().add(user)) {
+                report.duplicate(batch.get(i), "User with this email already exists");
+                continue;
+            }
+            reserved.add(user);
+            reservedRows.add(batch.get(i));
+            documents.put(user.getUserId(), userService.getUserCodec().encode(user));
+        }
+
+        // Back-pressure: wait here while too many batches are being written
+        inFlight.acquireUninterruptibly();
+        AsyncDatabaseConnectable database = userService.getDatabase();
+        CompletableFuture<Void> write = documents.isEmpty() || database == null
+                ? CompletableFuture.completedFuture(null)
+                : database.updateBatchAsync("users", documents);
+
+        long firstRow = batch.get(0).number;
+        long lastRow = batch.get(batch.size() - 1).number;
+        CompletableFuture<Void> done = write.handle((ignored, error) -> {
+            inFlight.release();
+            if (error != null) {
+                for (User user : reserved) {
+                    userService.getDirectory().remove(user);
+                }
+                for (Row row : reservedRows) {
+                    report.failed(row, "Database write failed: " + error.getMessage());
+                }
+                report.stop("Database write failed at rows " + firstRow + "-" + lastRow);
+                throw new IllegalStateException("Import stopped at row " + firstRow, error);
+            }
+            report.imported(reserved.size());
+            return null;
+        });
+
+        return previous.thenCombine(done, (a, b) -> null)
+                .thenRun(() -> writeCheckpoint(checkpointFile, lastRow));
+    }
+
+    private User prepare(Row row, Report report) {
+        try {
+            userService.validateNewUser(row.username, row.email, row.password);
+            if (userService.getDirectory().containsEmail(row.email)) {
+                // Don't spend a hash on a row that can't be imported
+                report.duplicate(row, "User with this email already exists");
+                return null;
+            }
+            String hash = userService.getPasswordHasher().hash(row.password);
+            return new User(userService.nextLocalUserId(), row.username.trim(), row.email.trim(), hash);
+        } catch (ValidationException e) {
+            report.invalid(row, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long readCheckpoint(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        try {
+            return content.isEmpty() ? 0 : Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            // Already imported rows come back as duplicates, so starting over is safe
+            log.warn("Unreadable import checkpoint, starting from the first row", "file", file);
+            return 0;
+        }
+    }
+
+    private static void writeCheckpoint(Path file, long row) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, Long.toString(row).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write import checkpoint: " + e.getMessage(), "row", row);
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Input
+
+    private static class Row {
+        final long number; // 1-based, not counting the CSV header
+        final String username;
+        final String email;
+        final String password;
+
+        Row(long number, String username, String email, String password) {
+            this.number = number;
+            this.username = username;
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    private interface RowSource extends Closeable {
+        Row next() throws IOException;
+    }
+
+    private static class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private final int usernameColumn;
+        private final int emailColumn;
+        private final int passwordColumn;
+        private long number = 0;
+
+        CsvRows(InputStream in) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String header = reader.readLine();
+            List<String> columns = header == null ? Collections.emptyList() : parseLine(header.replace("\uFEFF", ""));
+            this.usernameColumn = indexOf(columns, "username");
+            this.emailColumn = indexOf(columns, "email");
+            this.passwordColumn = indexOf(columns, "password");
+        }
+
+        private static int indexOf(List<String> columns, String name) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).trim().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new IOException("CSV header is missing the '" + name + "' column");
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                number++;
+            } while (line.trim().isEmpty());
+
+            List<String> fields = parseLine(line);
+            return new Row(number, field(fields, usernameColumn), field(fields, emailColumn), field(fields, passwordColumn));
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index < fields.size() ? fields.get(index) : null;
+        }
+
+        /**
+         * One CSV record: comma separated, optionally double-quoted with "" as an escaped quote.
+         * Quoted fields can't span lines.
+         */
+        private static List<String> parseLine(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static class JsonRows implements RowSource {
+        private final MappingIterator<Map<String, Object>> iterator;
+        private long number = 0;
+
+        JsonRows(InputStream in) throws IOException {
+            // Streams the elements of a top-level array one at a time
+            this.iterator = new ObjectMapper().readerFor(Map.class).readValues(in);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (!iterator.hasNextValue()) {
+                return null;
+            }
+            Map<String, Object> values = iterator.nextValue();
+            number++;
+            return new Row(number, string(values.get("username")), string(values.get("email")), string(values.get("password")));
+        }
+
+        private static String string(Object value) {
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            iterator.close();
+        }
+    }
+
+    // Result
+
+    /**
+     * Outcome of one import run. Errors are listed per row, up to a limit.
+     */
+    public static class Report {
+        private final String importId;
+        private final int maxErrors;
+        private final List<RowError> errors = new ArrayList<>();
+        private long totalRows;
+        private long resumedAfterRow;
+        private long imported;
+        private long duplicates;
+        private long invalid;
+        private long failed;
+        private double elapsedMillis;
+        private volatile String stopReason;
+
+        Report(String importId, int maxErrors) {
+            this.importId = importId;
+            this.maxErrors = maxErrors;
+        }
+
+        synchronized void imported(int count) {
+            imported += count;
+        }
+
+        synchronized void duplicate(Row row, String message) {
+            duplicates++;
+            addError(row, message);
+        }
+
+        synchronized void invalid(Row row, String message) {
+            invalid++;
+            addError(row, message);
+        }
+
+        synchronized void failed(Row row, String message) {
+            failed++;
+            addError(row, message);
+        }
+
+        void stop(String reason) {
+            if (stopReason == null) {
+                stopReason = reason;
+            }
+        }
+
+        boolean isStopped() {
+            return stopReason != null;
+        }
+
+        private void addError(Row row, String message) {
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(row.number, row.email, message));
+            }
+        }
+
+        public String getImportId() { return importId; }
+        public long getTotalRows() { return totalRows; }
+        public long getResumedAfterRow() { return resumedAfterRow; }
+        public synchronized long getImported() { return imported; }
+        public synchronized long getDuplicates() { return duplicates; }
+        public synchronized long getInvalid() { return invalid; }
+        public synchronized long getFailed() { return failed; }
+        public double getElapsedMillis() { return elapsedMillis; }
+        public String getStopReason() { return stopReason; }
+        public synchronized List<RowError> getErrors() {
+            // Rows are validated in parallel, so errors arrive out of order
+            errors.sort(Comparator.comparingLong(RowError::getRow));
+            return new ArrayList<>(errors);
+        }
+
+        public double getRowsPerSecond() {
+            long processed = totalRows - resumedAfterRow;
+            return elapsedMillis <= 0 ? 0 : processed * 1000.0 / elapsedMillis;
+        }
+
+        public synchronized void print() {
+            System.out.println("\n=== User Import " + importId + " ===");
+            System.out.println("Rows: " + totalRows + (resumedAfterRow > 0 ? " (resumed after row " + resumedAfterRow + ")" : ""));
+            System.out.println("Imported: " + imported + ", duplicates: " + duplicates + ", invalid: " + invalid + ", failed: " + failed);
+            System.out.printf("Time: %.1f s (%.0f rows/s)%n", elapsedMillis / 1000, getRowsPerSecond());
+            if (stopReason != null) {
+                System.out.println("Stopped: " + stopReason + ". Run the import again with the same id to resume.");
+            }
+            for (RowError error : getErrors()) {
+                System.out.println("  Row " + error.getRow() + " (" + error.getEmail() + "): " + error.getMessage());
+            }
+            long unreported = duplicates + invalid + failed - errors.size();
+            if (unreported > 0) {
+                System.out.println("  ... and " + unreported + " more");
+            }
+        }
+    }
+
+    public static class RowError {
+        private final long row;
+        private final String email;
+        private final String message;
+
+        RowError(long row, String email, String message) {
+            this.row = row;
+            this.email = email;
+            this.message = message;
+        }
+
+        public long getRow() { return row; }
+        public String getEmail() { return email; }
+        public String getMessage() { return message; }
+    }
+}
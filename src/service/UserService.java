@@ -1,20 +1,55 @@
 package service;
 
 import model.User;
+import exception.AuthenticationException;
 import exception.DatabaseException;
 import exception.ValidationException;
+import interface_.ChangeSubscription;
+import interface_.DocumentChangeListener;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class UserService extends BaseService {
-    private List<User> users; // In-memory storage for demo
+    private static final AsyncLogger log = AsyncLogger.getLogger(UserService.class);
+    private static final String SNAPSHOT_NAME = "users";
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 300_000;
+    private static final long CLOCK_SKEW_MARGIN_MILLIS = Long.getLong("codevia.sync.clockSkewMillis", 60_000);
+
+    private UserDirectory users; // In-memory user directory, indexed by email and id
+    private final AtomicInteger localUserIds = new AtomicInteger();
+    private final UserCodec userCodec = (UserCodec) CodecRegistry.getInstance().forType(User.class);
+    private final PasswordHasher passwordHasher = PasswordHasher.getInstance();
+    private WriteBehindQueue writeBehindQueue; // Coalesces profile updates, null when no database is available
+    private volatile ChangeSubscription userChanges; // Live feed of user documents changed elsewhere
+    private final Map<String, Integer> unacknowledgedWrites = new ConcurrentHashMap<>(); // User id -> writes in flight
+    private final Set<String> unsavedUserIds = ConcurrentHashMap.newKeySet(); // First save failed, in memory only
+    private final SnapshotStore snapshots = SnapshotStore.openDefault();
+    private ScheduledExecutorService snapshotWriter;
 
     public UserService() {
         super();
-        this.users = new ArrayList<>();
+        this.users = new UserDirectory();
+        if (getDatabase() != null) {
+            // Follows the service's current backend, which may fall back to the local store
+            this.writeBehindQueue = new WriteBehindQueue(this::getDatabase);
+            Runtime.getRuntime().addShutdownHook(new Thread(writeBehindQueue::shutdown, "write-behind-shutdown"));
+        }
         initializeUsers();
     }
 
@@ -22,114 +57,315 @@ public class UserService extends BaseService {
         // Add demo users first (for immediate use)
         users.add(new User("1", "admin", "admin@codevia.com", "admin123"));
         users.add(new User("2", "student", "student@codevia.com", "student123"));
-        
+
+        // Start from the last snapshot so logins work before Firebase answers
+        loadUsersFromSnapshot();
+        startSnapshotWriter();
+
         // Try to load users from Firebase in background
         loadUsersFromDatabaseAsync();
     }
-    
-    private void loadUsersFromDatabaseAsync() {
-        // Load from Firebase asynchronously
-        java.util.concurrent.CompletableFuture.runAsync(() -> {
-            try {
-                // Wait a bit for Firebase to initialize
-                Thread.sleep(2000);
-                if (isFirebaseConnected()) {
-                    loadUsersFromDatabase();
+
+    private void loadUsersFromSnapshot() {
+        try {
+            long startNanos = System.nanoTime();
+            List<User> snapshotUsers = snapshots.read(SNAPSHOT_NAME, userCodec);
+            if (snapshotUsers.isEmpty()) {
+                return;
+            }
+            users.reload(snapshotUsers, users.currentSequence(), this::isDemoUser);
+            log.info("Users loaded from snapshot", "count", snapshotUsers.size(),
+                    "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+        } catch (Exception e) {
+            log.warn("Failed to load user snapshot, waiting for the database: " + e.getMessage());
+        }
+    }
+
+    private void startSnapshotWriter() {
+        long intervalMillis = Long.getLong("codevia.snapshot.intervalMillis", DEFAULT_SNAPSHOT_INTERVAL_MILLIS);
+        if (intervalMillis > 0) {
+            snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotWriter.scheduleWithFixedDelay(this::saveSnapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveSnapshot, "user-snapshot-shutdown"));
+    }
+
+    /**
+     * Write the current users to the local snapshot read at the next start.
+     */
+    public synchronized void saveSnapshot() {
+        try {
+            List<User> snapshotUsers = new ArrayList<>();
+            for (User user : users.getAll()) {
+                if (!isDemoUser(user)) {
+                    snapshotUsers.add(user);
                 }
-            } catch (Exception e) {
-                System.err.println("Failed to load users from database: " + e.getMessage());
             }
-        });
+            snapshots.write(SNAPSHOT_NAME, snapshotUsers, userCodec);
+        } catch (Exception e) {
+            log.warn("Failed to write user snapshot: " + e.getMessage());
+        }
+    }
+    
+    private void loadUsersFromDatabaseAsync() {
+        // Load as soon as the connection is up, never before and never skipped
+        whenDatabaseReady()
+                .thenRunAsync(() -> subscribeToUserChanges(loadUsersFromDatabase()))
+                .exceptionally(error -> {
+                    log.error("Failed to load users from database: " + error.getMessage());
+                    return null;
+                });
     }
 
     @Override
     public void displayInfo() {
         System.out.println("User Service - Managing user accounts and profiles");
         System.out.println("Total users: " + users.size());
+        if (writeBehindQueue != null) {
+            writeBehindQueue.displayStats();
+        }
+        CachingDatabaseService cache = connectionManager.getCache();
+        if (cache != null) {
+            cache.displayStats();
+        }
+        ResilientDatabaseService resilience = connectionManager.getResilience();
+        if (resilience != null) {
+            resilience.displayStats();
+        }
+        JournalingDatabaseService journal = connectionManager.getJournal();
+        if (journal != null) {
+            journal.displayStats();
+        }
+        connectionManager.getMetrics().displayStats();
     }
 
     public User createUser(String username, String email, String password) throws ValidationException {
         // Generate new user ID for non-Firebase users
-        String userId = String.valueOf(users.size() + 1);
-        return createUser(userId, username, email, password);
+        return createUser(nextLocalUserId(), username, email, password);
     }
 
-    public User createUser(String userId, String username, String email, String password) throws ValidationException {
-        if (username == null || username.trim().isEmpty()) {
-            throw new ValidationException("Username cannot be empty");
-        }
-        if (email == null || !isValidEmail(email)) {
-            throw new ValidationException("Invalid email format");
-        }
-        if (password == null || password.length() < 6) {
-            throw new ValidationException("Password must be at least 6 characters");
+    String nextLocalUserId() {
+        // Reserve ids atomically so concurrent registrations never share one
+        int next = localUserIds.updateAndGet(last -> Math.max(last, users.size()) + 1);
+        while (users.findById(String.valueOf(next)) != null) {
+            next = localUserIds.updateAndGet(last -> last + 1);
         }
+        return String.valueOf(next);
+    }
+
+    public User createUser(String userId, String username, String email, String password) throws ValidationException {
+        validateNewUser(username, email, password);
 
         // Check if user already exists
-        if (findUserByEmail(email) != null) {
+        if (users.containsEmail(email)) {
+            throw new ValidationException("User with this email already exists");
+        }
+        User user = new User(userId, username, email, hashPassword(password));
+        if (!users.add(user)) {
             throw new ValidationException("User with this email already exists");
         }
-
-        User user = new User(userId, username, email, password);
-        users.add(user);
 
         // Save to database
-        Map<String, Object> userData = new HashMap<>();
-        userData.put("username", username);
-        userData.put("email", email);
-        userData.put("password", password);
-        userData.put("experiencePoint", user.getExperiencePoint());
-        userData.put("userLevel", user.getUserLevel());
-        userData.put("firebaseUid", userId);
-        userData.put("unlockedSkills", user.getUnlockedSkills());
-        userData.put("achievements", user.getAchievements());
+        Map<String, Object> userData = userCodec.encode(user);
+        performDatabaseOperation("save", "users", userId, userData).whenComplete((result, error) -> {
+            if (error != null) {
+                unsavedUserIds.add(userId);
+                log.error("Failed to save user to database, keeping it in memory only", error, "userId", userId);
+            }
+        });
+
+        return user;
+    }
 
+    public CompletableFuture<User> createUserAsync(String username, String email, String password) {
+        return createUserAsync(nextLocalUserId(), username, email, password);
+    }
+
+    /**
+     * Create a user without blocking: the password is hashed on the hasher pool and the future completes
+     * once the profile is written. If the write fails the user is removed again and the future fails.
+     */
+    public CompletableFuture<User> createUserAsync(String userId, String username, String email, String password) {
+        return createUserAsync(CompletableFuture.completedFuture(userId), username, email, password);
+    }
+
+    /**
+     * Same, for an id that is still being assigned (e.g. by Firebase Auth); hashing runs meanwhile.
+     */
+    public CompletableFuture<User> createUserAsync(CompletableFuture<String> userId, String username, String email, String password) {
+        CompletableFuture<String> hash;
         try {
-            performDatabaseOperation("save", "users", userId, userData);
-        } catch (Exception e) {
-            System.err.println("Failed to save user to database: " + e.getMessage());
+            validateNewUser(username, email, password);
+            if (users.containsEmail(email)) {
+                throw new ValidationException("User with this email already exists");
+            }
+            hash = passwordHasher.hashAsync(password);
+        } catch (ValidationException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ValidationException("Server is busy, please try again"));
         }
 
-        return user;
+        return userId.thenCombine(hash, (id, passwordHash) -> new User(id, username, email, passwordHash))
+                .thenCompose(user -> {
+                    if (!users.add(user)) {
+                        return CompletableFuture.failedFuture(new ValidationException("User with this email already exists"));
+                    }
+                    return performDatabaseOperation("save", "users", user.getUserId(), userCodec.encode(user))
+                            .handle((ignored, error) -> {
+                                if (error != null) {
+                                    users.remove(user);
+                                    throw new CompletionException(error instanceof CompletionException ? error.getCause() : error);
+                                }
+                                return user;
+                            });
+                });
+    }
+
+    /**
+     * Check a password against the user's stored hash, on the hasher pool.
+     * A null user is checked against a dummy hash so unknown emails take as long as known ones.
+     * Plaintext passwords and hashes with old cost parameters are replaced after a successful check.
+     */
+    public boolean verifyPassword(User user, String password) throws AuthenticationException {
+        String stored = user == null ? null : user.getPassword();
+        boolean valid;
+        try {
+            valid = passwordHasher.verifyAsync(password, stored).join();
+        } catch (CompletionException | RejectedExecutionException e) {
+            throw new AuthenticationException("Too many sign-in attempts in progress, please try again");
+        }
+
+        if (valid && passwordHasher.needsRehash(stored)) {
+            passwordHasher.hashAsync(password)
+                    .thenAccept(hash -> {
+                        synchronized (user) {
+                            // Skip if the password was changed while hashing
+                            if (!stored.equals(user.getPassword())) {
+                                return;
+                            }
+                            user.setPassword(hash);
+                        }
+                        updateUser(user);
+                    })
+                    .exceptionally(error -> {
+                        log.warn("Failed to rehash password", "userId", user.getUserId());
+                        return null;
+                    });
+        }
+        return valid;
+    }
+
+    /**
+     * Store a new password for the user, hashed. Blocks while hashing, so don't call it on a UI thread.
+     */
+    public void changePassword(User user, String newPassword) throws ValidationException {
+        if (newPassword == null || newPassword.length() < 6) {
+            throw new ValidationException("Password must be at least 6 characters");
+        }
+        String hash = hashPassword(newPassword);
+        synchronized (user) {
+            user.setPassword(hash);
+        }
+        updateUser(user);
+    }
+
+    private String hashPassword(String password) throws ValidationException {
+        try {
+            return passwordHasher.hashAsync(password).join();
+        } catch (CompletionException | RejectedExecutionException e) {
+            throw new ValidationException("Server is busy, please try again");
+        }
     }
 
     public User findUserByEmail(String email) {
-        return users.stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst()
-                .orElse(null);
+        return users.findByEmail(email);
     }
 
     public User findUserByFirebaseUid(String firebaseUid) {
-        return users.stream()
-                .filter(user -> user.getUserId().equals(firebaseUid))
-                .findFirst()
-                .orElse(null);
+        return users.findByFirebaseUid(firebaseUid);
     }
 
     public User findUserById(String userId) {
-        return users.stream()
-                .filter(user -> user.getUserId().equals(userId))
-                .findFirst()
-                .orElse(null);
+        return users.findById(userId);
     }
 
     public void updateUser(User user) {
-        Map<String, Object> userData = new HashMap<>();
-        userData.put("username", user.getUsername());
-        userData.put("email", user.getEmail());
-        userData.put("password", user.getPassword());
-        userData.put("experiencePoint", user.getExperiencePoint());
-        userData.put("userLevel", user.getUserLevel());
-        userData.put("firebaseUid", user.getUserId());
-        userData.put("unlockedSkills", user.getUnlockedSkills());
-        userData.put("achievements", user.getAchievements());
+        // Locks the user itself, so callers that changed it outside the lock can't race a concurrent update
+        synchronized (user) {
+            if (user.getDirtyFields().contains(User.FIELD_EMAIL)) {
+                users.update(user);
+            }
+            if (!user.isDirty()) {
+                return;
+            }
+            if (isDemoUser(user) || unsavedUserIds.contains(user.getUserId())) {
+                // Never saved, so a merged update would create a document holding only the changed fields
+                user.markClean();
+                return;
+            }
 
-        try {
-            performDatabaseOperation("update", "users", user.getUserId(), userData);
-        } catch (Exception e) {
-            System.err.println("Failed to update user: " + e.getMessage());
+            Map<String, Object> userData = userCodec.encodeChanges(user);
+            user.markClean();
+
+            // Until the database acknowledges this write, the change feed may still send older copies
+            String userId = user.getUserId();
+            unacknowledgedWrites.merge(userId, 1, Integer::sum);
+            CompletableFuture<?> write = writeBehindQueue != null
+                    ? writeBehindQueue.enqueue("users", userId, userData) // Several XP grants in a row end up as one write
+                    : performDatabaseOperation("update", "users", userId, userData);
+            write.whenComplete((result, error) ->
+                    unacknowledgedWrites.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null));
+        }
+    }
+
+    /**
+     * Write any queued profile updates now
+     */
+    public void flushPendingUpdates() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.flush();
+        }
+    }
+
+    public WriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
+    /**
+     * Import many users at once; see {@link UserImporter}. Running again with the same importId
+     * after an interruption resumes where the last run stopped.
+     */
+    public UserImporter.Report importUsers(InputStream in, UserImporter.Format format, String importId) throws IOException {
+        return new UserImporter(this).run(in, format, importId);
+    }
+
+    void validateNewUser(String username, String email, String password) throws ValidationException {
+        if (username == null || username.trim().isEmpty()) {
+            throw new ValidationException("Username cannot be empty");
+        }
+        if (email == null || !isValidEmail(email)) {
+            throw new ValidationException("Invalid email format");
         }
+        if (password == null || password.length() < 6) {
+            throw new ValidationException("Password must be at least 6 characters");
+        }
+    }
+
+    UserDirectory getDirectory() {
+        return users;
+    }
+
+    UserCodec getUserCodec() {
+        return userCodec;
+    }
+
+    PasswordHasher getPasswordHasher() {
+        return passwordHasher;
     }
 
     private boolean isValidEmail(String email) {
@@ -137,114 +373,151 @@ public class UserService extends BaseService {
     }
 
     /**
-     * Load all users from Firebase database
+     * Load all users from Firebase database. Returns the time to follow changes from, so the change
+     * feed doesn't deliver them all again: when the load started, less a margin for clock skew with
+     * the database server. 0 if the load failed.
      */
-    private void loadUsersFromDatabase() {
+    private long loadUsersFromDatabase() {
         try {
-            System.out.println("Loading users from Firebase database...");
-            
-            // Get all users from Firebase
-            List<Map<String, Object>> userDataList = firebaseService.getAll("users");
-            
-            // Clear existing users except demo users if we have Firebase data
-            if (!userDataList.isEmpty()) {
-                // Keep only demo users initially, then add Firebase users
-                List<User> demoUsers = new ArrayList<>();
-                for (User user : users) {
-                    if (user.getUserId().equals("1") || user.getUserId().equals("2")) {
-                        demoUsers.add(user);
+            log.info("Loading users from database");
+            long startNanos = System.nanoTime();
+            long changedSinceMillis = System.currentTimeMillis() - CLOCK_SKEW_MARGIN_MILLIS;
+
+            // Users registered while the load is running must survive the swap
+            long loadStartedAt = users.currentSequence();
+
+            // Page through the users so only one page of raw documents is in memory at a time
+            List<User> loadedUsers = new ArrayList<>();
+            try (Stream<Map<String, Object>> userDataStream = getDatabase().streamAll("users", PagedIterator.configuredPageSize())) {
+                userDataStream.forEach(userData -> {
+                    User user = createUserFromData(userData);
+                    if (user != null) {
+                        loadedUsers.add(user);
                     }
-                }
-                users.clear();
-                users.addAll(demoUsers);
+                });
             }
-            
-            for (Map<String, Object> userData : userDataList) {
-                try {
-                    User user = createUserFromData(userData);
-                    if (user != null && !isDuplicateUser(user)) {
-                        users.add(user);
+            if (loadedUsers.isEmpty()) {
+                return changedSinceMillis;
+            }
+            if (connectionManager.isLocalStore()) {
+                // The local store may hold only what was written while Firebase was unreachable,
+                // so keep the users from the snapshot that it doesn't have
+                Set<String> loadedIds = new HashSet<>();
+                for (User user : loadedUsers) {
+                    loadedIds.add(user.getUserId());
+                }
+                for (User user : users.getAll()) {
+                    if (!loadedIds.contains(user.getUserId())) {
+                        loadedUsers.add(user);
                     }
-                } catch (Exception e) {
-                    System.err.println("Failed to load user: " + e.getMessage());
                 }
             }
-            
+
+            // Keep only demo users and fresh registrations, then publish the loaded users in one swap
+            users.reload(loadedUsers, loadStartedAt, this::isDemoUser);
+            log.info("Users loaded", "collection", "users", "count", loadedUsers.size(),
+                    "latencyMs", AsyncLogger.elapsedMillis(startNanos));
+            return changedSinceMillis;
         } catch (Exception e) {
-            System.err.println("Failed to load users from database: " + e.getMessage());
-            System.out.println("Will proceed with demo users...");
+            log.error("Failed to load users from database, proceeding with demo users: " + e.getMessage());
+            return 0;
         }
     }
     
-    private boolean isDuplicateUser(User newUser) {
-        return users.stream().anyMatch(user -> user.getEmail().equals(newUser.getEmail()));
+    /**
+     * Keep the directory in sync with users added, changed or removed by other app instances
+     * since changedSinceMillis.
+     */
+    private void subscribeToUserChanges(long changedSinceMillis) {
+        try {
+            userChanges = getDatabase().listen("users", changedSinceMillis, new DocumentChangeListener() {
+                @Override
+                public void onChange(ChangeType type, String documentId, Map<String, Object> data) {
+                    applyUserChange(type, documentId, data);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    log.warn("User change feed failed: " + e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to subscribe to user changes: " + e.getMessage());
+        }
     }
 
     /**
-     * Create User object from Firebase data
+     * Stop following remote user changes.
      */
-    private User createUserFromData(Map<String, Object> userData) {
-        try {
-            // Extract basic user information
-            String userId = (String) userData.get("id"); // Document ID from Firebase
-            if (userId == null) {
-                userId = (String) userData.get("firebaseUid");
-            }
-            
-            String username = (String) userData.get("username");
-            String email = (String) userData.get("email");
-            String password = (String) userData.get("password");
-            
-            if (userId == null || username == null || email == null || password == null) {
-                System.err.println("Missing required user data for user: " + userData);
-                return null;
-            }
-            
-            // Create user object
-            User user = new User(userId, username, email, password);
-            
-            // Set experience and level
-            if (userData.get("experiencePoint") != null) {
-                Object xpObj = userData.get("experiencePoint");
-                int experiencePoint = (xpObj instanceof Integer) ? (Integer) xpObj : 
-                                     (xpObj instanceof Long) ? ((Long) xpObj).intValue() : 0;
-                user.setExperiencePoint(experiencePoint);
-            }
-            
-            if (userData.get("userLevel") != null) {
-                Object levelObj = userData.get("userLevel");
-                int userLevel = (levelObj instanceof Integer) ? (Integer) levelObj : 
-                               (levelObj instanceof Long) ? ((Long) levelObj).intValue() : 1;
-                user.setUserLevel(userLevel);
+    public void stopUserSync() {
+        ChangeSubscription subscription = userChanges;
+        if (subscription != null) {
+            subscription.cancel();
+            userChanges = null;
+        }
+    }
+
+    private void applyUserChange(DocumentChangeListener.ChangeType type, String documentId, Map<String, Object> data) {
+        User existing = users.findById(documentId);
+
+        if (type == DocumentChangeListener.ChangeType.REMOVED) {
+            if (existing != null && !isDemoUser(existing)) {
+                users.remove(existing);
             }
-            
-            // Set unlocked skills
-            @SuppressWarnings("unchecked")
-            List<String> unlockedSkills = (List<String>) userData.get("unlockedSkills");
-            if (unlockedSkills != null) {
-                user.setUnlockedSkills(new ArrayList<>(unlockedSkills));
+            return;
+        }
+
+        User changed = userCodec.decode(documentId, data);
+        if (changed == null) {
+            return;
+        }
+
+        if (existing == null) {
+            users.add(changed);
+            return;
+        }
+
+        synchronized (existing) {
+            if (existing.isDirty() || unacknowledgedWrites.containsKey(documentId)) {
+                // Local edits are still on their way out; the echo of that write brings this copy up to date
+                return;
             }
-            
-            // Set achievements
-            @SuppressWarnings("unchecked")
-            List<String> achievements = (List<String>) userData.get("achievements");
-            if (achievements != null) {
-                user.setAchievements(new ArrayList<>(achievements));
+
+            // Update in place so sessions holding this User see the change
+            boolean emailChanged = !existing.getEmail().equals(changed.getEmail());
+            existing.setUsername(changed.getUsername());
+            existing.setEmail(changed.getEmail());
+            existing.setPassword(changed.getPassword());
+            existing.setExperiencePoint(changed.getExperiencePoint());
+            existing.setUnlockedSkills(new ArrayList<>(changed.getUnlockedSkills()));
+            existing.setAchievements(new ArrayList<>(changed.getAchievements()));
+            existing.markClean();
+            if (emailChanged) {
+                users.update(existing);
             }
-            
-            return user;
-            
-        } catch (Exception e) {
-            System.err.println("Error creating user from data: " + e.getMessage());
-            return null;
         }
     }
 
+    private boolean isDemoUser(User user) {
+        return user.getUserId().equals("1") || user.getUserId().equals("2");
+    }
+
+    /**
+     * Create User object from Firebase data
+     */
+    private User createUserFromData(Map<String, Object> userData) {
+        User user = userCodec.decode((String) userData.get("id"), userData);
+        if (user == null) {
+            log.warn("Missing required user data", "userId", userData.get("id"));
+        }
+        return user;
+    }
+
     /**
-     * Refresh users from database (useful for syncing)
+     * Full reload from the database. Normally not needed, the change feed keeps users in sync.
      */
     public void refreshUsersFromDatabase() {
-        users.clear();
+        // Readers keep using the current users until the reload swaps them out
         loadUsersFromDatabase();
         
         // Add demo users if no users found
@@ -258,7 +531,7 @@ public class UserService extends BaseService {
      * Get all users (for admin purposes)
      */
     public List<User> getAllUsers() {
-        return new ArrayList<>(users);
+        return users.getAll();
     }
 
     /**
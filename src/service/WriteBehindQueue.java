@@ -0,0 +1,320 @@
+package service;
+
+import exception.DatabaseUnavailableException;
+import interface_.AsyncDatabaseConnectable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for document updates.
+ *
+ * Updates to the same document within the flush window are coalesced into one
+ * write, and everything pending is committed as batches of up to
+ * {@link FirebaseService#MAX_BATCH_WRITES} operations.
+ */
+public class WriteBehindQueue {
+    public static final long DEFAULT_FLUSH_WINDOW_MILLIS = 250;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(WriteBehindQueue.class);
+
+    private final Supplier<AsyncDatabaseConnectable> database;
+    private final long flushWindowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    // Pending writes keyed by collection, then document id (guarded by this)
+    private Map<String, Map<String, Map<String, Object>>> pending = new LinkedHashMap<>();
+    private Map<String, Map<String, CompletableFuture<Void>>> acknowledgements = new HashMap<>(); // Same keys as pending
+    private int pendingCount = 0;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean shutdown = false;
+
+    // Metrics
+    private final AtomicLong enqueuedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile int lastBatchSize = 0;
+    private volatile int maxQueueDepth = 0;
+
+    public WriteBehindQueue(Supplier<AsyncDatabaseConnectable> database) {
+        this(database, Long.getLong("codevia.writeBehind.windowMillis", DEFAULT_FLUSH_WINDOW_MILLIS),
+                FirebaseService.MAX_BATCH_WRITES);
+    }
+
+    public WriteBehindQueue(Supplier<AsyncDatabaseConnectable> database, long flushWindowMillis, int maxBatchSize) {
+        if (maxBatchSize < 1 || maxBatchSize > FirebaseService.MAX_BATCH_WRITES) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + FirebaseService.MAX_BATCH_WRITES);
+        }
+        this.database = database;
+        this.flushWindowMillis = flushWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue an update. Fields are merged into any write already pending for the same document.
+     * The returned future completes once the database has acknowledged the write that carries them.
+     */
+    public synchronized CompletableFuture<Void> enqueue(String collection, String documentId, Map<String, Object> data) {
+        if (shutdown) {
+            // Nothing will flush us any more, write straight through
+            return database.get().updateBatchAsync(collection, Map.of(documentId, new HashMap<>(data)));
+        }
+
+        enqueuedWrites.incrementAndGet();
+        Map<String, Map<String, Object>> documents = pending.computeIfAbsent(collection, c -> new LinkedHashMap<>());
+        Map<String, Object> existing = documents.get(documentId);
+        if (existing != null) {
+            FieldDelta.mergeFields(existing, data);
+            coalescedWrites.incrementAndGet();
+        } else {
+            documents.put(documentId, new HashMap<>(data));
+            pendingCount++;
+            maxQueueDepth = Math.max(maxQueueDepth, pendingCount);
+        }
+
+        if (pendingCount >= maxBatchSize) {
+            // A full batch is ready, don't wait for the window
+            scheduler.execute(this::flush);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, flushWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        return acknowledgements.computeIfAbsent(collection, c -> new HashMap<>())
+                .computeIfAbsent(documentId, id -> new CompletableFuture<>());
+    }
+
+    /**
+     * Commit everything pending. The returned future completes once all batches are acknowledged.
+     */
+    public CompletableFuture<Void> flush() {
+        Map<String, Map<String, Map<String, Object>>> toFlush;
+        Map<String, Map<String, CompletableFuture<Void>>> toAcknowledge;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (pendingCount == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            toFlush = pending;
+            toAcknowledge = acknowledgements;
+            pending = new LinkedHashMap<>();
+            acknowledgements = new HashMap<>();
+            pendingCount = 0;
+        }
+
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Map<String, Object>>> entry : toFlush.entrySet()) {
+            String collection = entry.getKey();
+            Map<String, CompletableFuture<Void>> acks = toAcknowledge.getOrDefault(collection, Map.of());
+            Map<String, Map<String, Object>> chunk = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Map<String, Object>> document : entry.getValue().entrySet()) {
+                chunk.put(document.getKey(), document.getValue());
+                if (chunk.size() == maxBatchSize) {
+                    commits.add(commit(collection, chunk, acks));
+                    chunk = new LinkedHashMap<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                commits.add(commit(collection, chunk, acks));
+            }
+        }
+
+        return CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Flush whatever is pending and stop the flusher thread. Later writes go straight to the database.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+        }
+
+        try {
+            flush().get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("Failed to flush pending writes on shutdown", e);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> commit(String collection, Map<String, Map<String, Object>> batch,
+                                           Map<String, CompletableFuture<Void>> acks) {
+        int size = batch.size();
+        return database.get().updateBatchAsync(collection, batch)
+                .handle((result, error) -> {
+                    flushes.incrementAndGet();
+                    lastBatchSize = size;
+                    if (error == null) {
+                        flushedWrites.addAndGet(size);
+                        for (String documentId : batch.keySet()) {
+                            CompletableFuture<Void> ack = acks.get(documentId);
+                            if (ack != null) {
+                                ack.complete(null);
+                            }
+                        }
+                    } else {
+                        failedFlushes.incrementAndGet();
+                        retryOrDrop(collection, batch, acks, error);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Send a failed batch again only as far as that can't apply anything twice: all of it if it never
+     * reached the database, only its absolute values if it timed out and may have landed, nothing if
+     * the database rejected it.
+     */
+    private void retryOrDrop(String collection, Map<String, Map<String, Object>> batch,
+                             Map<String, CompletableFuture<Void>> acks, Throwable error) {
+        Throwable cause = DatabaseConnectionManager.unwrap(error);
+        Map<String, Map<String, Object>> retry = new LinkedHashMap<>();
+        if (cause instanceof DatabaseUnavailableException) {
+            log.warn("Failed to flush batch, requeued: " + cause.getMessage(), "collection", collection, "writes", batch.size());
+            retry = batch;
+        } else if (ResilientDatabaseService.isTransient(cause)) {
+            int droppedDeltas = 0;
+            for (Map.Entry<String, Map<String, Object>> document : batch.entrySet()) {
+                Map<String, Object> absolute = new HashMap<>();
+                document.getValue().forEach((field, value) -> {
+                    if (!(value instanceof FieldDelta)) {
+                        absolute.put(field, value);
+                    }
+                });
+                droppedDeltas += document.getValue().size() - absolute.size();
+                if (!absolute.isEmpty()) {
+                    retry.put(document.getKey(), absolute);
+                }
+            }
+            log.error("Batch may or may not have been applied, requeued only its absolute values", cause,
+                    "collection", collection, "writes", batch.size(), "droppedIncrements", droppedDeltas);
+        } else {
+            log.error("Database rejected batch, dropping it", cause, "collection", collection, "writes", batch.size());
+        }
+
+        for (String documentId : batch.keySet()) {
+            CompletableFuture<Void> ack = acks.get(documentId);
+            if (ack != null && !retry.containsKey(documentId)) {
+                ack.completeExceptionally(cause);
+            }
+        }
+        if (!retry.isEmpty() && !requeue(collection, retry, acks)) {
+            writeThrough(collection, retry, acks);
+        }
+    }
+
+    /**
+     * Put a failed batch back in front of anything queued for the same documents since.
+     * Returns false once shut down, when nothing would flush it any more.
+     */
+    private synchronized boolean requeue(String collection, Map<String, Map<String, Object>> batch,
+                                         Map<String, CompletableFuture<Void>> acks) {
+        if (shutdown) {
+            return false;
+        }
+
+        Map<String, Map<String, Object>> documents = pending.computeIfAbsent(collection, c -> new LinkedHashMap<>());
+        Map<String, CompletableFuture<Void>> pendingAcks = acknowledgements.computeIfAbsent(collection, c -> new HashMap<>());
+        for (Map.Entry<String, Map<String, Object>> document : batch.entrySet()) {
+            String documentId = document.getKey();
+            Map<String, Object> newer = documents.get(documentId);
+            if (newer == null) {
+                documents.put(documentId, document.getValue());
+                pendingCount++;
+            } else {
+                Map<String, Object> merged = new HashMap<>(document.getValue());
+                FieldDelta.mergeFields(merged, newer);
+                documents.put(documentId, merged);
+            }
+
+            // Both writes now go out together, so they are acknowledged together
+            CompletableFuture<Void> ack = acks.get(documentId);
+            CompletableFuture<Void> newerAck = pendingAcks.get(documentId);
+            if (newerAck == null) {
+                pendingAcks.put(documentId, ack != null ? ack : new CompletableFuture<>());
+            } else if (ack != null) {
+                newerAck.whenComplete((result, failure) -> complete(ack, failure));
+            }
+        }
+        maxQueueDepth = Math.max(maxQueueDepth, pendingCount);
+
+        if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, flushWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    // Last try for a batch that failed during shutdown
+    private void writeThrough(String collection, Map<String, Map<String, Object>> batch,
+                              Map<String, CompletableFuture<Void>> acks) {
+        database.get().updateBatchAsync(collection, batch).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("Lost queued writes at shutdown", DatabaseConnectionManager.unwrap(error),
+                        "collection", collection, "writes", batch.size(), "documentIds", batch.keySet());
+            }
+            for (String documentId : batch.keySet()) {
+                CompletableFuture<Void> ack = acks.get(documentId);
+                if (ack != null) {
+                    complete(ack, error);
+                }
+            }
+        });
+    }
+
+    private static void complete(CompletableFuture<Void> ack, Throwable error) {
+        if (error == null) {
+            ack.complete(null);
+        } else {
+            ack.completeExceptionally(error);
+        }
+    }
+
+    // Metrics
+
+    public synchronized int getQueueDepth() { return pendingCount; }
+    public int getMaxQueueDepth() { return maxQueueDepth; }
+    public int getLastBatchSize() { return lastBatchSize; }
+    public long getEnqueuedWrites() { return enqueuedWrites.get(); }
+    public long getCoalescedWrites() { return coalescedWrites.get(); }
+    public long getFlushedWrites() { return flushedWrites.get(); }
+    public long getFlushCount() { return flushes.get(); }
+    public long getFailedFlushCount() { return failedFlushes.get(); }
+
+    public double getAverageBatchSize() {
+        long count = flushes.get() - failedFlushes.get();
+        return count == 0 ? 0 : (double) flushedWrites.get() / count;
+    }
+
+    public void displayStats() {
+        System.out.println("Write-behind queue: depth " + getQueueDepth() + " (max " + maxQueueDepth + ")"
+                + ", enqueued " + enqueuedWrites.get() + ", coalesced " + coalescedWrites.get()
+                + ", flushed " + flushedWrites.get() + " in " + flushes.get() + " batches"
+                + " (avg " + String.format("%.1f", getAverageBatchSize()) + ", last " + lastBatchSize + ")"
+                + ", failed batches " + failedFlushes.get());
+    }
+}
@@ -0,0 +1,472 @@
+package service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe journal of database writes that have not been applied yet.
+ *
+ * File layout: an 8-byte header holding the next sequence number, then records of
+ * {@code [int length][int crc][byte type][long seq][payload]}. An ENTRY record holds the
+ * write as JSON, an ACK record marks that write as applied. A torn or corrupt tail is cut
+ * off on load, and the file is emptied whenever nothing is pending.
+ *
+ * Sequence numbers never go back, so together with the per-install client id they identify
+ * a write for good (see {@link JournalingDatabaseService}).
+ */
+public final class WriteJournal {
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final byte TYPE_ENTRY = 1;
+    private static final byte TYPE_ACK = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 4 + 4 + 1 + 8;
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(WriteJournal.class);
+
+    private final Path file;
+    private final String clientId;
+    private final FsyncPolicy fsyncPolicy;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Serializes writes to the file, taken before this. Not a monitor, so a virtual thread waiting on disk unmounts
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>(); // In write order (guarded by this)
+    private List<Record> queued = new ArrayList<>(); // Encoded but not written yet (guarded by this)
+    private long nextSeq;
+    private ScheduledExecutorService fsyncScheduler;
+
+    /**
+     * Open (or create) the journal under dataDir. Fsync policy comes from
+     * -Dcodevia.journal.fsync=always|interval|never, the interval from -Dcodevia.journal.fsyncIntervalMillis.
+     */
+    public static WriteJournal open(Path dataDir, String name) throws IOException {
+        FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("codevia.journal.fsync", "always").toUpperCase());
+        return new WriteJournal(dataDir, name, policy, Long.getLong("codevia.journal.fsyncIntervalMillis", 1_000));
+    }
+
+    public WriteJournal(Path dataDir, String name, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        Files.createDirectories(dataDir);
+        this.file = dataDir.resolve(name + ".journal");
+        this.clientId = loadClientId(dataDir.resolve("client-id"));
+        this.fsyncPolicy = fsyncPolicy;
+        this.channel = new RandomAccessFile(file.toFile(), "rw").getChannel();
+        load();
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            fsyncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncScheduler.scheduleAtFixedRate(this::sync, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Identifies this installation, so its writes can be told apart from other clients'.
+     */
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * Durably record a write. Returns it with its sequence number assigned.
+     *
+     * Writes from concurrent callers are committed together: whoever gets to the file first writes
+     * every record queued so far and forces them with a single fsync, the others just find theirs done.
+     */
+    public Entry append(String operation, String collection, Map<String, Map<String, Object>> documents)
+            throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("operation", operation);
+        json.put("collection", collection);
+        json.put("documents", encodeDocuments(documents));
+        byte[] payload = objectMapper.writeValueAsBytes(json);
+
+        Record record;
+        synchronized (this) {
+            Entry entry = new Entry(nextSeq++, operation, collection, documents);
+            record = new Record(TYPE_ENTRY, entry.seq, payload, entry);
+            queued.add(record);
+        }
+        writeQueued();
+        if (record.error != null) {
+            throw new IOException("Failed to journal write", record.error);
+        }
+        return record.entry;
+    }
+
+    /**
+     * Mark a write as applied. Once nothing is pending the file is emptied.
+     */
+    public void acknowledge(Entry entry) throws IOException {
+        writeLock.lock();
+        try {
+            boolean empty;
+            synchronized (this) {
+                if (pending.remove(entry.seq) == null) {
+                    return;
+                }
+                empty = pending.isEmpty() && queued.isEmpty();
+                if (!empty) {
+                    // Losing an ack only means an idempotent replay, no need to force it
+                    queued.add(new Record(TYPE_ACK, entry.seq, new byte[0], null));
+                }
+            }
+            if (empty) {
+                reset();
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        writeQueued();
+    }
+
+    /**
+     * Oldest write not applied yet, or null.
+     */
+    public synchronized Entry peek() {
+        return pending.isEmpty() ? null : pending.values().iterator().next();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Up to limit of the oldest writes not applied yet, in write order.
+     */
+    public synchronized List<Entry> getOldestPending(int limit) {
+        List<Entry> oldest = new ArrayList<>(Math.min(limit, pending.size()));
+        for (Entry entry : pending.values()) {
+            if (oldest.size() >= limit) {
+                break;
+            }
+            oldest.add(entry);
+        }
+        return oldest;
+    }
+
+    public void sync() {
+        writeLock.lock();
+        try {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                log.error("Failed to sync write journal", e, "file", file);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Private helper methods
+
+    /**
+     * Write every queued record in one go. Entries become pending only once they are on disk.
+     */
+    private void writeQueued() {
+        writeLock.lock();
+        try {
+            List<Record> batch;
+            synchronized (this) {
+                if (queued.isEmpty()) {
+                    return; // Someone else wrote ours while we waited for the lock
+                }
+                batch = queued;
+                queued = new ArrayList<>();
+            }
+
+            int size = 0;
+            boolean hasEntries = false;
+            for (Record record : batch) {
+                size += RECORD_HEADER_SIZE + record.payload.length;
+                hasEntries |= record.entry != null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (Record record : batch) {
+                int start = buffer.position();
+                buffer.putInt(1 + 8 + record.payload.length);
+                buffer.putInt(0); // CRC, filled in below
+                buffer.put(record.type);
+                buffer.putLong(record.seq);
+                buffer.put(record.payload);
+                buffer.putInt(start + 4, checksum(buffer.array(), start + 8, buffer.position() - start - 8));
+            }
+            buffer.flip();
+
+            long position = -1;
+            try {
+                position = channel.size();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                if (hasEntries && fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                log.error("Failed to write to write journal", e, "file", file, "records", batch.size());
+                truncateTo(position); // A torn record would hide everything written after it
+                batch.forEach(record -> record.error = e);
+                return;
+            }
+
+            synchronized (this) {
+                for (Record record : batch) {
+                    if (record.entry != null) {
+                        pending.put(record.seq, record.entry);
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void truncateTo(long position) {
+        if (position < HEADER_SIZE) {
+            return;
+        }
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            log.error("Failed to cut a partial write off the write journal", e, "file", file);
+        }
+    }
+
+    // Empty the file but keep the sequence moving forward (called with writeLock held, or while loading).
+    // The header goes in first: a crash between the two steps must not leave a file without one.
+    private void reset() throws IOException {
+        writeHeader();
+        channel.truncate(HEADER_SIZE);
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            channel.force(false);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        synchronized (this) {
+            header.putLong(nextSeq);
+        }
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            nextSeq = 1;
+            reset();
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        nextSeq = header.getLong(0);
+
+        long position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            ByteBuffer lengthAndCrc = ByteBuffer.allocate(8);
+            readFully(lengthAndCrc, position);
+            int length = lengthAndCrc.getInt(0);
+            int crc = lengthAndCrc.getInt(4);
+            if (length < 9 || position + 8 + length > size) {
+                break; // Torn write at the end
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + 8);
+            if (checksum(body.array(), 0, length) != crc) {
+                break;
+            }
+
+            byte type = body.get(0);
+            long seq = body.getLong(1);
+            if (type == TYPE_ENTRY) {
+                Entry entry = decodeEntry(seq, body.array(), 9, length - 9);
+                entry.markUncertain(); // It may have been applied just before the process stopped
+                pending.put(seq, entry);
+            } else if (type == TYPE_ACK) {
+                pending.remove(seq);
+            }
+            nextSeq = Math.max(nextSeq, seq + 1);
+            position += 8 + length;
+        }
+
+        if (position < size) {
+            log.warn("Write journal has a damaged tail, truncating", "file", file, "validBytes", position, "size", size);
+            channel.truncate(position);
+        }
+        if (pending.isEmpty()) {
+            reset();
+        } else {
+            log.info("Write journal has writes to replay", "file", file, "pending", pending.size());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry decodeEntry(long seq, byte[] bytes, int offset, int length) throws IOException {
+        byte[] payload = new byte[length];
+        System.arraycopy(bytes, offset, payload, 0, length);
+        Map<String, Object> json = objectMapper.readValue(payload, new TypeReference<LinkedHashMap<String, Object>>() {});
+
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        Map<String, Object> encoded = (Map<String, Object>) json.get("documents");
+        for (Map.Entry<String, Object> document : encoded.entrySet()) {
+            documents.put(document.getKey(), decodeFields((Map<String, Object>) document.getValue()));
+        }
+        return new Entry(seq, (String) json.get("operation"), (String) json.get("collection"), documents);
+    }
+
+    private static Map<String, Object> encodeDocuments(Map<String, Map<String, Object>> documents) {
+        Map<String, Object> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+            Map<String, Object> fields = document.getValue();
+            if (fields == null) {
+                encoded.put(document.getKey(), null);
+                continue;
+            }
+            Map<String, Object> encodedFields = new LinkedHashMap<>();
+            fields.forEach((field, value) -> encodedFields.put(field, encodeValue(value)));
+            encoded.put(document.getKey(), encodedFields);
+        }
+        return encoded;
+    }
+
+    // FieldDeltas become tagged maps so they survive the JSON round trip
+    private static Object encodeValue(Object value) {
+        if (!(value instanceof FieldDelta)) {
+            return value;
+        }
+        FieldDelta delta = (FieldDelta) value;
+        Map<String, Object> tagged = new LinkedHashMap<>();
+        tagged.put("$delta", delta.getKind().name());
+        tagged.put("increment", delta.getIncrement());
+        tagged.put("elements", delta.getElements());
+        return tagged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decodeFields(Map<String, Object> fields) {
+        if (fields == null) {
+            return null;
+        }
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Map && ((Map<String, Object>) value).containsKey("$delta")) {
+                Map<String, Object> tagged = (Map<String, Object>) value;
+                value = FieldDelta.Kind.valueOf((String) tagged.get("$delta")) == FieldDelta.Kind.INCREMENT
+                        ? FieldDelta.increment(((Number) tagged.get("increment")).longValue())
+                        : FieldDelta.arrayUnion((List<Object>) tagged.get("elements"));
+            }
+            decoded.put(field.getKey(), value);
+        }
+        return decoded;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal at " + position);
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static String loadClientId(Path idFile) throws IOException {
+        if (Files.exists(idFile)) {
+            String id = new String(Files.readAllBytes(idFile), StandardCharsets.UTF_8).trim();
+            if (!id.isEmpty()) {
+                return id;
+            }
+        }
+        String id = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        Files.write(idFile, id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    /**
+     * One journaled write: a save, update, delete or batch update of one or more documents.
+     */
+    public static class Entry {
+        private final long seq;
+        private final String operation;
+        private final String collection;
+        private final Map<String, Map<String, Object>> documents; // Document id to fields, null fields for a delete
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private volatile boolean uncertain;
+
+        Entry(long seq, String operation, String collection, Map<String, Map<String, Object>> documents) {
+            this.seq = seq;
+            this.operation = operation;
+            this.collection = collection;
+            this.documents = documents;
+        }
+
+        public long getSeq() { return seq; }
+        public String getOperation() { return operation; }
+        public String getCollection() { return collection; }
+        public Map<String, Map<String, Object>> getDocuments() { return documents; }
+
+        /**
+         * Whether an earlier attempt may have reached the database (it timed out, or the process
+         * stopped before the ack). Replays of such writes must check before re-applying deltas.
+         */
+        public boolean isUncertain() { return uncertain; }
+        void markUncertain() { uncertain = true; }
+
+        /**
+         * Completed by whoever applies the write, so a caller can wait for it.
+         */
+        CompletableFuture<Void> getResult() { return result; }
+    }
+
+    private static final class Record {
+        final byte type;
+        final long seq;
+        final byte[] payload;
+        final Entry entry; // Null for an ack
+        IOException error; // Set if writing it failed (guarded by writeLock)
+
+        Record(byte type, long seq, byte[] payload, Entry entry) {
+            this.type = type;
+            this.seq = seq;
+            this.payload = payload;
+            this.entry = entry;
+        }
+    }
+}
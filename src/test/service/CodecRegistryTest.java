@@ -0,0 +1,158 @@
+package service;
+
+import model.Achievement;
+import model.Question;
+import model.Quiz;
+import model.Skill;
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecRegistryTest {
+    private final CodecRegistry codecs = CodecRegistry.getInstance();
+
+    private static User learner() {
+        User user = new User("u1", "Zoë", "zoe@example.com", "$scrypt$ln=4,r=8,p=1$c2FsdA$aGFzaA");
+        user.setExperiencePoint(250);
+        user.setUnlockedSkills(new ArrayList<>(List.of("java-basics", "oop")));
+        user.setAchievements(new ArrayList<>(List.of("first-quiz")));
+        user.markClean();
+        return user;
+    }
+
+    private static void assertSameUser(User expected, User actual) {
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getPassword(), actual.getPassword());
+        assertEquals(expected.getExperiencePoint(), actual.getExperiencePoint());
+        assertEquals(expected.getUserLevel(), actual.getUserLevel());
+        assertEquals(expected.getUnlockedSkills(), actual.getUnlockedSkills());
+        assertEquals(expected.getAchievements(), actual.getAchievements());
+        assertFalse(actual.isDirty());
+    }
+
+    private static Quiz quiz() {
+        List<Question> questions = List.of(
+                new Question("What does JVM stand for?", List.of("Java Virtual Machine", "Just Very Modern"), 0),
+                new Question("Which keyword creates an object?", List.of("class", "new", "this"), 1));
+        return new Quiz("quiz-1", "oop", "Object-Oriented Programming", questions, 70);
+    }
+
+    private static void assertSameQuiz(Quiz expected, Quiz actual) {
+        assertEquals(expected.getQuizId(), actual.getQuizId());
+        assertEquals(expected.getSkillId(), actual.getSkillId());
+        assertEquals(expected.getSkillName(), actual.getSkillName());
+        assertEquals(expected.getPassingScore(), actual.getPassingScore());
+        assertEquals(expected.getQuestions().size(), actual.getQuestions().size());
+        for (int i = 0; i < expected.getQuestions().size(); i++) {
+            Question question = expected.getQuestions().get(i);
+            assertEquals(question.getQuestionText(), actual.getQuestions().get(i).getQuestionText());
+            assertEquals(question.getOptions(), actual.getQuestions().get(i).getOptions());
+            assertEquals(question.getCorrectAnswer(), actual.getQuestions().get(i).getCorrectAnswer());
+        }
+    }
+
+    @Test
+    void usersRoundTripThroughDocumentsAndBytes() {
+        User user = learner();
+        assertSameUser(user, codecs.decode(User.class, "u1", codecs.encode(user)));
+        assertSameUser(user, codecs.fromBytes(User.class, codecs.toBytes(user)));
+    }
+
+    @Test
+    void decodesFirestoreNumbersAndDerivesTheLevel() {
+        Map<String, Object> data = new HashMap<>(codecs.encode(learner()));
+        data.put(User.FIELD_EXPERIENCE_POINT, 420L); // Firestore returns longs
+        data.put(User.FIELD_USER_LEVEL, 1L); // Stale, written before the last increments
+
+        User user = codecs.decode(User.class, "u1", data);
+        assertEquals(420, user.getExperiencePoint());
+        assertEquals(5, user.getUserLevel());
+    }
+
+    @Test
+    void incompleteDocumentsDecodeToNull() {
+        Map<String, Object> data = new HashMap<>(codecs.encode(learner()));
+        data.remove(User.FIELD_EMAIL);
+        assertNull(codecs.decode(User.class, "u1", data));
+    }
+
+    @Test
+    void changesGoOutAsDeltas() {
+        User user = learner();
+        user.addExperience(30);
+        user.unlockSkill("collections");
+
+        Map<String, Object> changes = ((UserCodec) codecs.forType(User.class)).encodeChanges(user);
+        assertEquals(30, ((FieldDelta) changes.get(User.FIELD_EXPERIENCE_POINT)).getIncrement());
+        assertEquals(List.of("collections"), ((FieldDelta) changes.get(User.FIELD_UNLOCKED_SKILLS)).getElements());
+        assertFalse(changes.containsKey(User.FIELD_USER_LEVEL));
+        assertFalse(changes.containsKey(User.FIELD_USERNAME));
+    }
+
+    @Test
+    void skillsAchievementsAndQuizzesRoundTrip() {
+        Skill skill = new Skill("oop", "Object-Oriented Programming", "Classes and objects", 200);
+        skill.setUnlocked(true);
+        for (Skill copy : List.of(codecs.decode(Skill.class, "oop", codecs.encode(skill)),
+                codecs.fromBytes(Skill.class, codecs.toBytes(skill)))) {
+            assertEquals(skill.getSkillId(), copy.getSkillId());
+            assertEquals(skill.getSkillName(), copy.getSkillName());
+            assertEquals(skill.getDescription(), copy.getDescription());
+            assertEquals(skill.getRequiredXP(), copy.getRequiredXP());
+            assertTrue(copy.isUnlocked());
+            assertFalse(copy.isCompleted());
+        }
+
+        Achievement achievement = new Achievement("first-quiz", "First Quiz", "Finish a quiz", 0);
+        achievement.setUnlocked(true);
+        for (Achievement copy : List.of(codecs.decode(Achievement.class, "first-quiz", codecs.encode(achievement)),
+                codecs.fromBytes(Achievement.class, codecs.toBytes(achievement)))) {
+            assertEquals(achievement.getAchievementId(), copy.getAchievementId());
+            assertEquals(achievement.getName(), copy.getName());
+            assertEquals(achievement.getDescription(), copy.getDescription());
+            assertTrue(copy.isUnlocked());
+        }
+
+        Quiz quiz = quiz();
+        assertSameQuiz(quiz, codecs.decode(Quiz.class, "quiz-1", codecs.encode(quiz)));
+        assertSameQuiz(quiz, codecs.fromBytes(Quiz.class, codecs.toBytes(quiz)));
+    }
+
+    @Test
+    void binaryFormatHandlesNullsUnicodeAndDirectBuffers() {
+        BinaryWriter out = new BinaryWriter(4);
+        out.writeString(null);
+        out.writeString("");
+        out.writeString("naïve ✓ 学习");
+        out.writeString("x".repeat(10_000));
+        out.writeStringList(null);
+        out.writeStringList(List.of("a", "ß"));
+        out.writeUnsignedVarLong(Long.MAX_VALUE);
+        out.writeInt(-1);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(out.size());
+        direct.put(out.toByteArray()).flip();
+        BinaryReader in = new BinaryReader(direct);
+        assertNull(in.readString());
+        assertEquals("", in.readString());
+        assertEquals("naïve ✓ 学习", in.readString());
+        assertEquals("x".repeat(10_000), in.readString());
+        assertNull(in.readStringList());
+        assertEquals(List.of("a", "ß"), in.readStringList());
+        assertEquals(Long.MAX_VALUE, in.readUnsignedVarLong());
+        assertEquals(-1, in.readInt());
+        assertFalse(in.hasRemaining());
+    }
+}
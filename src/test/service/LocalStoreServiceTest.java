@@ -0,0 +1,130 @@
+package service;
+
+import exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalStoreServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private LocalStoreService open() throws Exception {
+        LocalStoreService store = new LocalStoreService(dataDir);
+        store.connect();
+        return store;
+    }
+
+    /**
+     * Open with compaction allowed once 1 KiB of records are dead.
+     */
+    private LocalStoreService openCompacting() throws Exception {
+        System.setProperty("codevia.localStore.compactMinBytes", "1024");
+        try {
+            return open();
+        } finally {
+            System.clearProperty("codevia.localStore.compactMinBytes");
+        }
+    }
+
+    private static long number(Map<String, Object> document, String field) {
+        return ((Number) document.get(field)).longValue();
+    }
+
+    @Test
+    void documentsSurviveARestart() throws Exception {
+        LocalStoreService store = open();
+        store.save("users", "1", Map.of("username", "ada", "experiencePoint", 10));
+        store.save("users", "2", Map.of("username", "grace"));
+        store.update("users", "1", Map.of("experiencePoint", FieldDelta.increment(5)));
+        store.delete("users", "2");
+        store.sync();
+
+        LocalStoreService reopened = open();
+        Map<String, Object> ada = reopened.get("users", "1");
+        assertEquals("ada", ada.get("username"));
+        assertEquals(15, number(ada, "experiencePoint"));
+        assertNull(reopened.get("users", "2"));
+
+        List<Map<String, Object>> all = reopened.getAll("users");
+        assertEquals(1, all.size());
+        assertEquals("1", all.get(0).get("id"));
+    }
+
+    @Test
+    void updatingAMissingDocumentFails() throws Exception {
+        LocalStoreService store = open();
+        assertThrows(DatabaseException.class, () -> store.update("users", "missing", Map.of("username", "ada")));
+    }
+
+    @Test
+    void streamsEveryDocumentInPages() throws Exception {
+        LocalStoreService store = open();
+        for (int i = 0; i < 25; i++) {
+            store.save("quizzes", String.format("q%02d", i), Map.of("title", "Quiz " + i));
+        }
+        try (Stream<Map<String, Object>> stream = store.streamAll("quizzes", 4)) {
+            List<Object> ids = stream.map(document -> document.get("id")).collect(Collectors.toList());
+            assertEquals(25, ids.size());
+            assertEquals("q00", ids.get(0));
+            assertEquals("q24", ids.get(24));
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyTheLatestRecords() throws Exception {
+        LocalStoreService store = openCompacting();
+        store.save("users", "2", Map.of("username", "grace"));
+        for (int i = 0; i < 200; i++) {
+            store.save("users", "1", Map.of("username", "ada", "experiencePoint", i));
+        }
+        store.save("users", "3", Map.of("username", "temporary"));
+        store.delete("users", "3");
+        store.sync();
+
+        // Without compaction the log would hold all 203 puts, about 10 KiB
+        long logSize = Files.size(dataDir.resolve("users.log"));
+        assertTrue(logSize < 2048, "log wasn't compacted: " + logSize + " bytes");
+
+        LocalStoreService reopened = open();
+        assertEquals(199, number(reopened.get("users", "1"), "experiencePoint"));
+        assertEquals("grace", reopened.get("users", "2").get("username"));
+        assertNull(reopened.get("users", "3"));
+        assertEquals(2, reopened.getAll("users").size());
+    }
+
+    @Test
+    void damagedTailIsCutOff() throws Exception {
+        LocalStoreService store = open();
+        store.save("users", "1", Map.of("username", "ada"));
+        store.sync();
+        // A write torn by a crash: a record header promising more bytes than follow
+        Files.write(dataDir.resolve("users.log"), new byte[] {0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+        Files.delete(dataDir.resolve("users.idx"));
+
+        LocalStoreService reopened = open();
+        assertEquals("ada", reopened.get("users", "1").get("username"));
+        reopened.save("users", "2", Map.of("username", "grace"));
+        assertEquals(2, reopened.getAll("users").size());
+    }
+
+    @Test
+    void rejectsFilesInAnotherFormat() throws Exception {
+        Files.write(dataDir.resolve("users.log"), "not a log".getBytes());
+        LocalStoreService store = open();
+        assertThrows(DatabaseException.class, () -> store.get("users", "1"));
+    }
+}
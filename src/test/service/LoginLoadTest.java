@@ -0,0 +1,103 @@
+package service;
+
+import exception.AuthenticationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Legitimate logins keep most of their throughput while a credential-stuffing burst runs, because the
+ * limiter turns the attack away before it reaches the password check.
+ */
+class LoginLoadTest {
+    private static final int HASHER_THREADS = 2;
+    private static final long HASH_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PHASE_MILLIS = 1_000;
+    private static final int USERS = 4;
+    private static final int ATTACKERS = 16;
+    private static final long ATTACK_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final LoginRateLimiter limiter = new LoginRateLimiter(5, 60_000, 30, 2_000, 100_000, 32);
+    private final Semaphore hasher = new Semaphore(HASHER_THREADS, true); // Stands in for the hasher pool
+    private final AtomicLong sources = new AtomicLong();
+
+    /**
+     * One login: admitted by the limiter, then a password check that holds a hasher thread.
+     */
+    private boolean login(String email, String source, boolean correctPassword) {
+        try (LoginRateLimiter.Permit permit = limiter.acquire(email, source)) {
+            hasher.acquireUninterruptibly();
+            try {
+                LockSupport.parkNanos(HASH_NANOS);
+            } finally {
+                hasher.release();
+            }
+            if (correctPassword) {
+                permit.succeeded();
+            } else {
+                permit.failed();
+            }
+            return correctPassword;
+        } catch (AuthenticationException e) {
+            return false;
+        }
+    }
+
+    private long legitimateLogins(boolean underAttack) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong succeeded = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int u = 0; u < USERS; u++) {
+            String email = "learner" + u + "@example.com";
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    // Real users arrive from many addresses, each signing in once
+                    if (login(email, "user-" + sources.incrementAndGet(), true)) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        if (underAttack) {
+            for (int a = 0; a < ATTACKERS; a++) {
+                String source = "10.0.0." + (a % 2);
+                int attacker = a;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; running.get(); i++) {
+                        login("victim" + attacker + "-" + i + "@example.com", source, false);
+                        LockSupport.parkNanos(ATTACK_ROUND_TRIP_NANOS);
+                    }
+                }));
+            }
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(PHASE_MILLIS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return succeeded.get();
+    }
+
+    @Test
+    void legitimateThroughputSurvivesAnAttack() throws InterruptedException {
+        long baseline = legitimateLogins(false);
+        long underAttack = legitimateLogins(true);
+
+        System.out.println("Legitimate logins per second - alone: " + baseline + ", during attack: " + underAttack
+                + ", attack attempts rejected: " + limiter.getRejectedBySource());
+        assertTrue(limiter.getRejectedBySource() > 0, "the attack was not throttled");
+        assertTrue(underAttack >= baseline * 6 / 10,
+                "throughput fell from " + baseline + " to " + underAttack + " logins per second");
+    }
+}
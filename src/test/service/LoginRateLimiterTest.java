@@ -0,0 +1,100 @@
+package service;
+
+import exception.AuthenticationException;
+import exception.RateLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTest {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    private static LoginRateLimiter limiter(int emailAttempts, int sourceAttempts, int maxInFlight) {
+        return new LoginRateLimiter(emailAttempts, HOUR_MILLIS, sourceAttempts, HOUR_MILLIS, 1_000, maxInFlight);
+    }
+
+    private static void fail(LoginRateLimiter limiter, String email, String source) throws AuthenticationException {
+        try (LoginRateLimiter.Permit permit = limiter.acquire(email, source)) {
+            permit.failed();
+        }
+    }
+
+    @Test
+    void locksEmailAfterFailedAttempts() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(3, 100, 10);
+        for (int i = 0; i < 3; i++) {
+            fail(limiter, "ada@example.com", "source-" + i);
+        }
+        RateLimitException e = assertThrows(RateLimitException.class,
+                () -> limiter.acquire("ada@example.com", "another-source"));
+        assertTrue(e.getRetryAfterSeconds() > 0);
+    }
+
+    @Test
+    void emailsAreMatchedLikeTheDirectory() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(2, 100, 10);
+        fail(limiter, "Ada@Example.com", "a");
+        fail(limiter, "  ada@example.COM ", "b");
+        assertThrows(RateLimitException.class, () -> limiter.acquire("ada@example.com", "c"));
+    }
+
+    @Test
+    void successRefillsTheEmail() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(2, 100, 10);
+        fail(limiter, "ada@example.com", "a");
+        try (LoginRateLimiter.Permit permit = limiter.acquire("ada@example.com", "a")) {
+            permit.succeeded();
+        }
+        fail(limiter, "ada@example.com", "a");
+        fail(limiter, "ada@example.com", "a");
+        assertThrows(RateLimitException.class, () -> limiter.acquire("ada@example.com", "a"));
+    }
+
+    @Test
+    void attemptsWithoutVerdictGiveTheirTokenBack() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(2, 100, 10);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("ada@example.com", "a").close();
+        }
+        fail(limiter, "ada@example.com", "a");
+    }
+
+    @Test
+    void concurrentAttemptsCantShareTheLastToken() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(3, 100, 10);
+        List<LoginRateLimiter.Permit> open = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            open.add(limiter.acquire("ada@example.com", "source-" + i));
+        }
+        // Still in flight, but each already holds one of the email's tokens
+        assertThrows(RateLimitException.class, () -> limiter.acquire("ada@example.com", "source-3"));
+        open.forEach(LoginRateLimiter.Permit::close);
+    }
+
+    @Test
+    void limitsSources() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(100, 2, 10);
+        fail(limiter, "a@example.com", "10.0.0.1");
+        fail(limiter, "b@example.com", "10.0.0.1");
+        assertThrows(RateLimitException.class, () -> limiter.acquire("c@example.com", "10.0.0.1"));
+        fail(limiter, "c@example.com", "10.0.0.2");
+    }
+
+    @Test
+    void limitsLoginsInFlight() throws AuthenticationException {
+        LoginRateLimiter limiter = limiter(2, 100, 2);
+        LoginRateLimiter.Permit first = limiter.acquire("a@example.com", "a");
+        LoginRateLimiter.Permit second = limiter.acquire("b@example.com", "b");
+        assertThrows(RateLimitException.class, () -> limiter.acquire("c@example.com", "c"));
+        first.close();
+        second.close();
+
+        // The refused attempt didn't cost the email a token
+        fail(limiter, "c@example.com", "c");
+        fail(limiter, "c@example.com", "c");
+    }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeteredDatabaseServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private static DatabaseMetrics.OperationStats stats(DatabaseMetrics metrics, String operation) {
+        return metrics.snapshot().stream()
+                .filter(stats -> stats.getOperation().equals(operation))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no stats for " + operation));
+    }
+
+    @Test
+    void recordsEveryOperation() throws Exception {
+        LocalStoreService store = new LocalStoreService(dataDir);
+        store.connect();
+        DatabaseMetrics metrics = new DatabaseMetrics();
+        MeteredDatabaseService metered = new MeteredDatabaseService(store, metrics);
+
+        metered.save("users", "1", Map.of("username", "ada"));
+        metered.get("users", "1");
+        metered.get("users", "1");
+        assertThrows(DatabaseException.class, () -> metered.update("users", "missing", Map.of("username", "grace")));
+
+        assertEquals(1, stats(metrics, "save").getCount());
+        assertEquals(2, stats(metrics, "get").getCount());
+        assertEquals(1, stats(metrics, "update").getErrorCount());
+    }
+
+    @Test
+    void recordsOneSamplePerStream() throws Exception {
+        LocalStoreService store = new LocalStoreService(dataDir);
+        store.connect();
+        for (int i = 0; i < 10; i++) {
+            store.save("users", "u" + i, Map.of("username", "user" + i));
+        }
+        DatabaseMetrics metrics = new DatabaseMetrics();
+        MeteredDatabaseService metered = new MeteredDatabaseService(store, metrics);
+
+        try (Stream<Map<String, Object>> users = metered.streamAll("users", 3)) {
+            assertEquals(10, users.count());
+        }
+        try (Stream<Map<String, Object>> users = metered.streamAll("users", 3)) {
+            users.findFirst(); // Abandoned after the first page, recorded on close
+        }
+
+        DatabaseMetrics.OperationStats stats = stats(metrics, "streamAll");
+        assertEquals(2, stats.getCount());
+        assertEquals(0, stats.getErrorCount());
+        assertTrue(stats.getMaxMillis() > 0);
+    }
+
+    @Test
+    void recordsFailedStreams() throws Exception {
+        LocalStoreService store = new LocalStoreService(dataDir); // Never connected
+        DatabaseMetrics metrics = new DatabaseMetrics();
+        MeteredDatabaseService metered = new MeteredDatabaseService(store, metrics);
+
+        assertThrows(DatabaseException.class, () -> metered.streamAll("users", 3));
+        assertEquals(Map.of("DatabaseException", 1L), stats(metrics, "streamAll").getErrorsByCause());
+    }
+}
@@ -0,0 +1,73 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * scrypt against the test vectors of RFC 7914, section 12.
+ */
+class PasswordHasherTest {
+
+    private static String scrypt(String password, String salt, int n, int r, int p) {
+        byte[] key = PasswordHasher.scrypt(password.getBytes(StandardCharsets.UTF_8),
+                salt.getBytes(StandardCharsets.UTF_8), n, r, p, 64);
+        return HexFormat.of().formatHex(key);
+    }
+
+    @Test
+    void emptyPasswordAndSalt() {
+        assertEquals("77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442"
+                + "fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906",
+                scrypt("", "", 16, 1, 1));
+    }
+
+    @Test
+    void parallelBlocks() {
+        assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+                + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640",
+                scrypt("password", "NaCl", 1024, 8, 16));
+    }
+
+    @Test
+    void largeN() {
+        assertEquals("7023bdcb3afd7348461c06cd81fd38ebfda8fbba904f8e3ea9b543f6545da1f2"
+                + "d5432955613f0fcf62d49705242a9af9e61e85dc0d651e40dfcf017b45575887",
+                scrypt("pleaseletmein", "SodiumChloride", 16384, 8, 1));
+    }
+
+    @Test
+    void verifiesItsOwnHashes() {
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        String stored = hasher.hash("correct horse");
+        assertTrue(stored.startsWith("$scrypt$"));
+        assertTrue(hasher.verify("correct horse", stored));
+        assertFalse(hasher.verify("correct horse!", stored));
+        assertFalse(hasher.needsRehash(stored));
+    }
+
+    @Test
+    void acceptsLegacyPlaintextUntilRehashed() {
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        assertTrue(hasher.verify("secret", "secret"));
+        assertFalse(hasher.verify("wrong", "secret"));
+        assertTrue(hasher.needsRehash("secret"));
+    }
+
+    @Test
+    void rejectsStoredHashesAskingForTooMuchWork() {
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        String salt = "c2FsdHNhbHRzYWx0c2FsdA";
+        String hash = "aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g";
+        // 128 * 8 * 2^24 bytes = 16 GiB of memory per check
+        assertFalse(hasher.verify("password", "$scrypt$ln=24,r=8,p=1$" + salt + "$" + hash));
+        assertFalse(hasher.verify("password", "$scrypt$ln=4,r=1000000,p=1$" + salt + "$" + hash));
+        assertFalse(hasher.verify("password", "$scrypt$ln=4,r=8,p=100000$" + salt + "$" + hash));
+        assertTrue(hasher.needsRehash("$scrypt$ln=24,r=8,p=1$" + salt + "$" + hash));
+    }
+}
@@ -0,0 +1,93 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotStoreTest {
+    private final UserCodec codec = new UserCodec();
+
+    @TempDir
+    Path directory;
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User("u" + i, "learner" + i, "learner" + i + "@example.com", "$scrypt$hash" + i);
+            user.setExperiencePoint(i * 7);
+            user.setUnlockedSkills(new ArrayList<>(List.of("skill-" + (i % 5))));
+            users.add(user);
+        }
+        return users;
+    }
+
+    private SnapshotStore storeWith(List<User> users) throws IOException {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.write("users", users, codec);
+        return store;
+    }
+
+    private void damage(long position, int length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("users.snapshot").toFile(), "rw")) {
+            if (length < 0) {
+                file.setLength(file.length() + length);
+            } else {
+                file.seek(position);
+                file.write(new byte[length]);
+            }
+        }
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        List<User> users = users(10_000);
+        List<User> read = storeWith(users).read("users", codec);
+
+        assertEquals(users.size(), read.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(users.get(i).getEmail(), read.get(i).getEmail());
+            assertEquals(users.get(i).getExperiencePoint(), read.get(i).getExperiencePoint());
+            assertEquals(users.get(i).getUnlockedSkills(), read.get(i).getUnlockedSkills());
+        }
+    }
+
+    @Test
+    void missingSnapshotIsEmpty() throws IOException {
+        assertTrue(new SnapshotStore(directory).read("users", codec).isEmpty());
+    }
+
+    @Test
+    void ignoresCorruptSnapshots() throws IOException {
+        SnapshotStore store = storeWith(users(100));
+        damage(500, 4);
+        assertTrue(store.read("users", codec).isEmpty());
+    }
+
+    @Test
+    void ignoresTruncatedSnapshots() throws IOException {
+        SnapshotStore store = storeWith(users(100));
+        damage(0, -10);
+        assertTrue(store.read("users", codec).isEmpty());
+    }
+
+    @Test
+    void ignoresSnapshotsFromAnotherCodecVersion() throws IOException {
+        SnapshotStore store = storeWith(users(100));
+        UserCodec newerCodec = new UserCodec() {
+            @Override
+            public int getBinaryVersion() {
+                return super.getBinaryVersion() + 1;
+            }
+        };
+        assertTrue(store.read("users", newerCodec).isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1); // Nothing refills during a test
+
+    @Test
+    void holdsCapacityTokens() {
+        TokenBucket bucket = new TokenBucket(3, HOUR_NANOS);
+        assertTrue(bucket.isFull());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+        assertFalse(bucket.isFull());
+        assertTrue(bucket.nanosUntilToken() > 0);
+    }
+
+    @Test
+    void refundGivesOneTokenBack() {
+        TokenBucket bucket = new TokenBucket(2, HOUR_NANOS);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        bucket.refund();
+        assertEquals(0, bucket.nanosUntilToken());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void refundNeverOverfills() {
+        TokenBucket bucket = new TokenBucket(2, HOUR_NANOS);
+        bucket.refund();
+        bucket.refund();
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void resetRefillsCompletely() {
+        TokenBucket bucket = new TokenBucket(2, HOUR_NANOS);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+        bucket.reset();
+        assertTrue(bucket.isFull());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void concurrentTakesNeverExceedCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, HOUR_NANOS);
+        int[] taken = new int[8];
+        Thread[] threads = new Thread[taken.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryAcquire()) {
+                        taken[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += taken[t];
+        }
+        assertEquals(100, total);
+    }
+}
@@ -0,0 +1,136 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryTest {
+
+    private static User user(String userId) {
+        return new User(userId, "user" + userId, userId + "@example.com", "password");
+    }
+
+    @Test
+    void indexesByEmailIdAndFirebaseUid() {
+        UserDirectory directory = new UserDirectory();
+        User ada = user("1");
+        assertTrue(directory.add(ada));
+        assertSame(ada, directory.findByEmail(" 1@EXAMPLE.com "));
+        assertSame(ada, directory.findById("1"));
+        assertSame(ada, directory.findByFirebaseUid("1"));
+        assertFalse(directory.add(new User("2", "other", "1@example.com", "password")));
+    }
+
+    @Test
+    void reloadReplacesEverythingNotWrittenSince() {
+        UserDirectory directory = new UserDirectory();
+        directory.add(user("1"));
+        User loaded = user("2");
+
+        // The load didn't return user 1, but it was written locally and may not have landed yet
+        directory.reload(List.of(loaded), directory.currentSequence(), u -> false);
+        assertNotNull(directory.findById("1"));
+        assertSame(loaded, directory.findById("2"));
+    }
+
+    @Test
+    void usersWrittenDuringTheLoadWinOverTheLoadedCopy() {
+        UserDirectory directory = new UserDirectory();
+        long loadStartedAt = directory.currentSequence();
+        User local = user("1");
+        directory.add(local);
+
+        directory.reload(List.of(user("1")), loadStartedAt, u -> false);
+        assertSame(local, directory.findById("1"));
+        assertSame(local, directory.findByEmail("1@example.com"));
+    }
+
+    @Test
+    void returnedUsersStopCountingAsWrittenLocally() {
+        UserDirectory directory = new UserDirectory();
+        long loadStartedAt = directory.currentSequence();
+        directory.add(user("1"));
+        directory.reload(List.of(user("1")), loadStartedAt, u -> false);
+
+        // A later load no longer returns it, e.g. because it was deleted elsewhere
+        directory.reload(Collections.emptyList(), directory.currentSequence(), u -> false);
+        assertNull(directory.findById("1"));
+    }
+
+    @Test
+    void carriedOverUserTakesItsEmailBack() {
+        UserDirectory directory = new UserDirectory();
+        long loadStartedAt = directory.currentSequence();
+        User local = user("1");
+        directory.add(local);
+
+        User conflicting = new User("2", "other", "1@example.com", "password");
+        directory.reload(List.of(conflicting), loadStartedAt, u -> false);
+        assertSame(local, directory.findByEmail("1@example.com"));
+        assertNull(directory.findById("2"));
+    }
+
+    @Test
+    void keepsMatchingUsers() {
+        UserDirectory directory = new UserDirectory();
+        User demo = user("demo");
+        directory.add(demo);
+        directory.reload(List.of(user("demo")), directory.currentSequence(), u -> u.getUserId().equals("demo"));
+        assertSame(demo, directory.findById("demo"));
+    }
+
+    @Test
+    void concurrentReloadsNeverLoseNewUsers() throws InterruptedException {
+        UserDirectory directory = new UserDirectory();
+        List<User> loaded = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            loaded.add(user("loaded-" + i));
+        }
+
+        int writers = 4;
+        int usersPerWriter = 500;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread reloader = new Thread(() -> {
+            while (writing.get()) {
+                directory.reload(loaded, directory.currentSequence(), u -> false);
+            }
+        });
+        reloader.start();
+
+        Thread[] threads = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            int writer = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < usersPerWriter; i++) {
+                    directory.add(user("w" + writer + "-" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writing.set(false);
+        reloader.join();
+
+        for (int t = 0; t < writers; t++) {
+            for (int i = 0; i < usersPerWriter; i++) {
+                String userId = "w" + t + "-" + i;
+                assertNotNull(directory.findById(userId), userId);
+                assertNotNull(directory.findByEmail(userId + "@example.com"), userId);
+            }
+        }
+        assertEquals(loaded.size() + writers * usersPerWriter, directory.size());
+    }
+}
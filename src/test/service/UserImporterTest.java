@@ -0,0 +1,104 @@
+package service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs against the local store (see the surefire properties in pom.xml).
+ */
+class UserImporterTest {
+    private static UserService userService;
+
+    @BeforeAll
+    static void startService() throws Exception {
+        userService = new UserService();
+        userService.whenDatabaseReady().get();
+    }
+
+    private static String newImportId() {
+        return "test-" + UUID.randomUUID();
+    }
+
+    private static InputStream csv(String importId, int rows) {
+        StringBuilder csv = new StringBuilder("username,email,password\n");
+        for (int i = 1; i <= rows; i++) {
+            csv.append("learner").append(i).append(',').append(importId).append('-').append(i)
+                    .append("@example.com,password").append(i).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Path checkpoint(String importId) {
+        return Paths.get(System.getProperty("codevia.dataDir", LocalStoreService.DEFAULT_DATA_DIR),
+                "imports", importId + ".checkpoint");
+    }
+
+    @Test
+    void importsValidRowsAndReportsTheRest() throws IOException {
+        String importId = newImportId();
+        String csv = "username,email,password\n"
+                + "ada," + importId + "-ada@example.com,password1\n"
+                + "grace," + importId + "-grace@example.com,password2\n"
+                + "again," + importId + "-ADA@example.com,password3\n"   // Duplicate within the file
+                + "admin,admin@codevia.com,password4\n"                   // Already registered
+                + "bad,not-an-email,password5\n"
+                + "short," + importId + "-short@example.com,123\n";
+
+        UserImporter.Report report = userService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImporter.Format.CSV, importId);
+        assertEquals(6, report.getTotalRows());
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(2, report.getInvalid());
+        assertEquals(4, report.getErrors().size());
+        assertNotNull(userService.findUserByEmail(importId + "-grace@example.com"));
+        assertFalse(Files.exists(checkpoint(importId)));
+    }
+
+    @Test
+    void rejectsImportIdsThatArentPlainIds() {
+        for (String importId : new String[] {null, "", "../escape", "nested/id", "a".repeat(65)}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> userService.importUsers(csv("x", 1), UserImporter.Format.CSV, importId), importId);
+        }
+    }
+
+    @Test
+    void resumesAfterTheCheckpoint() throws IOException {
+        String importId = newImportId();
+        Files.createDirectories(checkpoint(importId).getParent());
+        Files.write(checkpoint(importId), "3".getBytes(StandardCharsets.UTF_8));
+
+        UserImporter.Report report = userService.importUsers(csv(importId, 5), UserImporter.Format.CSV, importId);
+        assertEquals(3, report.getResumedAfterRow());
+        assertEquals(2, report.getImported());
+        assertNull(userService.findUserByEmail(importId + "-1@example.com"));
+        assertNotNull(userService.findUserByEmail(importId + "-5@example.com"));
+    }
+
+    @Test
+    void unreadableCheckpointStartsOver() throws IOException {
+        String importId = newImportId();
+        Files.createDirectories(checkpoint(importId).getParent());
+        Files.write(checkpoint(importId), "12\u0000garbage".getBytes(StandardCharsets.UTF_8));
+
+        UserImporter.Report report = userService.importUsers(csv(importId, 5), UserImporter.Format.CSV, importId);
+        assertEquals(0, report.getResumedAfterRow());
+        assertEquals(5, report.getImported());
+    }
+}
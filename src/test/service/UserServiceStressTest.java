@@ -0,0 +1,107 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups and registrations hammering UserService while full reloads keep swapping the directory.
+ * Runs against the local store (see the surefire properties in pom.xml).
+ */
+class UserServiceStressTest {
+    private static final int EXISTING_USERS = 200;
+    private static final int REGISTRARS = 4;
+    private static final int USERS_PER_REGISTRAR = 150;
+    private static final int READERS = 4;
+
+    @Test
+    void registrationsAndLookupsSurviveRepeatedReloads() throws Exception {
+        UserService service = new UserService();
+        service.whenDatabaseReady().get(30, TimeUnit.SECONDS);
+        String run = UUID.randomUUID().toString().substring(0, 8);
+
+        List<String> existing = new ArrayList<>();
+        for (int i = 0; i < EXISTING_USERS; i++) {
+            String email = run + "-existing-" + i + "@example.com";
+            service.createUserAsync("existing" + i, email, "password" + i).join();
+            existing.add(email);
+        }
+
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> background = new ArrayList<>();
+        background.add(new Thread(() -> {
+            while (running.get()) {
+                try {
+                    service.refreshUsersFromDatabase();
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        }, "reloader"));
+        for (int r = 0; r < READERS; r++) {
+            int reader = r;
+            background.add(new Thread(() -> {
+                for (int i = reader; running.get(); i++) {
+                    String email = existing.get(i % existing.size());
+                    try {
+                        if (service.findUserByEmail(email) == null) {
+                            errors.add(new AssertionError("Lookup missed " + email));
+                        }
+                        service.getAllUsers();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            }, "reader-" + r));
+        }
+        background.forEach(Thread::start);
+
+        Thread[] registrars = new Thread[REGISTRARS];
+        for (int t = 0; t < REGISTRARS; t++) {
+            int registrar = t;
+            registrars[t] = new Thread(() -> {
+                for (int i = 0; i < USERS_PER_REGISTRAR; i++) {
+                    try {
+                        // Waits for the save, so the registrars don't outrun the database's bulkhead
+                        service.createUserAsync("new" + i, run + "-r" + registrar + "-" + i + "@example.com", "password" + i)
+                                .join();
+                    } catch (RuntimeException e) {
+                        errors.add(e);
+                    }
+                }
+            }, "registrar-" + t);
+            registrars[t].start();
+        }
+        for (Thread registrar : registrars) {
+            registrar.join();
+        }
+        running.set(false);
+        for (Thread thread : background) {
+            thread.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> errors.size() + " errors, first: " + errors.peek());
+        List<String> userIds = new ArrayList<>();
+        for (int t = 0; t < REGISTRARS; t++) {
+            for (int i = 0; i < USERS_PER_REGISTRAR; i++) {
+                String email = run + "-r" + t + "-" + i + "@example.com";
+                User user = service.findUserByEmail(email);
+                assertNotNull(user, email);
+                userIds.add(user.getUserId());
+            }
+        }
+        assertEquals(userIds.size(), userIds.stream().distinct().count(), "registrations shared an id");
+    }
+}
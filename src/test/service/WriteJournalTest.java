@@ -0,0 +1,109 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A journal reopened without being closed stands in for a crash: only what reached the file counts.
+ */
+class WriteJournalTest {
+    @TempDir
+    Path dataDir;
+
+    private WriteJournal open() throws IOException {
+        return new WriteJournal(dataDir, "test", WriteJournal.FsyncPolicy.ALWAYS, 1_000);
+    }
+
+    private Path file() {
+        return dataDir.resolve("test.journal");
+    }
+
+    private static Map<String, Map<String, Object>> document(String documentId, int xp) {
+        return Map.of(documentId, Map.of("experiencePoint", xp));
+    }
+
+    @Test
+    void replaysUnacknowledgedWritesInOrder() throws IOException {
+        WriteJournal journal = open();
+        WriteJournal.Entry first = journal.append("update", "users", document("1", 10));
+        WriteJournal.Entry second = journal.append("update", "users", document("2", 20));
+        WriteJournal.Entry third = journal.append("save", "users", document("3", 30));
+        journal.acknowledge(second);
+
+        List<WriteJournal.Entry> pending = open().getPending();
+        assertEquals(2, pending.size());
+        assertEquals(first.getSeq(), pending.get(0).getSeq());
+        assertEquals(third.getSeq(), pending.get(1).getSeq());
+        assertEquals("save", pending.get(1).getOperation());
+        assertEquals("users", pending.get(1).getCollection());
+        assertEquals(document("3", 30), pending.get(1).getDocuments());
+        // They may have been applied just before the crash
+        assertTrue(pending.get(0).isUncertain());
+    }
+
+    @Test
+    void cutsOffATornTail() throws IOException {
+        WriteJournal journal = open();
+        journal.append("update", "users", document("1", 10));
+        journal.append("update", "users", document("2", 20));
+        long intact = Files.size(file());
+
+        // Half a record: a length that runs past the end of the file
+        Files.write(file(), new byte[] {0, 0, 1, 0, 7, 7, 7}, StandardOpenOption.APPEND);
+
+        assertEquals(2, open().getPendingCount());
+        assertEquals(intact, Files.size(file()));
+    }
+
+    @Test
+    void dropsACorruptRecordAndEverythingAfterIt() throws IOException {
+        WriteJournal journal = open();
+        journal.append("update", "users", document("1", 10));
+        journal.append("update", "users", document("2", 20));
+        journal.append("update", "users", document("3", 30));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file().toFile(), "rw")) {
+            raf.seek(8); // Past the header
+            int firstLength = raf.readInt();
+            long second = 8 + 8 + firstLength;
+            raf.seek(second + 8 + 12); // Inside the second record's payload
+            int b = raf.read();
+            raf.seek(second + 8 + 12);
+            raf.write(b ^ 0xFF);
+        }
+
+        List<WriteJournal.Entry> pending = open().getPending();
+        assertEquals(1, pending.size());
+        assertEquals(document("1", 10), pending.get(0).getDocuments());
+    }
+
+    @Test
+    void emptiesTheFileButKeepsSequenceNumbersMovingForward() throws IOException {
+        WriteJournal journal = open();
+        WriteJournal.Entry first = journal.append("update", "users", document("1", 10));
+        WriteJournal.Entry second = journal.append("update", "users", document("2", 20));
+        journal.acknowledge(first);
+        journal.acknowledge(second);
+        assertEquals(8, Files.size(file()));
+
+        WriteJournal reopened = open();
+        assertEquals(0, reopened.getPendingCount());
+        assertTrue(reopened.append("update", "users", document("3", 30)).getSeq() > second.getSeq());
+    }
+
+    @Test
+    void keepsItsClientId() throws IOException {
+        assertEquals(open().getClientId(), open().getClientId());
+    }
+}